@@ -0,0 +1,271 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.List;
+
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * The data of the Locals object created for an activation of a
+ * DefaultMethod or DefaultMacro. The code of the method is scanned once
+ * when it is created, and only the cells it mentions by name - self, @,
+ * currentMessage, surroundingContext and, for macros, call - are put
+ * into the Locals object. Any other use of them, and all uses of @@ and
+ * super, goes through the lazy cells on Locals, which read the values
+ * from here. That way an activation of a small method only allocates
+ * the Locals object and this frame. Reflection on the Locals object -
+ * cell, cell?, cellNames, cells and the like - puts all the cells in
+ * first, so that it sees them just as if they had been there from the
+ * start.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class ActivationFrame extends IokeData {
+	public static final int	SELF				= 1;
+	public static final int	AT					= 2;
+	public static final int	CURRENT_MESSAGE		= 4;
+	public static final int	SURROUNDING_CONTEXT	= 8;
+	public static final int	CALL				= 16;
+
+	final IokeObject		method;
+	final Object			self;
+	final IokeObject		message;
+	final IokeObject		context;
+	private final boolean	macro;
+	private boolean			materialized;
+
+	private ActivationFrame(IokeObject method, Object self,
+			IokeObject message, IokeObject context, boolean macro) {
+		this.method = method;
+		this.self = self;
+		this.message = message;
+		this.context = context;
+		this.macro = macro;
+	}
+
+	/**
+	 * Creates the Locals object for an activation.
+	 *
+	 * @param cells
+	 *            the cells to materialize, as returned from scan
+	 * @param macro
+	 *            true if this is a macro activation, which will have a
+	 *            call cell but no super
+	 */
+	public static IokeObject create(IokeObject method, IokeObject context,
+			IokeObject message, Object on, int cells, boolean macro) {
+		Runtime runtime = context.runtime;
+		IokeObject c = new IokeObject(runtime, null,
+				new ActivationFrame(method, on, message, context, macro));
+		c.body.useContextShapes();
+		c.singleMimicsWithoutCheck(runtime.locals);
+		if ((cells & SELF) != 0) {
+			c.setCell("self", on);
+		}
+		if ((cells & AT) != 0) {
+			c.setCell("@", on);
+		}
+		if ((cells & CURRENT_MESSAGE) != 0) {
+			c.setCell("currentMessage", message);
+		}
+		if ((cells & SURROUNDING_CONTEXT) != 0) {
+			c.setCell("surroundingContext", context);
+		}
+		if (macro && (cells & CALL) != 0) {
+			c.setCell("call", runtime.newCallFrom(c, message, context,
+					IokeObject.as(on, context)));
+		}
+		return c;
+	}
+
+	/**
+	 * Returns the cells that are mentioned anywhere in the code, either
+	 * as a message, a symbol or a text.
+	 */
+	public static int scan(Object code) {
+		int cells = 0;
+		if (code instanceof String) {
+			return cellFor((String) code);
+		}
+		if (!(code instanceof IokeObject)
+				|| !(((IokeObject) code).data instanceof Message)) {
+			return 0;
+		}
+
+		for (IokeObject m = (IokeObject) code; m != null; m = Message
+				.next(m)) {
+			String name = Message.name(m);
+			if (name != null) {
+				cells |= cellFor(name.length() > 1 && name.charAt(0) == ':'
+						? name.substring(1) : name);
+			}
+			List<Object> args = ((Message) m.data).arguments;
+			for (int i = 0, n = args.size(); i < n; i++) {
+				cells |= scan(args.get(i));
+			}
+		}
+		return cells;
+	}
+
+	private static int cellFor(String name) {
+		if (name.equals("self")) {
+			return SELF;
+		} else if (name.equals("@")) {
+			return AT;
+		} else if (name.equals("currentMessage")) {
+			return CURRENT_MESSAGE;
+		} else if (name.equals("surroundingContext")) {
+			return SURROUNDING_CONTEXT;
+		} else if (name.equals("call")) {
+			return CALL;
+		}
+		return 0;
+	}
+
+	/**
+	 * Finds the Locals object of the activation that the given context
+	 * belongs to, or null if there is none.
+	 */
+	static IokeObject frameFor(Object on) {
+		if (!(on instanceof IokeObject)) {
+			return null;
+		}
+
+		IokeObject c = (IokeObject) on;
+		while (c.isLexical()) {
+			c = ((LexicalContext) c.data).surroundingContext;
+		}
+		return (c.data instanceof ActivationFrame) ? c : null;
+	}
+
+	/**
+	 * Puts all the frame cells into the Locals object of the activation
+	 * that the given context belongs to, if any, in the same order as
+	 * they would have been if they were all set when it was created.
+	 */
+	static void materialize(Object on) {
+		IokeObject frame = frameFor(on);
+		if (frame == null) {
+			return;
+		}
+		ActivationFrame f = (ActivationFrame) frame.data;
+		if (f.materialized) {
+			return;
+		}
+		f.materialized = true;
+
+		Body locals = frame.runtime.locals.body;
+		if (f.macro) {
+			Object call = cellOf(frame, "call");
+			if (call == null) {
+				call = frame.runtime.newCallFrom(frame, f.message,
+						f.context, IokeObject.as(f.self, frame));
+			}
+			frame.body.putFirst(
+					new String[] { "self", "@", "@@", "currentMessage",
+							"surroundingContext", "call" },
+					new Object[] { f.self, f.self, locals.get("@@"),
+							f.message, f.context, call });
+		} else {
+			frame.body.putFirst(
+					new String[] { "self", "@", "@@", "currentMessage",
+							"surroundingContext" },
+					new Object[] { f.self, f.self, locals.get("@@"),
+							f.message, f.context });
+			if (!frame.body.has("super")) {
+				frame.body.put("super", locals.get("super"));
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of a frame cell of the given context, or null if
+	 * it doesn't have one.
+	 */
+	static Object cellOf(IokeObject on, String name) {
+		Object value = on.body.get(name);
+		if (value != null || !(on.data instanceof ActivationFrame)) {
+			return value;
+		}
+
+		ActivationFrame f = (ActivationFrame) on.data;
+		if (name.equals("self") || name.equals("@")) {
+			return f.self;
+		} else if (name.equals("currentMessage")) {
+			return f.message;
+		} else if (name.equals("surroundingContext")) {
+			return f.context;
+		}
+		return null;
+	}
+
+	/**
+	 * Implements the lazy cells on Locals. A context that doesn't
+	 * belong to an activation providing the cell will pass the message
+	 * on to self, just as it would have if the cell didn't exist.
+	 */
+	static Object activateLazyCell(String name, IokeObject context,
+			IokeObject message, Object on) throws ControlFlow {
+		IokeObject frame = frameFor(on);
+		if (frame != null) {
+			ActivationFrame f = (ActivationFrame) frame.data;
+			if (name.equals("@@")) {
+				return f.method;
+			} else if (name.equals("call")) {
+				if (f.macro) {
+					Object call = cellOf(frame, name);
+					if (call == null) {
+						call = context.runtime.newCallFrom(frame, f.message,
+								f.context, IokeObject.as(f.self, context));
+						frame.setCell("call", call);
+					}
+					return call;
+				}
+			} else if (name.equals("super")) {
+				if (!f.macro) {
+					return f.callSuper(context, message);
+				}
+			} else {
+				return cellOf(frame, name);
+			}
+		}
+
+		Object selfDelegate = IokeObject.as(on, context).getSelf();
+		if (selfDelegate != null && selfDelegate != on) {
+			return Interpreter.perform(selfDelegate, context, message);
+		}
+		return context.runtime.nil;
+	}
+
+	private Object callSuper(IokeObject context, IokeObject message)
+			throws ControlFlow {
+		String name = ((Method) method.data).name;
+		Object superCell = context.runtime.nul;
+		if (name != null) {
+			superCell = SuperCache.find(self, method, this.context, name);
+		}
+		if (superCell == context.runtime.nul) {
+			superCell = SuperCache.find(self, method, this.context,
+					Message.name(this.message));
+		}
+
+		if (superCell != context.runtime.nul) {
+			if (IokeObject.data(superCell) instanceof Method) {
+				return Interpreter.activate(((IokeObject) superCell),
+						context, message, self);
+			}
+			return superCell;
+		}
+		return Interpreter.signalNoSuchCell(message, context, self, name,
+				superCell, method);
+	}
+
+	@Override
+	public IokeData cloneData(IokeObject obj, IokeObject m,
+			IokeObject context) {
+		return IokeData.None;
+	}
+}// ActivationFrame
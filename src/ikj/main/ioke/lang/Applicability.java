@@ -0,0 +1,82 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.List;
+
+/**
+ * Remembers which kinds of conditions a handler or rescue applies to.
+ * Conditions are nearly always fresh mimics of some kind, so the answer
+ * is kept for the single mimic of the last condition asked about, and
+ * is only valid as long as the global body version hasn't changed since.
+ * Signalling the same kind of condition again then costs a few identity
+ * checks per handler instead of a walk of the mimic chain for every
+ * kind the handler takes.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class Applicability {
+	private static final class Entry {
+		final IokeObject	prototype;
+		final int			version;
+		final int			matches;
+
+		Entry(IokeObject prototype, int version, int matches) {
+			this.prototype = prototype;
+			this.version = version;
+			this.matches = matches;
+		}
+	}
+
+	private final List<Object>	kinds;
+	private volatile Entry		last;
+
+	Applicability(List<Object> kinds) {
+		this.kinds = kinds;
+	}
+
+	/**
+	 * Returns how many of the kinds the condition mimics.
+	 */
+	int matches(IokeObject condition) {
+		Body b = condition.body;
+		if (b.mimicCount != 1) {
+			return count(condition);
+		}
+		for (Object kind : kinds) {
+			if (IokeObject.as(kind, condition).body == b) {
+				return count(condition);
+			}
+		}
+
+		IokeObject prototype = b.mimic;
+		int version = Body.version();
+		Entry e = last;
+		if (e != null && e.prototype == prototype && e.version == version) {
+			return e.matches;
+		}
+
+		int matches = 0;
+		for (Object kind : kinds) {
+			if (IokeObject.isMimicObserved(prototype,
+					IokeObject.as(kind, condition))) {
+				matches++;
+			}
+		}
+		last = new Entry(prototype, version, matches);
+		return matches;
+	}
+
+	private int count(IokeObject condition) {
+		int matches = 0;
+		for (Object kind : kinds) {
+			if (IokeObject.isMimic(condition,
+					IokeObject.as(kind, condition))) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+}// Applicability
@@ -0,0 +1,207 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * What the arguments of a message look like - which of them are
+ * positional, which are keywords and whether there is a splat. The plan
+ * is made once per message and kept on it, so that binding arguments
+ * doesn't have to look at the names of the arguments and collect them
+ * into lists and maps on every call. If the arguments of the message
+ * have changed since the plan was made, a new one is made.
+ *
+ * Calls with splats, the wrong number of arguments or keywords the
+ * method doesn't take can't be planned, and go through the general
+ * code in DefaultArgumentsDefinition instead, which also takes care of
+ * signalling the right conditions.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class ArgumentPlan {
+	private static final byte	POSITIONAL	= 0;
+	private static final byte	KEYWORD		= 1;
+	private static final byte	SPLAT		= 2;
+
+	private final Object[]		args;
+	private final String[]		names;
+	private final Object[]		nexts;
+	private final byte[]		kinds;
+
+	final int					positional;
+	final int					keywords;
+	final boolean				splat;
+
+	private static final class KeywordCheck {
+		final Object	definition;
+		final boolean	known;
+
+		KeywordCheck(Object definition, boolean known) {
+			this.definition = definition;
+			this.known = known;
+		}
+	}
+
+	// the last definition this plan was checked against, and whether
+	// it takes all the keywords given
+	private volatile KeywordCheck	checked;
+
+	private ArgumentPlan(List<Object> arguments) {
+		int n = arguments.size();
+		args = arguments.toArray();
+		names = new String[n];
+		nexts = new Object[n];
+		kinds = new byte[n];
+
+		int positional = 0;
+		int keywords = 0;
+		boolean splat = false;
+		for (int i = 0; i < n; i++) {
+			Object o = args[i];
+			if ((o instanceof IokeObject)
+					&& (((IokeObject) o).data instanceof Message)) {
+				Message m = (Message) ((IokeObject) o).data;
+				names[i] = m.name;
+				nexts[i] = m.next;
+				if (m.isKeyword()) {
+					kinds[i] = KEYWORD;
+					keywords++;
+					continue;
+				} else if (m.name.equals("*")) {
+					kinds[i] = SPLAT;
+					splat = true;
+					continue;
+				}
+			}
+			kinds[i] = POSITIONAL;
+			positional++;
+		}
+		this.positional = positional;
+		this.keywords = keywords;
+		this.splat = splat;
+	}
+
+	/**
+	 * Returns the plan for the arguments of the given message.
+	 */
+	static ArgumentPlan of(IokeObject message) {
+		Message msg = (Message) message.data;
+		ArgumentPlan plan = msg.argumentPlan;
+		if (plan == null || !plan.matches(msg.arguments)) {
+			msg.argumentPlan = plan = new ArgumentPlan(msg.arguments);
+		}
+		return plan;
+	}
+
+	private boolean matches(List<Object> arguments) {
+		int n = args.length;
+		if (arguments.size() != n) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			Object o = arguments.get(i);
+			if (o != args[i]) {
+				return false;
+			}
+			if (names[i] != null) {
+				Message m = (Message) ((IokeObject) o).data;
+				if (m.name != names[i] || m.next != nexts[i]) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * True if there are only positional arguments.
+	 */
+	boolean isSimple() {
+		return keywords == 0 && !splat;
+	}
+
+	/**
+	 * Evaluates the argument at the given index.
+	 */
+	Object evaluate(int index, IokeObject context) throws ControlFlow {
+		return Interpreter.getEvaluatedArgument(args[index], context);
+	}
+
+	/**
+	 * Evaluates all arguments, in order, into the given arrays. The
+	 * values of keywords end up at the same index as the keyword
+	 * argument had in the message.
+	 */
+	void evaluate(IokeObject context, Object[] positionalValues,
+			Object[] keywordValues) throws ControlFlow {
+		int pix = 0;
+		for (int i = 0, n = args.length; i < n; i++) {
+			if (kinds[i] == KEYWORD) {
+				keywordValues[i] = Interpreter.getEvaluatedArgument(nexts[i],
+						context);
+			} else {
+				positionalValues[pix++] = Interpreter
+						.getEvaluatedArgument(args[i], context);
+			}
+		}
+	}
+
+	/**
+	 * Returns all the arguments evaluated, for plans that are simple.
+	 */
+	List<Object> evaluateAll(IokeObject context) throws ControlFlow {
+		List<Object> result = new ArrayList<>(args.length);
+		for (Object o : args) {
+			result.add(Interpreter.getEvaluatedArgument(o, context));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the index of the last keyword argument with the given
+	 * name, including the colon, or -1 if there isn't one.
+	 */
+	int keywordIndex(String name) {
+		for (int i = args.length - 1; i >= 0; i--) {
+			if (kinds[i] == KEYWORD && names[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if all keywords of this plan are part of the given
+	 * keywords.
+	 */
+	boolean takesKeywords(Object definition, Collection<String> accepted) {
+		if (keywords == 0) {
+			return true;
+		}
+		KeywordCheck c = checked;
+		if (c != null && c.definition == definition) {
+			return c.known;
+		}
+
+		boolean known = true;
+		for (int i = 0; i < args.length; i++) {
+			if (kinds[i] == KEYWORD && !accepted.contains(names[i])) {
+				known = false;
+				break;
+			}
+		}
+		checked = new KeywordCheck(definition, known);
+		return known;
+	}
+
+	int size() {
+		return args.length;
+	}
+}// ArgumentPlan
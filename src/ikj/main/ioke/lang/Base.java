@@ -41,11 +41,11 @@ public class Base {
 						toVisit.addAll(current.getMimics());
 					}
 
-					Body.Cell c = current.body.firstAdded;
-					while (c != null) {
-						String s = c.name;
+					Body b = current.body;
+					for (int i = 0, n = b.count(); i < n; i++) {
+						String s = b.nameAt(i);
 						if (!undefined.contains(s)) {
-							if (c.value == runtime.nul) {
+							if (b.valueAt(i) == runtime.nul) {
 								undefined.add(s);
 							} else {
 								Object x = runtime.getSymbol(s);
@@ -55,8 +55,6 @@ public class Base {
 								}
 							}
 						}
-
-						c = c.orderedNext;
 					}
 				}
 			}
@@ -66,13 +64,11 @@ public class Base {
 		List<Object> names = new ArrayList<>();
 		Runtime runtime = context.runtime;
 
-		Body.Cell c = IokeObject.as(on, context).body.firstAdded;
-		while (c != null) {
-			String s = c.name;
-			if (c.value != runtime.nul) {
-				names.add(runtime.getSymbol(s));
+		Body b = IokeObject.as(on, context).body;
+		for (int i = 0, n = b.count(); i < n; i++) {
+			if (b.valueAt(i) != runtime.nul) {
+				names.add(runtime.getSymbol(b.nameAt(i)));
 			}
-			c = c.orderedNext;
 		}
 
 		return runtime.newList(names);
@@ -97,11 +93,11 @@ public class Base {
 					visited.put(current, null);
 					toVisit.addAll(current.getMimics());
 
-					Body.Cell c = current.body.firstAdded;
-					while (c != null) {
-						String s = c.name;
+					Body b = current.body;
+					for (int i = 0, n = b.count(); i < n; i++) {
+						String s = b.nameAt(i);
 						if (!undefined.contains(s)) {
-							Object val = c.value;
+							Object val = b.valueAt(i);
 							if (val == runtime.nul) {
 								undefined.add(s);
 							} else {
@@ -111,18 +107,16 @@ public class Base {
 								}
 							}
 						}
-						c = c.orderedNext;
 					}
 				}
 			}
 		} else {
-			Body.Cell c = IokeObject.as(on, context).body.firstAdded;
-			while (c != null) {
-				String s = c.name;
-				if (c.value != runtime.nul) {
-					cells.put(runtime.getSymbol(s), c.value);
+			Body b = IokeObject.as(on, context).body;
+			for (int i = 0, n = b.count(); i < n; i++) {
+				Object val = b.valueAt(i);
+				if (val != runtime.nul) {
+					cells.put(runtime.getSymbol(b.nameAt(i)), val);
 				}
-				c = c.orderedNext;
 			}
 		}
 		return runtime.newDict(cells);
@@ -420,8 +414,10 @@ public class Base {
 										.getEvaluatedArgument(args.get(1),
 												context);
 
-								IokeObject.assign(on, name, value, context,
-										message);
+								if (!LexicalAddress.assign(m1, on, value)) {
+									IokeObject.assign(on, name, value,
+											context, message);
+								}
 
 								if (value instanceof IokeObject) {
 									if ((IokeObject
@@ -492,6 +488,7 @@ public class Base {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
+						ActivationFrame.materialize(on);
 
 						String name = Text.getText(
 								Interpreter.send(context.runtime.asText,
@@ -521,6 +518,7 @@ public class Base {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
+						ActivationFrame.materialize(on);
 
 						String name = Text.getText(
 								Interpreter.send(context.runtime.asText,
@@ -552,6 +550,7 @@ public class Base {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
+						ActivationFrame.materialize(on);
 
 						String name = Text.getText(
 								Interpreter.send(context.runtime.asText,
@@ -582,6 +581,7 @@ public class Base {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
+						ActivationFrame.materialize(on);
 
 						String name = Text.getText(
 								Interpreter.send(context.runtime.asText,
@@ -677,6 +677,7 @@ public class Base {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
+						ActivationFrame.materialize(on);
 
 						return cellNames(context, message, on,
 								args.size() > 0
@@ -707,6 +708,7 @@ public class Base {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
+						ActivationFrame.materialize(on);
 						return cells(context, message, on, args.size() > 0
 								&& IokeObject.isTrue(args.get(0)));
 					}
@@ -751,6 +753,11 @@ public class Base {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return IokeData.class;
+					}
+
 					@Override
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
@@ -771,6 +778,11 @@ public class Base {
 		base.registerMethod(base.runtime.newNativeMethod(
 				"returns a hash for the object",
 				new NativeMethod.WithNoArguments("hash") {
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return IokeData.class;
+					}
+
 					@Override
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
@@ -4,7 +4,9 @@
  */
 package ioke.lang;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
@@ -20,193 +22,155 @@ public final class Body {
 	// zeroed by jvm
 	int						flags;
 
-	public final void put(String name, Object value) {
-		Cell cell = getCell(name, false);
-		cell.value = value;
+	private Shape			shape;
+	private Object[]		values;
+
+	/**
+	 * Global mutation stamp for inline caches. It is only bumped when a
+	 * body that some cache has walked through is changed, see
+	 * {@link IokeObject#OBSERVED_F}.
+	 */
+	private static final AtomicInteger	VERSION				= new AtomicInteger();
+
+	private static final int			INITIAL_CELL_SIZE	= 4;
+
+	Body(Selectors selectors) {
+		this.shape = selectors.root;
 	}
 
-	public final boolean has(String name) {
-		return null != getCell(name, true);
+	static int version() {
+		return VERSION.get();
 	}
 
-	public final Object get(String name) {
-		Cell cell = getCell(name, true);
-		if (cell == null) {
-			return cell;
+	static void invalidate() {
+		VERSION.incrementAndGet();
+	}
+
+	/**
+	 * Makes an empty body take its shapes from the tree used for Locals
+	 * objects and lexical contexts, see {@link Selectors#contextRoot}.
+	 */
+	final void useContextShapes() {
+		if (shape == shape.registry.root) {
+			shape = shape.registry.contextRoot;
 		}
-		return cell.value;
 	}
 
-	public Object remove(String name) {
-		int hash = name.hashCode();
-
-		Cell[] cellsLocalRef = cells;
-		if (count != 0) {
-			int tableSize = cells.length;
-			int cellIndex = getCellIndex(tableSize, hash);
-			Cell prev = cellsLocalRef[cellIndex];
-			Cell cell = prev;
-			while (cell != null) {
-				if (cell.name == name || name.equals(cell.name)) {
-					break;
-				}
-				prev = cell;
-				cell = cell.next;
-			}
-			if (cell != null) {
-				count--;
-				// remove slot from hash table
-				if (prev == cell) {
-					cellsLocalRef[cellIndex] = cell.next;
-				} else {
-					prev.next = cell.next;
-				}
-
-				if (firstAdded == cell) {
-					firstAdded = cell.orderedNext;
-					if (lastAdded == cell) {
-						lastAdded = null;
-					}
-				} else {
-					Cell p2 = firstAdded;
-					while (p2.orderedNext != cell) {
-						p2 = p2.orderedNext;
-					}
-
-					p2.orderedNext = cell.orderedNext;
-
-					if (lastAdded == cell) {
-						lastAdded = p2;
-					}
-				}
-
-				return cell.value;
-			}
+	final void touched() {
+		if ((flags & IokeObject.OBSERVED_F) != 0) {
+			invalidate();
 		}
-		return null;
 	}
 
-	private Cell[]				cells;
-	private int					count;
+	public final void put(String name, Object value) {
+		put(shape.registry.idOf(name), value);
+	}
 
-	Cell						firstAdded;
-	Cell						lastAdded;
+	final void put(int selector, Object value) {
+		int i = shape.indexOf(selector);
+		if (i == -1) {
+			i = shape.size();
+			shape = shape.withCell(selector);
+			Object[] vs = values;
+			if (vs == null) {
+				values = vs = new Object[INITIAL_CELL_SIZE];
+			} else if (i == vs.length) {
+				values = vs = Arrays.copyOf(vs, i * 2);
+			}
+			vs[i] = value;
+		} else {
+			values[i] = value;
+		}
+		touched();
+	}
 
-	private static final int	INITIAL_CELL_SIZE	= 4;
+	/**
+	 * Puts the given cells in front of the cells already in this body,
+	 * which keep their values and their order after them. A name that is
+	 * already here is moved to the front and keeps its value. The body
+	 * ends up with a shape from the context tree.
+	 */
+	final void putFirst(String[] names, Object[] firstValues) {
+		Shape old = shape;
+		Object[] oldValues = values;
+		shape = old.registry.contextRoot;
+		values = null;
+		for (int i = 0; i < names.length; i++) {
+			int selector = old.registry.idOf(names[i]);
+			int at = old.indexOf(selector);
+			put(selector, at == -1 ? firstValues[i] : oldValues[at]);
+		}
+		for (int i = 0, n = old.size(); i < n; i++) {
+			int selector = old.selectorAt(i);
+			if (shape.indexOf(selector) == -1) {
+				put(selector, oldValues[i]);
+			}
+		}
+	}
 
-	public static class Cell {
-		String			name;
-		int				hash;
-		public Object	value;
-		Cell			next;			// next in hash table bucket
-		Cell			orderedNext;	// next in linked list
+	public final boolean has(String name) {
+		return shape.indexOf(name) != -1;
+	}
 
-		Cell(String name, int hash) {
-			this.name = name;
-			this.hash = hash;
+	public final Object get(String name) {
+		int i = shape.indexOf(name);
+		if (i == -1) {
+			return null;
 		}
+		return values[i];
 	}
 
-	private Cell getCell(String name, boolean query) {
-		Cell[] cellsLocalRef = cells;
-		if (cellsLocalRef == null && query) {
+	final Object get(int selector) {
+		int i = shape.indexOf(selector);
+		if (i == -1) {
 			return null;
 		}
-		int hash = name.hashCode();
-		if (cellsLocalRef != null) {
-			Cell cell;
-			int cellIndex = getCellIndex(cellsLocalRef.length, hash);
-			for (cell = cellsLocalRef[cellIndex]; cell != null; cell = cell.next) {
-				Object sname = cell.name;
-				if (sname == name || name.equals(sname)) {
-					break;
-				}
-			}
-			if (query || (!query && cell != null)) {
-				return cell;
-			}
+		return values[i];
+	}
+
+	public Object remove(String name) {
+		int i = shape.indexOf(name);
+		if (i == -1) {
+			return null;
 		}
 
-		return createCell(name, hash, query);
+		Object value = values[i];
+		int size = shape.size();
+		shape = shape.withoutCell(i);
+		System.arraycopy(values, i + 1, values, i, size - i - 1);
+		values[size - 1] = null;
+		touched();
+		return value;
 	}
 
-	private static int getCellIndex(int tableSize, int hash) {
-		return hash & (tableSize - 1);
+	/**
+	 * Returns the shape of this body. Shapes of bodies that haven't had
+	 * any cells removed and aren't too big are shared, so identical
+	 * shapes mean the bodies have the same cell names in the same order.
+	 */
+	final Shape shape() {
+		return shape;
 	}
 
-	private Cell createCell(String name, int hash, boolean query) {
-		Cell[] cellsLocalRef = cells;
-		int insertPos;
-		if (count == 0) {
-			cellsLocalRef = new Cell[INITIAL_CELL_SIZE];
-			cells = cellsLocalRef;
-			insertPos = getCellIndex(cellsLocalRef.length, hash);
-		} else {
-			int tableSize = cellsLocalRef.length;
-			insertPos = getCellIndex(tableSize, hash);
-			Cell prev = cellsLocalRef[insertPos];
-			Cell cell = prev;
-			while (cell != null) {
-				if (cell.name == name || name.equals(cell.name)) {
-					break;
-				}
-				prev = cell;
-				cell = cell.next;
-			}
+	/**
+	 * Returns the number of cells in this body. Together with nameAt and
+	 * valueAt this allows iteration over the cells in the order they
+	 * were added.
+	 */
+	public final int count() {
+		return shape.size();
+	}
 
-			if (cell != null) {
-				return cell;
-			}
-			if (4 * (count + 1) > 3 * cellsLocalRef.length) {
-				cellsLocalRef = new Cell[cellsLocalRef.length * 2];
-				copyTable(cells, cellsLocalRef, count);
-				cells = cellsLocalRef;
-				insertPos = getCellIndex(cellsLocalRef.length, hash);
-			}
-		}
-		Cell newCell = new Cell(name, hash);
-		++count;
-		if (lastAdded != null) {
-			lastAdded.orderedNext = newCell;
-		}
-		if (firstAdded == null) {
-			firstAdded = newCell;
-		}
-		lastAdded = newCell;
-		addKnownAbsentCell(cellsLocalRef, newCell, insertPos);
-		return newCell;
-	}
-
-	private static void copyTable(Cell[] cells, Cell[] newCells,
-			int count) {
-		int tableSize = newCells.length;
-		int i = cells.length;
-		for (;;) {
-			--i;
-			Cell cell = cells[i];
-			while (cell != null) {
-				int insertPos = getCellIndex(tableSize, cell.hash);
-				Cell next = cell.next;
-				addKnownAbsentCell(newCells, cell, insertPos);
-				cell.next = null;
-				cell = next;
-				if (--count == 0) {
-					return;
-				}
-			}
-		}
+	public final String nameAt(int index) {
+		return shape.nameAt(index);
 	}
 
-	private static void addKnownAbsentCell(Cell[] cells, Cell cell,
-			int insertPos) {
-		if (cells[insertPos] == null) {
-			cells[insertPos] = cell;
-		} else {
-			Cell prev = cells[insertPos];
-			while (prev.next != null) {
-				prev = prev.next;
-			}
-			prev.next = cell;
-		}
+	public final Object valueAt(int index) {
+		return values[index];
+	}
+
+	final void setValueAt(int index, Object value) {
+		values[index] = value;
+		touched();
 	}
 }
@@ -147,10 +147,11 @@ public class Call extends IokeData {
 
 						IokeObject msg = ((Call) IokeObject
 								.data(on)).message;
-						return context.runtime.newList(
+						return context.runtime.newList(NumberList.storageFor(
+								context.runtime,
 								Interpreter.getEvaluatedArguments(msg,
 										((Call) IokeObject.data(
-												on)).surroundingContext));
+												on)).surroundingContext)));
 					}
 				}));
 
@@ -0,0 +1,29 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The version of one message chain that something has been derived
+ * from - compiled code, or the plan of a loop body. The messages of the
+ * chain are marked with it, and renaming, relinking or replacing any of
+ * them bumps it. Whatever was derived from the chain remembers the
+ * version it saw, and is stale once that doesn't match any more.
+ * Changes to other chains leave it alone.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public final class CodeVersion {
+	private final AtomicInteger	value	= new AtomicInteger();
+
+	public int get() {
+		return value.get();
+	}
+
+	void bump() {
+		value.incrementAndGet();
+	}
+}// CodeVersion
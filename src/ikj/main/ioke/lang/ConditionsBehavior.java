@@ -487,7 +487,7 @@ public class ConditionsBehavior {
 								return Interpreter.send(
 										runtime.callMessage, context,
 										Interpreter.send(runtime.code,
-												context, ri.restart),
+												context, ri.getRestart()),
 										e.getArguments());
 							}
 							throw e;
@@ -696,7 +696,7 @@ public class ConditionsBehavior {
 						if (realRestart == null) {
 							return runtime.nil;
 						}
-						return realRestart.restart;
+						return realRestart.getRestart();
 					}
 				}));
 
@@ -738,9 +738,9 @@ public class ConditionsBehavior {
 										runtime.callMessage, context,
 										Interpreter.send(
 												runtime.testMessage,
-												context, rri.restart),
+												context, rri.getRestart()),
 										toLookFor))) {
-									result.add(rri.restart);
+									result.add(rri.getRestart());
 								}
 							}
 						}
@@ -180,11 +180,9 @@ public class Decimal extends IokeData {
 				"Returns a text representation of the object",
 				new NativeMethod.WithNoArguments("asText") {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return runtime.newText(on.toString());
 					}
 				}));
@@ -194,11 +192,9 @@ public class Decimal extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						decimal) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(Decimal.getInspect(on));
 					}
@@ -209,11 +205,9 @@ public class Decimal extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						decimal) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(Decimal.getInspect(on));
 					}
@@ -233,12 +227,9 @@ public class Decimal extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						if (IokeObject.data(arg) instanceof Number) {
 							return (Decimal.value(on).compareTo(
 									Number.value(arg).asBigDecimal()) == 0)
@@ -270,13 +261,9 @@ public class Decimal extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Number) {
@@ -321,13 +308,9 @@ public class Decimal extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Number) {
@@ -359,13 +342,9 @@ public class Decimal extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Number) {
@@ -397,13 +376,9 @@ public class Decimal extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Number) {
@@ -435,13 +410,9 @@ public class Decimal extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -60,11 +60,14 @@ public class DefaultArgumentsDefinition implements ArgumentsDefinition {
 	}
 
 	public static class KeywordArgument extends Argument {
-		private Object defaultValue;
+		private Object			defaultValue;
+		// the name as it's given in a message, with the colon
+		private final String	keyword;
 
 		public KeywordArgument(String name, Object defaultValue) {
 			super(name);
 			this.defaultValue = defaultValue;
+			this.keyword = name + ":";
 		}
 
 		public Object getDefaultValue() {
@@ -86,6 +89,7 @@ public class DefaultArgumentsDefinition implements ArgumentsDefinition {
 	// unevaluated krest: +[foo]
 
 	private boolean						hasUnevaluated	= false;
+	private final int					fixedArity;
 
 	protected DefaultArgumentsDefinition(List<Argument> arguments,
 			Collection<String> keywords, String rest, String krest,
@@ -106,6 +110,18 @@ public class DefaultArgumentsDefinition implements ArgumentsDefinition {
 				break;
 			}
 		}
+
+		fixedArity = (min == max && keywords.isEmpty() && rest == null
+				&& krest == null && !hasUnevaluated) ? min : -1;
+	}
+
+	/**
+	 * Returns the number of arguments if this definition takes exactly
+	 * that many evaluated positional arguments and nothing else,
+	 * otherwise -1.
+	 */
+	public int getFixedArity() {
+		return fixedArity;
 	}
 
 	@Override
@@ -265,6 +281,15 @@ public class DefaultArgumentsDefinition implements ArgumentsDefinition {
 			final IokeObject message, final Object on,
 			final List<Object> argumentsWithoutKeywords,
 			final Map<String, Object> givenKeywords) throws ControlFlow {
+		ArgumentPlan plan = ArgumentPlan.of(message);
+		int given = plan.positional;
+		if (plan.isSimple() && given >= min && (max == -1 || given <= max)) {
+			for (int i = 0; i < given; i++) {
+				argumentsWithoutKeywords.add(plan.evaluate(i, context));
+			}
+			return given;
+		}
+
 		final Runtime runtime = context.runtime;
 		final List<Object> arguments = message.getArguments();
 		int argCount = 0;
@@ -475,14 +500,88 @@ public class DefaultArgumentsDefinition implements ArgumentsDefinition {
 	public void assignArgumentValues(final IokeObject locals,
 			final IokeObject context, final IokeObject message,
 			final Object on) throws ControlFlow {
+		ArgumentPlan plan = ArgumentPlan.of(message);
+		int argCount = plan.positional;
+		if (!plan.splat && argCount >= min && (max == -1 || argCount <= max)
+				&& plan.takesKeywords(this, keywords)) {
+			Object[] positional = argCount == 0 ? NO_VALUES
+					: new Object[argCount];
+			Object[] keywordValues = plan.keywords == 0 ? null
+					: new Object[plan.size()];
+			plan.evaluate(context, positional, keywordValues);
+			assignArgumentValues(locals, context, plan, positional,
+					keywordValues);
+			return;
+		}
+
 		final List<Object> argumentsWithoutKeywords = new ArrayList<>();
 		final Map<String, Object> givenKeywords = new LinkedHashMap<>();
-		final int argCount = getEvaluatedArguments(context, message, on,
+		argCount = getEvaluatedArguments(context, message, on,
 				argumentsWithoutKeywords, givenKeywords);
 		assignArgumentValues(locals, context, message, on,
 				argumentsWithoutKeywords, givenKeywords, argCount);
 	}
 
+	private static final Object[] NO_VALUES = new Object[0];
+
+	/**
+	 * Binds arguments that have been evaluated according to a plan. The
+	 * plan has already been checked to have the right number of
+	 * positional arguments and only keywords that this definition takes.
+	 */
+	private void assignArgumentValues(final IokeObject locals,
+			final IokeObject context, final ArgumentPlan plan,
+			final Object[] positional, final Object[] keywordValues)
+			throws ControlFlow {
+		final Runtime runtime = context.runtime;
+		int ix = 0;
+		for (int i = 0, j = this.arguments.size(); i < j; i++) {
+			Argument a = this.arguments.get(i);
+
+			if (a instanceof KeywordArgument) {
+				KeywordArgument ka = (KeywordArgument) a;
+				int k = keywordValues == null ? -1
+						: plan.keywordIndex(ka.keyword);
+				Object given = k == -1 ? null : keywordValues[k];
+				if (given == null) {
+					Object defVal = ka.getDefaultValue();
+					if (!(defVal instanceof String)) {
+						IokeObject msg = IokeObject.as(defVal, context);
+						locals.setCell(a.getName(),
+								runtime.interpreter.evaluate(msg, locals,
+										locals.getRealContext(), locals));
+					}
+				} else {
+					locals.setCell(a.getName(), given);
+				}
+			} else if ((a instanceof OptionalArgument)
+					&& ix >= positional.length) {
+				Object defVal = ((OptionalArgument) a).getDefaultValue();
+				if (!(defVal instanceof String)) {
+					IokeObject msg = IokeObject.as(defVal, context);
+					locals.setCell(a.getName(),
+							runtime.interpreter.evaluate(msg, locals,
+									locals.getRealContext(), locals));
+				}
+			} else {
+				locals.setCell(a.getName(), positional[ix++]);
+			}
+		}
+
+		if (krest != null) {
+			locals.setCell(krest,
+					runtime.newDict(new LinkedHashMap<Object, Object>()));
+		}
+
+		if (rest != null) {
+			List<Object> rests = new ArrayList<>(positional.length - ix);
+			for (; ix < positional.length; ix++) {
+				rests.add(positional[ix]);
+			}
+			locals.setCell(rest, runtime.newList(rests));
+		}
+	}
+
 	private void assignArgumentValues(final IokeObject locals,
 			final IokeObject context, final IokeObject message,
 			final Object on, final List<Object> argumentsWithoutKeywords,
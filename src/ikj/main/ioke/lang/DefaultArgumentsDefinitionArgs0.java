@@ -31,7 +31,9 @@ public class DefaultArgumentsDefinitionArgs0
 	public void assignArgumentValues(final IokeObject locals,
 			final IokeObject context, final IokeObject message,
 			final Object on) throws ControlFlow {
-		DefaultArgumentsDefinitionArgs1.assign(context, message, on, 0);
+		if (ArgumentPlan.of(message).size() != 0) {
+			DefaultArgumentsDefinitionArgs1.assign(context, message, on, 0);
+		}
 	}
 
 	@Override
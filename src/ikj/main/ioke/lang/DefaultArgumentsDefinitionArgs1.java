@@ -45,6 +45,11 @@ public class DefaultArgumentsDefinitionArgs1
 			throws ControlFlow {
 		final Runtime runtime = context.runtime;
 
+		ArgumentPlan plan = ArgumentPlan.of(message);
+		if (plan.isSimple() && plan.positional == expected) {
+			return plan.evaluateAll(context);
+		}
+
 		final List<Object> arguments = message.getArguments();
 		int argCount = 0;
 
@@ -228,6 +233,11 @@ public class DefaultArgumentsDefinitionArgs1
 	public void assignArgumentValues(final IokeObject locals,
 			final IokeObject context, final IokeObject message,
 			final Object on) throws ControlFlow {
+		ArgumentPlan plan = ArgumentPlan.of(message);
+		if (plan.isSimple() && plan.positional == 1) {
+			locals.setCell(name0, plan.evaluate(0, context));
+			return;
+		}
 		List<Object> result = assign(context, message, on, 1);
 		locals.setCell(name0, result.get(0));
 	}
@@ -46,6 +46,14 @@ public class DefaultArgumentsDefinitionArgs2
 	public void assignArgumentValues(final IokeObject locals,
 			final IokeObject context, final IokeObject message,
 			final Object on) throws ControlFlow {
+		ArgumentPlan plan = ArgumentPlan.of(message);
+		if (plan.isSimple() && plan.positional == 2) {
+			Object v0 = plan.evaluate(0, context);
+			Object v1 = plan.evaluate(1, context);
+			locals.setCell(name0, v0);
+			locals.setCell(name1, v1);
+			return;
+		}
 		List<Object> result = DefaultArgumentsDefinitionArgs1
 				.assign(context, message, on, 2);
 		locals.setCell(name0, result.get(0));
@@ -51,6 +51,16 @@ public class DefaultArgumentsDefinitionArgs3
 	public void assignArgumentValues(final IokeObject locals,
 			final IokeObject context, final IokeObject message,
 			final Object on) throws ControlFlow {
+		ArgumentPlan plan = ArgumentPlan.of(message);
+		if (plan.isSimple() && plan.positional == 3) {
+			Object v0 = plan.evaluate(0, context);
+			Object v1 = plan.evaluate(1, context);
+			Object v2 = plan.evaluate(2, context);
+			locals.setCell(name0, v0);
+			locals.setCell(name1, v1);
+			locals.setCell(name2, v2);
+			return;
+		}
 		List<Object> result = DefaultArgumentsDefinitionArgs1
 				.assign(context, message, on, 3);
 		locals.setCell(name0, result.get(0));
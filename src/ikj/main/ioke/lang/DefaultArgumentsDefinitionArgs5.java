@@ -59,6 +59,20 @@ public class DefaultArgumentsDefinitionArgs5
 	public void assignArgumentValues(final IokeObject locals,
 			final IokeObject context, final IokeObject message,
 			final Object on) throws ControlFlow {
+		ArgumentPlan plan = ArgumentPlan.of(message);
+		if (plan.isSimple() && plan.positional == 5) {
+			Object v0 = plan.evaluate(0, context);
+			Object v1 = plan.evaluate(1, context);
+			Object v2 = plan.evaluate(2, context);
+			Object v3 = plan.evaluate(3, context);
+			Object v4 = plan.evaluate(4, context);
+			locals.setCell(name0, v0);
+			locals.setCell(name1, v1);
+			locals.setCell(name2, v2);
+			locals.setCell(name3, v3);
+			locals.setCell(name4, v4);
+			return;
+		}
 		List<Object> result = DefaultArgumentsDefinitionArgs1
 				.assign(context, message, on, 5);
 		locals.setCell(name0, result.get(0));
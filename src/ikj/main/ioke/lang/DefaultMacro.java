@@ -4,11 +4,10 @@
  */
 package ioke.lang;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import ioke.lang.compiler.MessageCompiler;
 import ioke.lang.exceptions.ControlFlow;
 
 /**
@@ -19,6 +18,7 @@ public class DefaultMacro extends IokeData
 		implements Named, Inspectable, AssociatedCode {
 	String				name;
 	private IokeObject	code;
+	private int			frameCells;
 
 	public DefaultMacro(String name) {
 		super(IokeData.TYPE_DEFAULT_MACRO);
@@ -29,6 +29,7 @@ public class DefaultMacro extends IokeData
 		this((String) null);
 
 		this.code = code;
+		this.frameCells = ActivationFrame.scan(code);
 	}
 
 	@Override
@@ -36,6 +37,15 @@ public class DefaultMacro extends IokeData
 		return code;
 	}
 
+	private Object evaluateCode(IokeObject c, Object on) throws ControlFlow {
+		MessageCompiler compiler = c.runtime.compiler;
+		if (compiler == null) {
+			return c.runtime.interpreter.evaluate(code, c, on, c);
+		}
+
+		return compiler.profileFor(code).activate(c, on, c);
+	}
+
 	public String getCodeString() {
 		return "macro(" + Message.code(code) + ")";
 
@@ -248,24 +258,8 @@ public class DefaultMacro extends IokeData
 			return null;
 		}
 
-		IokeObject c = context.runtime.locals.mimic(message, context);
-		c.setCell("self", on);
-		c.setCell("@", on);
-		c.registerMethod(c.runtime.newNativeMethod(
-				"will return the currently executing macro receiver",
-				new NativeMethod.WithNoArguments("@@") {
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						getArguments().getEvaluatedArguments(context,
-								message, on, new ArrayList<>(),
-								new HashMap<String, Object>());
-						return self;
-					}
-				}));
-		c.setCell("currentMessage", message);
-		c.setCell("surroundingContext", context);
+		IokeObject c = ActivationFrame.create(self, context, message, on,
+				dm.frameCells & ~ActivationFrame.CALL, true);
 		c.setCell("call", call);
 		for (Map.Entry<String, Object> d : data.entrySet()) {
 			String s = d.getKey();
@@ -273,10 +267,10 @@ public class DefaultMacro extends IokeData
 		}
 
 		try {
-			return context.runtime.interpreter.evaluate(dm.code, c, on, c);
+			return dm.evaluateCode(c, on);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				return e.getValue();
+				return e.take();
 			}
 			throw e;
 		}
@@ -302,32 +296,14 @@ public class DefaultMacro extends IokeData
 			return null;
 		}
 
-		IokeObject c = context.runtime.locals.mimic(message, context);
-		c.setCell("self", on);
-		c.setCell("@", on);
-		c.registerMethod(c.runtime.newNativeMethod(
-				"will return the currently executing macro receiver",
-				new NativeMethod.WithNoArguments("@@") {
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						getArguments().getEvaluatedArguments(context,
-								message, on, new ArrayList<>(),
-								new HashMap<String, Object>());
-						return self;
-					}
-				}));
-		c.setCell("currentMessage", message);
-		c.setCell("surroundingContext", context);
-		c.setCell("call", context.runtime.newCallFrom(c, message, context,
-				IokeObject.as(on, context)));
+		IokeObject c = ActivationFrame.create(self, context, message, on,
+				dm.frameCells, true);
 
 		try {
-			return context.runtime.interpreter.evaluate(dm.code, c, on, c);
+			return dm.evaluateCode(c, on);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				return e.getValue();
+				return e.take();
 			}
 			throw e;
 		}
@@ -353,36 +329,18 @@ public class DefaultMacro extends IokeData
 			return null;
 		}
 
-		IokeObject c = context.runtime.locals.mimic(message, context);
-		c.setCell("self", on);
-		c.setCell("@", on);
-		c.registerMethod(c.runtime.newNativeMethod(
-				"will return the currently executing macro receiver",
-				new NativeMethod.WithNoArguments("@@") {
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						getArguments().getEvaluatedArguments(context,
-								message, on, new ArrayList<>(),
-								new HashMap<String, Object>());
-						return self;
-					}
-				}));
-		c.setCell("currentMessage", message);
-		c.setCell("surroundingContext", context);
-		c.setCell("call", context.runtime.newCallFrom(c, message, context,
-				IokeObject.as(on, context)));
+		IokeObject c = ActivationFrame.create(self, context, message, on,
+				dm.frameCells, true);
 		for (Map.Entry<String, Object> d : data.entrySet()) {
 			String s = d.getKey();
 			c.setCell(s.substring(0, s.length() - 1), d.getValue());
 		}
 
 		try {
-			return context.runtime.interpreter.evaluate(dm.code, c, on, c);
+			return dm.evaluateCode(c, on);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				return e.getValue();
+				return e.take();
 			}
 			throw e;
 		}
@@ -5,10 +5,10 @@
 package ioke.lang;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import ioke.lang.compiler.MessageCompiler;
 import ioke.lang.exceptions.ControlFlow;
 
 /**
@@ -18,6 +18,7 @@ import ioke.lang.exceptions.ControlFlow;
 public class DefaultMethod extends Method implements AssociatedCode {
 	private ArgumentsDefinition	arguments;
 	private IokeObject			code;
+	private int					frameCells;
 
 	public DefaultMethod(String name) {
 		super(name, IokeData.TYPE_DEFAULT_METHOD);
@@ -28,6 +29,7 @@ public class DefaultMethod extends Method implements AssociatedCode {
 		super(context, IokeData.TYPE_DEFAULT_METHOD);
 		this.arguments = arguments;
 		this.code = code;
+		this.frameCells = ActivationFrame.scan(code);
 	}
 
 	@Override
@@ -35,6 +37,15 @@ public class DefaultMethod extends Method implements AssociatedCode {
 		return code;
 	}
 
+	private Object evaluateCode(IokeObject c, Object on) throws ControlFlow {
+		MessageCompiler compiler = c.runtime.compiler;
+		if (compiler == null) {
+			return c.runtime.interpreter.evaluate(code, c, on, c);
+		}
+
+		return compiler.profileFor(code).activate(c, on, c);
+	}
+
 	@Override
 	public void init(IokeObject defaultMethod) throws ControlFlow {
 		defaultMethod.setKind("DefaultMethod");
@@ -142,53 +153,6 @@ public class DefaultMethod extends Method implements AssociatedCode {
 		return name + ":method(" + args + Message.code(code) + ")";
 	}
 
-	private static IokeObject createSuperCallFor(final IokeObject out_self,
-			final IokeObject out_context, final IokeObject out_message,
-			final Object out_on, final String out_name)
-			throws ControlFlow {
-		return out_context.runtime.newNativeMethod(
-				"will call the super method of the current message on the same receiver",
-				new NativeMethod("super") {
-					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
-							.builder().withRestUnevaluated("arguments")
-							.getArguments();
-
-					@Override
-					public DefaultArgumentsDefinition getArguments() {
-						return ARGUMENTS;
-					}
-
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						Object superCell = context.runtime.nul;
-						if (out_name != null) {
-							superCell = IokeObject.findSuperCellOn(out_on,
-									out_self, out_context, out_name);
-						}
-						if (superCell == context.runtime.nul) {
-							superCell = IokeObject.findSuperCellOn(out_on,
-									out_self, out_context,
-									Message.name(out_message));
-						}
-
-						if (superCell != context.runtime.nul) {
-							if (IokeObject
-									.data(superCell) instanceof Method) {
-								return Interpreter.activate(
-										((IokeObject) superCell), context,
-										message, out_on);
-							}
-							return superCell;
-						}
-						return Interpreter.signalNoSuchCell(message,
-								context, out_on, out_name, superCell,
-								out_self);
-					}
-				});
-	}
-
 	public static Object activateWithCallAndDataFixed(
 			final IokeObject self, IokeObject context, IokeObject message,
 			Object on, Object call, Map<String, Object> data)
@@ -210,42 +174,21 @@ public class DefaultMethod extends Method implements AssociatedCode {
 			return null;
 		}
 
-		IokeObject c = context.runtime.locals.mimic(message, context);
-		c.setCell("self", on);
-		c.setCell("@", on);
-
-		c.registerMethod(c.runtime.newNativeMethod(
-				"will return the currently executing method receiver",
-				new NativeMethod.WithNoArguments("@@") {
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						getArguments().getEvaluatedArguments(context,
-								message, on, new ArrayList<>(),
-								new HashMap<String, Object>());
-						return self;
-					}
-				}));
-
-		c.setCell("currentMessage", message);
-		c.setCell("surroundingContext", context);
+		IokeObject c = ActivationFrame.create(self, context, message, on,
+				dm.frameCells, false);
 		for (Map.Entry<String, Object> d : data.entrySet()) {
 			String s = d.getKey();
 			c.setCell(s.substring(0, s.length() - 1), d.getValue());
 		}
 
-		c.setCell("super",
-				createSuperCallFor(self, context, message, on, dm.name));
-
 		dm.arguments.assignArgumentValues(c, context, message, on,
 				((Call) IokeObject.data(call)));
 
 		try {
-			return context.runtime.interpreter.evaluate(dm.code, c, on, c);
+			return dm.evaluateCode(c, on);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				return e.getValue();
+				return e.take();
 			}
 			throw e;
 		}
@@ -271,36 +214,15 @@ public class DefaultMethod extends Method implements AssociatedCode {
 			return null;
 		}
 
-		IokeObject c = context.runtime.locals.mimic(message, context);
-		c.setCell("self", on);
-		c.setCell("@", on);
-
-		c.registerMethod(c.runtime.newNativeMethod(
-				"will return the currently executing method receiver",
-				new NativeMethod.WithNoArguments("@@") {
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						getArguments().getEvaluatedArguments(context,
-								message, on, new ArrayList<>(),
-								new HashMap<String, Object>());
-						return self;
-					}
-				}));
-
-		c.setCell("currentMessage", message);
-		c.setCell("surroundingContext", context);
-		c.setCell("super",
-				createSuperCallFor(self, context, message, on, dm.name));
-
+		IokeObject c = ActivationFrame.create(self, context, message, on,
+				dm.frameCells, false);
 		dm.arguments.assignArgumentValues(c, context, message, on);
 
 		try {
-			return context.runtime.interpreter.evaluate(dm.code, c, on, c);
+			return dm.evaluateCode(c, on);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				return e.getValue();
+				return e.take();
 			}
 			throw e;
 		}
@@ -326,41 +248,20 @@ public class DefaultMethod extends Method implements AssociatedCode {
 			return null;
 		}
 
-		IokeObject c = context.runtime.locals.mimic(message, context);
-		c.setCell("self", on);
-		c.setCell("@", on);
-
-		c.registerMethod(c.runtime.newNativeMethod(
-				"will return the currently executing method receiver",
-				new NativeMethod.WithNoArguments("@@") {
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						getArguments().getEvaluatedArguments(context,
-								message, on, new ArrayList<>(),
-								new HashMap<String, Object>());
-						return self;
-					}
-				}));
-
-		c.setCell("currentMessage", message);
-		c.setCell("surroundingContext", context);
+		IokeObject c = ActivationFrame.create(self, context, message, on,
+				dm.frameCells, false);
 		for (Map.Entry<String, Object> d : data.entrySet()) {
 			String s = d.getKey();
 			c.setCell(s.substring(0, s.length() - 1), d.getValue());
 		}
 
-		c.setCell("super",
-				createSuperCallFor(self, context, message, on, dm.name));
-
 		dm.arguments.assignArgumentValues(c, context, message, on);
 
 		try {
-			return context.runtime.interpreter.evaluate(dm.code, c, on, c);
+			return dm.evaluateCode(c, on);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				return e.getValue();
+				return e.take();
 			}
 			throw e;
 		}
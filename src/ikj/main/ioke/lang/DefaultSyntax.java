@@ -313,7 +313,7 @@ public class DefaultSyntax extends IokeData
 			result = context.runtime.interpreter.evaluate(code, c, on, c);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				result = e.getValue();
+				result = e.take();
 			} else {
 				throw e;
 			}
@@ -373,7 +373,7 @@ public class DefaultSyntax extends IokeData
 			result = context.runtime.interpreter.evaluate(code, c, on, c);
 		} catch (ControlFlow.Return e) {
 			if (e.context == c) {
-				result = e.getValue();
+				result = e.take();
 			} else {
 				throw e;
 			}
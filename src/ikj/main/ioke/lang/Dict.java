@@ -211,11 +211,9 @@ public class Dict extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("empty?",
 						runtime.dict) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return Dict.getMap(on).isEmpty()
 								? context.runtime._true
 								: context.runtime._false;
@@ -276,11 +274,9 @@ public class Dict extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("size",
 						runtime.dict) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return runtime.newNumber(Dict.getMap(on).size());
 					}
 				}));
@@ -290,11 +286,9 @@ public class Dict extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						runtime.dict) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText(Dict.getInspect(on));
 					}
 				}));
@@ -304,11 +298,9 @@ public class Dict extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						runtime.dict) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText(Dict.getNotice(on));
 					}
 				}));
@@ -318,11 +310,9 @@ public class Dict extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("keys",
 						runtime.dict) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newSet(Dict.getKeys(on));
 					}
 				}));
@@ -332,11 +322,9 @@ public class Dict extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("seq",
 						runtime.dict) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						IokeObject obj = method.runtime.keyValueIteratorSequence
 								.allocateCopy(null, null);
 						obj.singleMimicsWithoutCheck(
@@ -363,6 +351,11 @@ public class Dict extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return Dict.class;
+					}
+
 					@Override
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
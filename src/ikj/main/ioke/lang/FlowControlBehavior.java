@@ -19,6 +19,7 @@ public class FlowControlBehavior {
 	public static void init(IokeObject obj) throws ControlFlow {
 		final Runtime runtime = obj.runtime;
 		obj.setKind("DefaultBehavior FlowControl");
+		final LoopBody.Builtins builtins = new LoopBody.Builtins();
 
 		obj.registerMethod(runtime.newNativeMethod(
 				"takes zero or more place and value pairs and one code argument, establishes a new lexical scope and binds the places to the values given. if the place is a simple name, it will just be created as a new binding in the lexical scope. if it is a place specification, that place will be temporarily changed - but guaranteed to be changed back after the lexical scope is finished. the let-form returns the final result of the code argument.",
@@ -214,12 +215,17 @@ public class FlowControlBehavior {
 
 		obj.registerMethod(runtime.newNativeMethod(
 				"breaks out of the enclosing context. if an argument is supplied, this will be returned as the result of the object breaking out of",
-				new NativeMethod("break") {
+				builtins.breakMethod = new NativeMethod("break") {
 					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
 							.builder()
 							.withOptionalPositional("value", "nil")
 							.getArguments();
 
+					// breaking without a value is common enough to not
+					// allocate a new one every time
+					private final ControlFlow.Break NIL_BREAK = new ControlFlow.Break(
+							runtime.nil);
+
 					@Override
 					public DefaultArgumentsDefinition getArguments() {
 						return ARGUMENTS;
@@ -229,17 +235,17 @@ public class FlowControlBehavior {
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
 							Object on) throws ControlFlow {
+						if (message.getArgumentCount() == 0) {
+							getArguments().checkArgumentCount(context,
+									message, on);
+							throw NIL_BREAK;
+						}
+
 						List<Object> args = new ArrayList<>();
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
-
-						Object value = runtime.nil;
-						if (message.getArgumentCount() > 0) {
-							value = Interpreter.getEvaluatedArgument(
-									message, 0, context);
-						}
-						throw new ControlFlow.Break(value);
+						throw ControlFlow.Break.of(args.get(0));
 					}
 				}));
 
@@ -273,22 +279,22 @@ public class FlowControlBehavior {
 							ctx = ((LexicalContext) ctx.data).surroundingContext;
 						}
 
-						throw new ControlFlow.Return(value, ctx);
+						throw ControlFlow.Return.of(value, ctx);
 					}
 				}));
 
 		obj.registerMethod(runtime.newNativeMethod(
 				"breaks out of the enclosing context and continues from that point again.",
-				new NativeMethod.WithNoArguments("continue") {
+				builtins.continueMethod = new NativeMethod.WithNoArguments(
+						"continue") {
 					@Override
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
 							Object on) throws ControlFlow {
-						getArguments().getEvaluatedArguments(context,
-								message, on, new ArrayList<>(),
-								new HashMap<String, Object>());
+						getArguments().checkArgumentCount(context, message,
+								on);
 
-						throw new ControlFlow.Continue();
+						throw ControlFlow.Continue.INSTANCE;
 					}
 				}));
 
@@ -317,23 +323,35 @@ public class FlowControlBehavior {
 						}
 
 						boolean body = message.getArgumentCount() > 1;
+						LoopBody loop = body
+								? LoopBody.of(message, 1, context, builtins)
+								: null;
+						Object[] broken = new Object[1];
 						Object ret = runtime.nil;
 						boolean doAgain = false;
 						do {
 							doAgain = false;
 							try {
 								while (!IokeObject.isTrue(
-										Interpreter.getEvaluatedArgument(
+										Interpreter.getEvaluatedLoopArgument(
 												message, 0, context))) {
-									if (body) {
+									if (loop != null) {
+										Object result = loop.iterate(context,
+												broken);
+										if (result == LoopBody.BREAK) {
+											return broken[0];
+										} else if (result != LoopBody.CONTINUE) {
+											ret = result;
+										}
+									} else if (body) {
 										ret = Interpreter
-												.getEvaluatedArgument(
+												.getEvaluatedLoopArgument(
 														message, 1,
 														context);
 									}
 								}
 							} catch (ControlFlow.Break e) {
-								ret = e.getValue();
+								ret = e.take();
 							} catch (ControlFlow.Continue e) {
 								doAgain = true;
 							}
@@ -368,23 +386,35 @@ public class FlowControlBehavior {
 						}
 
 						boolean body = message.getArgumentCount() > 1;
+						LoopBody loop = body
+								? LoopBody.of(message, 1, context, builtins)
+								: null;
+						Object[] broken = new Object[1];
 						Object ret = runtime.nil;
 						boolean doAgain = false;
 						do {
 							doAgain = false;
 							try {
 								while (IokeObject.isTrue(
-										Interpreter.getEvaluatedArgument(
+										Interpreter.getEvaluatedLoopArgument(
 												message, 0, context))) {
-									if (body) {
+									if (loop != null) {
+										Object result = loop.iterate(context,
+												broken);
+										if (result == LoopBody.BREAK) {
+											return broken[0];
+										} else if (result != LoopBody.CONTINUE) {
+											ret = result;
+										}
+									} else if (body) {
 										ret = Interpreter
-												.getEvaluatedArgument(
+												.getEvaluatedLoopArgument(
 														message, 1,
 														context);
 									}
 								}
 							} catch (ControlFlow.Break e) {
-								ret = e.getValue();
+								ret = e.take();
 							} catch (ControlFlow.Continue e) {
 								doAgain = true;
 							}
@@ -414,14 +444,23 @@ public class FlowControlBehavior {
 								on);
 
 						if (message.getArgumentCount() > 0) {
+							LoopBody loop = LoopBody.of(message, 0, context,
+									builtins);
+							Object[] broken = new Object[1];
 							while (true) {
 								try {
+									if (loop != null) {
+										while (loop.iterate(context,
+												broken) != LoopBody.BREAK) {
+										}
+										return broken[0];
+									}
 									while (true) {
-										Interpreter.getEvaluatedArgument(
+										Interpreter.getEvaluatedLoopArgument(
 												message, 0, context);
 									}
 								} catch (ControlFlow.Break e) {
-									return e.getValue();
+									return e.take();
 								} catch (ControlFlow.Continue e) {
 								}
 							}
@@ -433,7 +472,7 @@ public class FlowControlBehavior {
 
 		obj.registerMethod(runtime.newNativeMethod(
 				"evaluates the first arguments, and then evaluates the second argument if the result was true, otherwise the last argument. returns the result of the call, or the result if it's not true.",
-				new NativeMethod("if") {
+				builtins.ifMethod = new NativeMethod("if") {
 					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
 							.builder().withRequiredPositional("condition")
 							.withOptionalPositionalUnevaluated("then")
@@ -479,7 +518,7 @@ public class FlowControlBehavior {
 
 		obj.registerMethod(runtime.newNativeMethod(
 				"evaluates the first arguments, and then evaluates the second argument if the result was false, otherwise the last argument. returns the result of the call, or the result if it's true.",
-				new NativeMethod("unless") {
+				builtins.unlessMethod = new NativeMethod("unless") {
 					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
 							.builder().withRequiredPositional("condition")
 							.withOptionalPositionalUnevaluated("then")
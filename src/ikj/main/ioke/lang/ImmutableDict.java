@@ -0,0 +1,438 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.List;
+import java.util.Map;
+
+import ioke.lang.exceptions.ControlFlow;
+import ioke.lang.util.PersistentHashMap;
+
+/**
+ * A dictionary that can't be changed. Adding, replacing or removing a
+ * key returns a new ImmutableDict that shares everything but the path
+ * to that key with the old one. Just like for ImmutableList, the hash is
+ * computed once and then kept.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class ImmutableDict extends IokeData {
+	private final PersistentHashMap<Object, Object>	map;
+	private volatile boolean						hashed;
+	private int										hash;
+
+	public ImmutableDict() {
+		this(PersistentHashMap.empty());
+	}
+
+	public ImmutableDict(PersistentHashMap<Object, Object> map) {
+		this.map = map;
+	}
+
+	public static PersistentHashMap<Object, Object> getMap(Object on) {
+		return ((ImmutableDict) IokeObject.data(on)).map;
+	}
+
+	@Override
+	public void init(IokeObject obj) throws ControlFlow {
+		final Runtime runtime = obj.runtime;
+		obj.setKind("ImmutableDict");
+		obj.mimics(IokeObject
+				.as(runtime.mixins.getCell(null, null, "Sequenced"), null),
+				runtime.nul, runtime.nul);
+		obj.mimicsWithoutCheck(runtime.origin);
+		runtime.iokeGround.registerCell("ImmutableDict", obj);
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a dict and returns a new immutable dict with the same keys and values",
+				new TypeCheckingNativeMethod("from") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableDict)
+							.withRequiredPositional("dict")
+							.whichMustMimic(runtime.dict).getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object dict) throws ControlFlow {
+						return context.runtime.newImmutableDict(
+								PersistentHashMap.from(Dict.getMap(dict)));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a hash for the dictionary",
+				new TypeCheckingNativeMethod.WithNoArguments("hash",
+						runtime.immutableDict) {
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return ImmutableDict.class;
+					}
+
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime.newNumber(
+								((ImmutableDict) IokeObject.data(on))
+										.nativeHashCode(
+												IokeObject.as(on, context)));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if the left hand side dictionary is equal to the right hand side dictionary.",
+				new TypeCheckingNativeMethod("==") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableDict)
+							.withRequiredPositional("other").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return ImmutableDict.class;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object other) throws ControlFlow {
+						return ((ImmutableDict) IokeObject.data(on))
+								.nativeEquals(IokeObject.as(on, context),
+										other) ? context.runtime._true
+												: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns the number of pairs contained in this dictionary.",
+				new TypeCheckingNativeMethod.WithNoArguments("size",
+						runtime.immutableDict) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime.newNumber(getMap(on).size());
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if this dictionary is empty, false otherwise",
+				new TypeCheckingNativeMethod.WithNoArguments("empty?",
+						runtime.immutableDict) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return getMap(on).isEmpty() ? context.runtime._true
+								: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes one argument, the key of the element to return. if the key doesn't map to anything in the dict, returns nil.",
+				new TypeCheckingNativeMethod("at") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableDict)
+							.withRequiredPositional("key").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object key) throws ControlFlow {
+						Object value = getMap(on).get(key);
+						return value == null ? context.runtime.nil : value;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes one argument, the key to check if it is in the dict.",
+				new TypeCheckingNativeMethod("key?") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableDict)
+							.withRequiredPositional("key").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object key) throws ControlFlow {
+						return getMap(on).containsKey(key)
+								? context.runtime._true
+								: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a key and a value, and returns a new dictionary where the key maps to the value",
+				new TypeCheckingNativeMethod("put") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableDict)
+							.withRequiredPositional("key")
+							.withRequiredPositional("value").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate2(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object key, Object value)
+							throws ControlFlow {
+						PersistentHashMap<Object, Object> map = getMap(on);
+						PersistentHashMap<Object, Object> result = map
+								.put(key, value);
+						return result == map ? on
+								: context.runtime.newImmutableDict(result);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a key, and returns a new dictionary without that key",
+				new TypeCheckingNativeMethod("remove") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableDict)
+							.withRequiredPositional("key").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object key) throws ControlFlow {
+						PersistentHashMap<Object, Object> map = getMap(on);
+						PersistentHashMap<Object, Object> result = map
+								.remove(key);
+						return result == map ? on
+								: context.runtime.newImmutableDict(result);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new dictionary from the arguments provided, combined with the keys and values in the receiver. the arguments provided will override those in the receiver. the rules for arguments are the same as for Dict merge, and both dicts and immutable dicts can be provided.",
+				new TypeCheckingNativeMethod("merge") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableDict)
+							.withRest("pairsAndDicts")
+							.withKeywordRest("keywordPairs").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args, Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						PersistentHashMap<Object, Object> map = getMap(on);
+						for (Object o : args) {
+							IokeData data = IokeObject.data(o);
+							if (data instanceof ImmutableDict) {
+								for (Map.Entry<Object, Object> e : getMap(
+										o)) {
+									map = map.put(e.getKey(), e.getValue());
+								}
+							} else if (data instanceof Dict) {
+								for (Map.Entry<Object, Object> e : Dict
+										.getMap(o).entrySet()) {
+									map = map.put(e.getKey(), e.getValue());
+								}
+							} else if (data instanceof Pair) {
+								map = map.put(Pair.getFirst(o),
+										Pair.getSecond(o));
+							} else {
+								map = map.put(o, context.runtime.nil);
+							}
+						}
+						for (Map.Entry<String, Object> entry : keywords
+								.entrySet()) {
+							String s = entry.getKey();
+							Object value = entry.getValue();
+							if (value == null) {
+								value = context.runtime.nil;
+							}
+							map = map.put(context.runtime.getSymbol(
+									s.substring(0, s.length() - 1)), value);
+						}
+						return context.runtime.newImmutableDict(map);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns all the keys of this dictionary as an immutable set",
+				new TypeCheckingNativeMethod.WithNoArguments("keys",
+						runtime.immutableDict) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						PersistentHashMap<Object, Object> keys = PersistentHashMap
+								.empty();
+						for (Map.Entry<Object, Object> e : getMap(on)) {
+							keys = keys.put(e.getKey(), e.getKey());
+						}
+						return context.runtime.newImmutableSet(keys);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new mutable dict with the keys and values of this dictionary",
+				new TypeCheckingNativeMethod.WithNoArguments("asDict",
+						runtime.immutableDict) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime.newDict(getMap(on).toMap());
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new sequence to iterate over this dictionary",
+				new TypeCheckingNativeMethod.WithNoArguments("seq",
+						runtime.immutableDict) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						IokeObject obj = method.runtime.keyValueIteratorSequence
+								.allocateCopy(null, null);
+						obj.singleMimicsWithoutCheck(
+								method.runtime.keyValueIteratorSequence);
+						obj.setData(new Sequence.KeyValueIteratorSequence(
+								getMap(on).iterator()));
+						return obj;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"Returns a text inspection of the object",
+				new TypeCheckingNativeMethod.WithNoArguments("inspect",
+						runtime.immutableDict) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return method.runtime.newText(
+								((ImmutableDict) IokeObject.data(on))
+										.describe(true));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"Returns a brief text inspection of the object",
+				new TypeCheckingNativeMethod.WithNoArguments("notice",
+						runtime.immutableDict) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return method.runtime.newText(
+								((ImmutableDict) IokeObject.data(on))
+										.describe(false));
+					}
+				}));
+	}
+
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		if (!(other instanceof IokeObject)
+				|| !(IokeObject.data(other) instanceof ImmutableDict)) {
+			return false;
+		}
+		ImmutableDict o = (ImmutableDict) IokeObject.data(other);
+		if (o.map == map) {
+			return true;
+		}
+		if (o.map.size() != map.size()
+				|| (hashed && o.hashed && hash != o.hash)) {
+			return false;
+		}
+		for (Map.Entry<Object, Object> e : map) {
+			Object value = o.map.get(e.getKey());
+			if (value == null || !e.getValue().equals(value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	int nativeHashCode(IokeObject self) {
+		if (!hashed) {
+			int h = 0;
+			for (Map.Entry<Object, Object> e : map) {
+				h += e.getKey().hashCode() ^ e.getValue().hashCode();
+			}
+			hash = h;
+			hashed = true;
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return map.toMap().toString();
+	}
+
+	@Override
+	public String toString(IokeObject obj) {
+		return toString();
+	}
+
+	private String describe(boolean inspect) throws ControlFlow {
+		StringBuilder sb = new StringBuilder();
+		sb.append("ImmutableDict from({");
+		String sep = "";
+		for (Map.Entry<Object, Object> e : map) {
+			sb.append(sep);
+			Object key = e.getKey();
+			if ((IokeObject.data(key) instanceof Symbol)
+					&& Symbol.onlyGoodChars(key)) {
+				sb.append(Symbol.getText(key)).append(": ");
+			} else {
+				sb.append(inspect ? IokeObject.inspect(key)
+						: IokeObject.notice(key)).append(" => ");
+			}
+			sb.append(inspect ? IokeObject.inspect(e.getValue())
+					: IokeObject.notice(e.getValue()));
+			sep = ", ";
+		}
+		sb.append("})");
+		return sb.toString();
+	}
+}// ImmutableDict
@@ -0,0 +1,426 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.Iterator;
+
+import ioke.lang.exceptions.ControlFlow;
+import ioke.lang.util.PersistentVector;
+
+/**
+ * A list that can't be changed. All the operations that would change a
+ * List instead return a new ImmutableList, which shares most of its
+ * structure with the old one, so getting a slightly modified version of
+ * a large list is cheap. The hash is computed the first time it's asked
+ * for and then kept, which means it's only reliable as long as the
+ * elements don't change either.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class ImmutableList extends IokeData {
+	private final PersistentVector<Object>	vector;
+	private volatile boolean				hashed;
+	private int								hash;
+
+	public ImmutableList() {
+		this(PersistentVector.empty());
+	}
+
+	public ImmutableList(PersistentVector<Object> vector) {
+		this.vector = vector;
+	}
+
+	public static PersistentVector<Object> getVector(Object on) {
+		return ((ImmutableList) IokeObject.data(on)).vector;
+	}
+
+	@Override
+	public void init(IokeObject obj) throws ControlFlow {
+		final Runtime runtime = obj.runtime;
+		obj.setKind("ImmutableList");
+		obj.mimics(IokeObject
+				.as(runtime.mixins.getCell(null, null, "Sequenced"), null),
+				runtime.nul, runtime.nul);
+		obj.mimicsWithoutCheck(runtime.origin);
+		runtime.iokeGround.registerCell("ImmutableList", obj);
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a list and returns a new immutable list with the same elements",
+				new TypeCheckingNativeMethod("from") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableList)
+							.withRequiredPositional("list")
+							.whichMustMimic(runtime.list).getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object list) throws ControlFlow {
+						return context.runtime.newImmutableList(
+								PersistentVector.from(IokeList.getList(list)));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a hash for the list",
+				new TypeCheckingNativeMethod.WithNoArguments("hash",
+						runtime.immutableList) {
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return ImmutableList.class;
+					}
+
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime.newNumber(
+								((ImmutableList) IokeObject.data(on))
+										.nativeHashCode(
+												IokeObject.as(on, context)));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if the left hand side list is equal to the right hand side list.",
+				new TypeCheckingNativeMethod("==") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableList)
+							.withRequiredPositional("other").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return ImmutableList.class;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object other) throws ControlFlow {
+						return ((ImmutableList) IokeObject.data(on))
+								.nativeEquals(IokeObject.as(on, context),
+										other) ? context.runtime._true
+												: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns the number of elements in this list",
+				new TypeCheckingNativeMethod.WithNoArguments("size",
+						runtime.immutableList) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime
+								.newNumber(getVector(on).size());
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if this list is empty, false otherwise",
+				new TypeCheckingNativeMethod.WithNoArguments("empty?",
+						runtime.immutableList) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return getVector(on).isEmpty()
+								? context.runtime._true
+								: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes one argument, the index of the element to be returned. can be negative, and will in that case return indexed from the back of the list. if the index is outside the bounds of the list, will return nil.",
+				new TypeCheckingNativeMethod("at") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableList)
+							.withRequiredPositional("index")
+							.whichMustMimic(runtime.number).getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
+						PersistentVector<Object> vector = getVector(on);
+						int index = Number.extractInt(arg, message,
+								context);
+						if (index < 0) {
+							index = vector.size() + index;
+						}
+						if (index < 0 || index >= vector.size()) {
+							return context.runtime.nil;
+						}
+						return vector.get(index);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new list with the argument added at the end of this list",
+				new TypeCheckingNativeMethod("append") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableList)
+							.withRequiredPositional("value").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object value) throws ControlFlow {
+						return context.runtime.newImmutableList(
+								getVector(on).append(value));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes an index and a value, and returns a new list where the element at that index is replaced with the value. the index can be negative to index from the end of the list, and it can be the size of the list, which adds the value at the end. any other index signals a Condition Error Index.",
+				new TypeCheckingNativeMethod("put") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableList)
+							.withRequiredPositional("index")
+							.whichMustMimic(runtime.number)
+							.withRequiredPositional("value").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate2(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg, Object value)
+							throws ControlFlow {
+						PersistentVector<Object> vector = getVector(on);
+						int index = Number.extractInt(arg, message,
+								context);
+						if (index < 0) {
+							index = vector.size() + index;
+						}
+						if (index < 0 || index > vector.size()) {
+							signalIndex(on, index, message, context);
+							return context.runtime.nil;
+						}
+						return context.runtime
+								.newImmutableList(vector.set(index, value));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new list without the last element of this list. returns this list if it's empty.",
+				new TypeCheckingNativeMethod.WithNoArguments("removeLast",
+						runtime.immutableList) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						PersistentVector<Object> vector = getVector(on);
+						if (vector.isEmpty()) {
+							return on;
+						}
+						return context.runtime
+								.newImmutableList(vector.removeLast());
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new list that contains the receivers elements and the elements of the list or immutable list sent in as the argument.",
+				new TypeCheckingNativeMethod("+") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableList)
+							.withRequiredPositional("otherList")
+							.whichMustMimic(runtime.immutableList)
+							.or(runtime.list).getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object other) throws ControlFlow {
+						PersistentVector<Object> vector = getVector(on);
+						Iterable<Object> others = IokeObject
+								.data(other) instanceof IokeList
+										? IokeList.getList(other)
+										: getVector(other);
+						for (Object o : others) {
+							vector = vector.append(o);
+						}
+						return context.runtime.newImmutableList(vector);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new mutable list with the elements of this list",
+				new TypeCheckingNativeMethod.WithNoArguments("asList",
+						runtime.immutableList) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime
+								.newList(getVector(on).toList());
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new sequence to iterate over this list",
+				new TypeCheckingNativeMethod.WithNoArguments("seq",
+						runtime.immutableList) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						IokeObject obj = method.runtime.iteratorSequence
+								.allocateCopy(null, null);
+						obj.singleMimicsWithoutCheck(
+								method.runtime.iteratorSequence);
+						obj.setData(new Sequence.IteratorSequence(
+								getVector(on).iterator()));
+						return obj;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"Returns a text inspection of the object",
+				new TypeCheckingNativeMethod.WithNoArguments("inspect",
+						runtime.immutableList) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return method.runtime.newText(
+								((ImmutableList) IokeObject.data(on))
+										.inspect(on));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"Returns a brief text inspection of the object",
+				new TypeCheckingNativeMethod.WithNoArguments("notice",
+						runtime.immutableList) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return method.runtime.newText(
+								((ImmutableList) IokeObject.data(on))
+										.notice(on));
+					}
+				}));
+	}
+
+	static void signalIndex(Object on, int index, IokeObject message,
+			IokeObject context) throws ControlFlow {
+		IokeObject condition = IokeObject.as(IokeObject.getCellChain(
+				context.runtime.condition, message, context, "Error",
+				"Index"), context).mimic(message, context);
+		condition.setCell("message", message);
+		condition.setCell("context", context);
+		condition.setCell("receiver", on);
+		condition.setCell("index", context.runtime.newNumber(index));
+		context.runtime.errorCondition(condition);
+	}
+
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		if (!(other instanceof IokeObject)
+				|| !(IokeObject.data(other) instanceof ImmutableList)) {
+			return false;
+		}
+		ImmutableList o = (ImmutableList) IokeObject.data(other);
+		if (o.vector == vector) {
+			return true;
+		}
+		if (o.vector.size() != vector.size()
+				|| (hashed && o.hashed && hash != o.hash)) {
+			return false;
+		}
+		Iterator<Object> i1 = vector.iterator();
+		Iterator<Object> i2 = o.vector.iterator();
+		while (i1.hasNext()) {
+			if (!i1.next().equals(i2.next())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	int nativeHashCode(IokeObject self) {
+		if (!hashed) {
+			int h = 1;
+			for (Object o : vector) {
+				h = 31 * h + o.hashCode();
+			}
+			hash = h;
+			hashed = true;
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return vector.toList().toString();
+	}
+
+	@Override
+	public String toString(IokeObject obj) {
+		return toString();
+	}
+
+	public String inspect(Object obj) throws ControlFlow {
+		StringBuilder sb = new StringBuilder();
+		sb.append("ImmutableList from([");
+		String sep = "";
+		for (Object o : vector) {
+			sb.append(sep).append(IokeObject.inspect(o));
+			sep = ", ";
+		}
+		sb.append("])");
+		return sb.toString();
+	}
+
+	public String notice(Object obj) throws ControlFlow {
+		StringBuilder sb = new StringBuilder();
+		sb.append("ImmutableList from([");
+		String sep = "";
+		for (Object o : vector) {
+			sb.append(sep).append(IokeObject.notice(o));
+			sep = ", ";
+		}
+		sb.append("])");
+		return sb.toString();
+	}
+}// ImmutableList
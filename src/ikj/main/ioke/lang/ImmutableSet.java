@@ -0,0 +1,404 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ioke.lang.exceptions.ControlFlow;
+import ioke.lang.util.PersistentHashMap;
+
+/**
+ * A set that can't be changed. It's kept as a persistent hash map where
+ * every element maps to itself, so adding or removing an element returns
+ * a new ImmutableSet sharing most of its structure with the old one.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class ImmutableSet extends IokeData {
+	private final PersistentHashMap<Object, Object>	map;
+	private volatile boolean						hashed;
+	private int										hash;
+
+	public ImmutableSet() {
+		this(PersistentHashMap.empty());
+	}
+
+	public ImmutableSet(PersistentHashMap<Object, Object> map) {
+		this.map = map;
+	}
+
+	public static PersistentHashMap<Object, Object> getMap(Object on) {
+		return ((ImmutableSet) IokeObject.data(on)).map;
+	}
+
+	private static Iterator<Object> elements(Object on) {
+		final Iterator<Map.Entry<Object, Object>> entries = getMap(on)
+				.iterator();
+		return new Iterator<Object>() {
+			@Override
+			public boolean hasNext() {
+				return entries.hasNext();
+			}
+
+			@Override
+			public Object next() {
+				return entries.next().getKey();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private static List<Object> elementList(Object on) {
+		List<Object> result = new ArrayList<>(getMap(on).size());
+		for (Map.Entry<Object, Object> e : getMap(on)) {
+			result.add(e.getKey());
+		}
+		return result;
+	}
+
+	@Override
+	public void init(IokeObject obj) throws ControlFlow {
+		final Runtime runtime = obj.runtime;
+		obj.setKind("ImmutableSet");
+		obj.mimics(IokeObject
+				.as(runtime.mixins.getCell(null, null, "Sequenced"), null),
+				runtime.nul, runtime.nul);
+		obj.mimicsWithoutCheck(runtime.origin);
+		runtime.iokeGround.registerCell("ImmutableSet", obj);
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a set and returns a new immutable set with the same elements",
+				new TypeCheckingNativeMethod("from") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableSet)
+							.withRequiredPositional("set")
+							.whichMustMimic(runtime.set).getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object set) throws ControlFlow {
+						PersistentHashMap<Object, Object> map = PersistentHashMap
+								.empty();
+						for (Object o : ((IokeSet) IokeObject.data(set))
+								.getSet()) {
+							map = map.put(o, o);
+						}
+						return context.runtime.newImmutableSet(map);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a hash for the set",
+				new TypeCheckingNativeMethod.WithNoArguments("hash",
+						runtime.immutableSet) {
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return ImmutableSet.class;
+					}
+
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime.newNumber(
+								((ImmutableSet) IokeObject.data(on))
+										.nativeHashCode(
+												IokeObject.as(on, context)));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if the left hand side set is equal to the right hand side set.",
+				new TypeCheckingNativeMethod("==") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableSet)
+							.withRequiredPositional("other").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return ImmutableSet.class;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object other) throws ControlFlow {
+						return ((ImmutableSet) IokeObject.data(on))
+								.nativeEquals(IokeObject.as(on, context),
+										other) ? context.runtime._true
+												: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns the number of elements in this set.",
+				new TypeCheckingNativeMethod.WithNoArguments("size",
+						runtime.immutableSet) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime.newNumber(getMap(on).size());
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if this set is empty, false otherwise",
+				new TypeCheckingNativeMethod.WithNoArguments("empty?",
+						runtime.immutableSet) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return getMap(on).isEmpty() ? context.runtime._true
+								: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if the argument is in the set",
+				new TypeCheckingNativeMethod("include?") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableSet)
+							.withRequiredPositional("object").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object object) throws ControlFlow {
+						return getMap(on).containsKey(object)
+								? context.runtime._true
+								: context.runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new set that also includes the argument",
+				new TypeCheckingNativeMethod("add") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableSet)
+							.withRequiredPositional("value").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object value) throws ControlFlow {
+						PersistentHashMap<Object, Object> map = getMap(on);
+						if (map.containsKey(value)) {
+							return on;
+						}
+						return context.runtime
+								.newImmutableSet(map.put(value, value));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new set without the argument",
+				new TypeCheckingNativeMethod("remove") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableSet)
+							.withRequiredPositional("value").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object value) throws ControlFlow {
+						PersistentHashMap<Object, Object> map = getMap(on);
+						PersistentHashMap<Object, Object> result = map
+								.remove(value);
+						return result == map ? on
+								: context.runtime.newImmutableSet(result);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new set that contains the receivers elements and the elements of the set sent in as the argument.",
+				new TypeCheckingNativeMethod("+") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder()
+							.receiverMustMimic(runtime.immutableSet)
+							.withRequiredPositional("otherSet")
+							.whichMustMimic(runtime.immutableSet)
+							.or(runtime.set).getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object other) throws ControlFlow {
+						PersistentHashMap<Object, Object> map = getMap(on);
+						Iterable<Object> others = IokeObject
+								.data(other) instanceof IokeSet
+										? ((IokeSet) IokeObject.data(other))
+												.getSet()
+										: elementList(other);
+						for (Object o : others) {
+							if (!map.containsKey(o)) {
+								map = map.put(o, o);
+							}
+						}
+						return context.runtime.newImmutableSet(map);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new mutable set with the elements of this set",
+				new TypeCheckingNativeMethod.WithNoArguments("asSet",
+						runtime.immutableSet) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return context.runtime.newSet(elementList(on));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new sequence to iterate over this set",
+				new TypeCheckingNativeMethod.WithNoArguments("seq",
+						runtime.immutableSet) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						IokeObject obj = method.runtime.iteratorSequence
+								.allocateCopy(null, null);
+						obj.singleMimicsWithoutCheck(
+								method.runtime.iteratorSequence);
+						obj.setData(new Sequence.IteratorSequence(
+								elements(on)));
+						return obj;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"Returns a text inspection of the object",
+				new TypeCheckingNativeMethod.WithNoArguments("inspect",
+						runtime.immutableSet) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return method.runtime.newText(
+								((ImmutableSet) IokeObject.data(on))
+										.describe(true));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"Returns a brief text inspection of the object",
+				new TypeCheckingNativeMethod.WithNoArguments("notice",
+						runtime.immutableSet) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return method.runtime.newText(
+								((ImmutableSet) IokeObject.data(on))
+										.describe(false));
+					}
+				}));
+	}
+
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		if (!(other instanceof IokeObject)
+				|| !(IokeObject.data(other) instanceof ImmutableSet)) {
+			return false;
+		}
+		ImmutableSet o = (ImmutableSet) IokeObject.data(other);
+		if (o.map == map) {
+			return true;
+		}
+		if (o.map.size() != map.size()
+				|| (hashed && o.hashed && hash != o.hash)) {
+			return false;
+		}
+		for (Map.Entry<Object, Object> e : map) {
+			if (!o.map.containsKey(e.getKey())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	int nativeHashCode(IokeObject self) {
+		if (!hashed) {
+			int h = 0;
+			for (Map.Entry<Object, Object> e : map) {
+				h += e.getKey().hashCode();
+			}
+			hash = h;
+			hashed = true;
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return map.toMap().keySet().toString();
+	}
+
+	@Override
+	public String toString(IokeObject obj) {
+		return toString();
+	}
+
+	private String describe(boolean inspect) throws ControlFlow {
+		StringBuilder sb = new StringBuilder();
+		sb.append("ImmutableSet from(set(");
+		String sep = "";
+		for (Map.Entry<Object, Object> e : map) {
+			sb.append(sep).append(inspect ? IokeObject.inspect(e.getKey())
+					: IokeObject.notice(e.getKey()));
+			sep = ", ";
+		}
+		sb.append("))");
+		return sb.toString();
+	}
+}// ImmutableSet
@@ -0,0 +1,112 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+/**
+ * A small polymorphic cache of cell lookups, stored on each message
+ * node. An entry is keyed by the shape and the single mimic of the
+ * receiver and the selector looked up, and is only valid as long as the
+ * global body version hasn't changed since it was filled. Since shared
+ * shapes are immutable, a matching shape also proves that the receiver
+ * itself doesn't have the cell.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class InlineCache {
+	static final int		MAX_ENTRIES	= 4;
+
+	final Shape				shape;
+	final IokeObject		mimic;
+	final int				selector;
+	final Object			cell;
+	final int				version;
+
+	private InlineCache(Shape shape, IokeObject mimic, int selector,
+			Object cell, int version) {
+		this.shape = shape;
+		this.mimic = mimic;
+		this.selector = selector;
+		this.cell = cell;
+		this.version = version;
+	}
+
+	/**
+	 * Finds the cell with the given name on the receiver, consulting and
+	 * filling the inline cache on the message if possible. Lexical
+	 * receivers and receivers with more than one mimic always take the
+	 * slow path.
+	 */
+	static Object findCell(IokeObject message, IokeObject on,
+			int selector) {
+		if (on.isLexical()) {
+			return LexicalAddress.findCell(message, on, selector);
+		}
+
+		Body b = on.body;
+		if (b.mimicCount != 1 || !(message.data instanceof Message)) {
+			return IokeObject.findCell(on, selector);
+		}
+
+		Object cell;
+		Shape shape = b.shape();
+		if (shape.dictionary) {
+			if ((cell = b.get(selector)) != null) {
+				return cell;
+			}
+			shape = null;
+		}
+
+		Message m = (Message) message.data;
+		IokeObject mimic = b.mimic;
+		int version = Body.version();
+		InlineCache[] entries = m.inlineCache;
+		if (entries != null) {
+			for (InlineCache e : entries) {
+				if (e.shape == shape && e.mimic == mimic
+						&& e.version == version
+						&& e.selector == selector) {
+					return e.cell;
+				}
+			}
+		}
+
+		if (shape != null && (cell = b.get(selector)) != null) {
+			return cell;
+		}
+
+		cell = IokeObject.findCellObserved(mimic, selector);
+		m.inlineCache = add(entries,
+				new InlineCache(shape, mimic, selector, cell, version));
+		return cell;
+	}
+
+	private static InlineCache[] add(InlineCache[] entries,
+			InlineCache entry) {
+		if (entries == null) {
+			return new InlineCache[] { entry };
+		}
+
+		int live = 0;
+		for (InlineCache e : entries) {
+			if (e.version == entry.version) {
+				live++;
+			}
+		}
+
+		if (live >= MAX_ENTRIES) {
+			return new InlineCache[] { entry };
+		}
+
+		InlineCache[] newEntries = new InlineCache[live + 1];
+		int i = 0;
+		for (InlineCache e : entries) {
+			if (e.version == entry.version) {
+				newEntries[i++] = e;
+			}
+		}
+		newEntries[i] = entry;
+		return newEntries;
+	}
+}// InlineCache
@@ -0,0 +1,193 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.google.common.collect.MapMaker;
+
+import gnu.math.IntNum;
+
+/**
+ * Hands out the Integer objects of a runtime. Integers in a small range
+ * live in an array that is allocated up front and filled on first use.
+ * An entry is only ever set once, through compareAndSet, so every thread
+ * sees the same, fully created object for a value. Larger integers go through a map
+ * with weak values, so an integer is the same object for as long as
+ * anyone refers to it, but nothing outside the small range is kept alive
+ * by the cache itself.
+ *
+ * The hit and miss counters are not synchronized - they are only meant
+ * to give an idea of how well the cache is doing.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public final class IntegerCache {
+	public static final int					DEFAULT_LOW		= -1024;
+	public static final int					DEFAULT_HIGH	= 65535;
+	/**
+	 * The largest number of integers the array can be asked to keep.
+	 */
+	public static final int					MAX_SIZE		= 1 << 22;
+
+	private final Runtime					runtime;
+	private final long						low;
+	private final long						high;
+	private final AtomicReferenceArray<IokeObject>	small;
+	private final ConcurrentMap<Object, IokeObject>	large	= new MapMaker()
+			.weakValues().makeMap();
+
+	private long							hits;
+	private long							misses;
+
+	public IntegerCache(Runtime runtime) {
+		this(runtime, DEFAULT_LOW, DEFAULT_HIGH);
+	}
+
+	/**
+	 * @param low
+	 *            the smallest integer to keep in the array
+	 * @param high
+	 *            the largest integer to keep in the array, at most
+	 *            MAX_SIZE - 1 above low
+	 */
+	public IntegerCache(Runtime runtime, int low, int high) {
+		if (!isValidRange(low, high)) {
+			throw new IllegalArgumentException(
+					"invalid integer cache range: " + low + ".." + high);
+		}
+		this.runtime = runtime;
+		this.low = low;
+		this.high = high;
+		this.small = new AtomicReferenceArray<>(high - low + 1);
+	}
+
+	/**
+	 * Returns true if the array can keep the integers from low to high.
+	 */
+	public static boolean isValidRange(int low, int high) {
+		return low <= high && (long) high - low + 1 <= MAX_SIZE;
+	}
+
+	public IokeObject get(long value) {
+		if (value >= low && value <= high) {
+			int index = (int) (value - low);
+			IokeObject obj = small.get(index);
+			if (obj != null) {
+				hits++;
+				return obj;
+			}
+			misses++;
+			obj = create(Number.integer(value));
+			if (small.compareAndSet(index, null, obj)) {
+				return obj;
+			}
+			return small.get(index);
+		}
+		return getLarge(value, null);
+	}
+
+	public IokeObject get(IntNum value) {
+		if (Number.fitsInLong(value)) {
+			return get(value.longValue());
+		}
+		return getLarge(value, value);
+	}
+
+	/**
+	 * Returns true if the object is the integer kept in the array for
+	 * its value. get will always return that same object, so it is safe
+	 * to keep only the value around and ask for the object again later.
+	 */
+	public boolean isPermanent(Object obj) {
+		if (!(obj instanceof IokeObject)) {
+			return false;
+		}
+		IokeObject o = (IokeObject) obj;
+		if (!(o.data instanceof Number) || !((Number) o.data).isFixnum()) {
+			return false;
+		}
+		long value = ((Number) o.data).getFixnum();
+		return value >= low && value <= high
+				&& small.get((int) (value - low)) == o;
+	}
+
+	/**
+	 * Returns true if the object is an integer that fits in a long, with
+	 * no cells or mimics of its own, so that it behaves like any other
+	 * integer with the same value.
+	 */
+	public boolean isPlain(Object obj) {
+		if (!(obj instanceof IokeObject)) {
+			return false;
+		}
+		IokeObject o = (IokeObject) obj;
+		if (!(o.data instanceof Number) || !((Number) o.data).isFixnum()) {
+			return false;
+		}
+		Body b = o.body;
+		return b.mimicCount == 1 && b.mimic == runtime.integer
+				&& b.count() == 0 && b.hooks == null;
+	}
+
+	/**
+	 * Returns true if the integer kept in the array for the value, if
+	 * any, is plain. The value has to be in the range of the array.
+	 */
+	boolean isPlain(long value) {
+		IokeObject obj = small.get((int) (value - low));
+		return obj == null || isPlain(obj);
+	}
+
+	private IokeObject getLarge(Object key, IntNum big) {
+		IokeObject obj = large.get(key);
+		if (obj != null) {
+			hits++;
+			return obj;
+		}
+		misses++;
+		obj = create(big == null ? Number.integer((Long) key)
+				: Number.integer(big));
+		IokeObject other = large.putIfAbsent(key, obj);
+		return other == null ? obj : other;
+	}
+
+	private IokeObject create(Number data) {
+		IokeObject obj = runtime.integer.allocateCopy(null, null);
+		obj.singleMimicsWithoutCheck(runtime.integer);
+		obj.setData(data);
+		return obj;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the fraction of requests that could be answered from the
+	 * cache, or 0 if there hasn't been any.
+	 */
+	public double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0.0 : ((double) hits) / total;
+	}
+
+	public int getLargeSize() {
+		return large.size();
+	}
+
+	@Override
+	public String toString() {
+		return "IntegerCache(" + low + ".." + high + ", hits=" + hits
+				+ ", misses=" + misses + ", large=" + getLargeSize()
+				+ ", hit rate=" + String.format("%.2f%%", getHitRate() * 100)
+				+ ")";
+	}
+}// IntegerCache
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import ioke.lang.compiler.MessageCompiler;
 import ioke.lang.exceptions.ControlFlow;
 
 /**
@@ -16,6 +17,15 @@ import ioke.lang.exceptions.ControlFlow;
 public class Interpreter {
 	public Object evaluate(IokeObject self, IokeObject ctx, Object ground,
 			Object receiver) throws ControlFlow {
+		return evaluate(self, null, ctx, ground, receiver);
+	}
+
+	/**
+	 * Evaluates the messages from self up to, but not including, stop.
+	 * A null stop evaluates the rest of the chain.
+	 */
+	public Object evaluate(IokeObject self, IokeObject stop, IokeObject ctx,
+			Object ground, Object receiver) throws ControlFlow {
 		Runtime runtime = self.runtime;
 		Object current = receiver;
 		Object tmp = null;
@@ -23,12 +33,12 @@ public class Interpreter {
 		Object lastReal = runtime.getNil();
 		IokeObject m = self;
 		Message msg;
-		while (m != null) {
+		while (m != stop) {
 			msg = (Message) m.data;
 			tmp = msg.cached;
 			if (tmp != null) {
 				lastReal = current = tmp;
-			} else if ((name = msg.name.intern()) == ".") {
+			} else if ((name = msg.name) == ".") {
 				current = ctx;
 			} else if (name.length() > 0 && msg.arguments.size() == 0
 					&& name.charAt(0) == ':') {
@@ -73,6 +83,24 @@ public class Interpreter {
 				context);
 	}
 
+	/**
+	 * Evaluates an argument that is the condition or body of a loop.
+	 * Every call counts as a back edge for the profile of the argument
+	 * when running with a compiler.
+	 */
+	public static Object getEvaluatedLoopArgument(IokeObject self,
+			int index, IokeObject context) throws ControlFlow {
+		Object argument = self.getArguments().get(index);
+		MessageCompiler compiler = context.runtime.compiler;
+		if (compiler == null || !(argument instanceof IokeObject)
+				|| !((IokeObject) argument).isMessage()) {
+			return getEvaluatedArgument(argument, context);
+		}
+
+		return compiler.profileFor((IokeObject) argument).iterate(context,
+				context.getRealContext(), context);
+	}
+
 	public static List<Object> getEvaluatedArguments(IokeObject self,
 			IokeObject context) throws ControlFlow {
 		List<Object> arguments = self.getArguments();
@@ -189,15 +217,35 @@ public class Interpreter {
 				&& message.getArguments().size() > 0);
 	}
 
+	private static int selectorFor(IokeObject message, IokeObject ctx,
+			String name) {
+		if (message.data instanceof Message) {
+			Message msg = (Message) message.data;
+			if (msg.name == name) {
+				return msg.selector;
+			}
+		}
+		return ctx.runtime.selectors.idOf(name);
+	}
+
 	private static Object findCell(IokeObject message, IokeObject ctx,
 			Object obj, String name, IokeObject recv) throws ControlFlow {
 		Runtime runtime = ctx.runtime;
-		Object cell = IokeObject.findCell(recv, name);
+		int selector = selectorFor(message, ctx, name);
+		Object cell = PassCache.find(message, ctx, recv, selector);
+		if (cell == null) {
+			cell = InlineCache.findCell(message, recv, selector);
+		} else if (cell != runtime.nul) {
+			return cell;
+		} else {
+			cell = signalNoSuchCell(message, ctx, obj, name, cell, recv);
+		}
 		Object passed = null;
 		while (cell == runtime.nul) {
-			if (((cell = passed = IokeObject.findCell(recv,
-					"pass")) != runtime.nul)
-					&& isApplicable(passed, message, ctx)) {
+			if (((cell = passed = InlineCache.findCell(message, recv,
+					Selectors.PASS)) != runtime.nul)
+					&& PassCache.isApplicable(message, ctx, recv, selector,
+							passed)) {
 				return cell;
 			}
 			cell = signalNoSuchCell(message, ctx, obj, name, cell, recv);
@@ -212,11 +260,11 @@ public class Interpreter {
 		return getOrActivate(cell, ctx, message, obj);
 	}
 
-	private static boolean isApplicable(Object pass, IokeObject message,
+	static boolean isApplicable(Object pass, IokeObject message,
 			IokeObject ctx) throws ControlFlow {
 		if (pass != null && pass != ctx.runtime.nul
-				&& IokeObject.findCell(IokeObject.as(pass, ctx),
-						"applicable?") != ctx.runtime.nul) {
+				&& InlineCache.findCell(message, IokeObject.as(pass, ctx),
+						Selectors.APPLICABLE) != ctx.runtime.nul) {
 			return IokeObject.isTrue(Interpreter.send(
 					ctx.runtime.isApplicableMessage, ctx, pass,
 					ctx.runtime.createMessage(Message.wrap(message))));
@@ -198,13 +198,26 @@ public abstract class IokeData {
 
 	public final boolean isEqualTo(IokeObject self, Object other)
 			throws ControlFlow {
-		Object cell = IokeObject.findCell(self, "==");
+		Object cell = IokeObject.findCell(self, Selectors.EQ);
 
 		if (cell == self.runtime.nul) {
 			boolean result = (other instanceof IokeObject)
 					&& (self.body == IokeObject.as(other, self).body);
 			return result;
 		}
+
+		Class<? extends IokeData> key = NativeMethod.nativeKeyData(cell);
+		if (key != null && (other instanceof IokeObject)) {
+			if (key == IokeData.class) {
+				return self.body == ((IokeObject) other).body;
+			} else if (key == getClass()) {
+				Boolean result = nativeEquals(self, other);
+				if (result != null) {
+					return result;
+				}
+			}
+		}
+
 		boolean result = IokeObject.isTrue(Interpreter.send(
 				self.runtime.eqMessage, self.runtime.ground, self,
 				self.runtime.createMessage(
@@ -213,17 +226,54 @@ public abstract class IokeData {
 	}
 
 	public final int hashCode(IokeObject self) throws ControlFlow {
-		Object cell = IokeObject.findCell(self, "hash");
+		Object cell = IokeObject.findCell(self, Selectors.HASH);
 
 		if (cell == self.runtime.nul) {
 			return System.identityHashCode(self.body);
 		}
+
+		Class<? extends IokeData> key = NativeMethod.nativeKeyData(cell);
+		if (key == IokeData.class) {
+			return System.identityHashCode(self.body);
+		} else if (key != null && key == getClass()) {
+			return nativeHashCode(self);
+		}
+
 		return Number.extractInt(
 				Interpreter.send(self.runtime.hashMessage,
 						self.runtime.ground, self),
 				self.runtime.hashMessage, self.runtime.ground);
 	}
 
+	/**
+	 * Does the same thing as the builtin == method of this kind of data,
+	 * without sending it. Only called when == refers to a method whose
+	 * nativeKeyData is the class of this data. Returns null if the
+	 * answer can't be given directly, and == should be sent as usual.
+	 */
+	Boolean nativeEquals(IokeObject self, Object other) throws ControlFlow {
+		return null;
+	}
+
+	/**
+	 * Does the same thing as the builtin hash method of this kind of
+	 * data, without sending it. Only called when hash refers to a method
+	 * whose nativeKeyData is the class of this data.
+	 */
+	int nativeHashCode(IokeObject self) throws ControlFlow {
+		return System.identityHashCode(self.body);
+	}
+
+	/**
+	 * Returns a key that orders self against other objects with the same
+	 * kind of data in the same way as the builtin <=> method of this kind
+	 * of data, or null if there isn't one. Only called when <=> refers to
+	 * a method whose nativeKeyData is the class of this data.
+	 */
+	Comparable<?> nativeSortKey(IokeObject self) {
+		return null;
+	}
+
 	public IokeData cloneData(IokeObject obj, IokeObject m,
 			IokeObject context) {
 		return this;
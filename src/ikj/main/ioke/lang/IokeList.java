@@ -12,6 +12,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import gnu.math.IntNum;
 import ioke.lang.exceptions.ControlFlow;
 
 /**
@@ -49,6 +50,11 @@ public class IokeList extends IokeData {
 		obj.registerMethod(
 				runtime.newNativeMethod("returns a hash for the list",
 						new NativeMethod.WithNoArguments("hash") {
+							@Override
+							Class<? extends IokeData> nativeKeyData() {
+								return IokeList.class;
+							}
+
 							@Override
 							public Object activate(IokeObject method,
 									IokeObject context, IokeObject message,
@@ -77,6 +83,11 @@ public class IokeList extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return IokeList.class;
+					}
+
 					@Override
 					public Object activate(IokeObject self, Object on,
 							List<Object> args,
@@ -86,15 +97,10 @@ public class IokeList extends IokeData {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
-						Object other = args.get(0);
-						return (((other instanceof IokeObject)
-								&& (IokeObject
-										.data(other) instanceof IokeList)
-								&& ((IokeList) IokeObject.data(on)).list
-										.equals(((IokeList) IokeObject
-												.data(other)).list)))
-														? context.runtime._true
-														: context.runtime._false;
+						return ((IokeList) IokeObject.data(on)).nativeEquals(
+								IokeObject.as(on, context), args.get(0))
+										? context.runtime._true
+										: context.runtime._false;
 					}
 				}));
 
@@ -103,11 +109,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(IokeList.getInspect(on));
 					}
@@ -118,11 +122,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(IokeList.getNotice(on));
 					}
@@ -133,11 +135,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("seq",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						IokeObject obj = method.runtime.iteratorSequence
 								.allocateCopy(null, null);
 						obj.singleMimicsWithoutCheck(
@@ -214,6 +214,11 @@ public class IokeList extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return IokeList.class;
+					}
+
 					@Override
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
@@ -381,11 +386,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("pop!",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						List<Object> l = ((IokeList) IokeObject.data(on))
 								.getList();
 						if (l.size() == 0) {
@@ -400,11 +403,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("shift!",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						List<Object> l = ((IokeList) IokeObject.data(on))
 								.getList();
 						if (l.size() == 0) {
@@ -419,11 +420,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("clear!",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						((IokeList) IokeObject.data(on)).getList().clear();
 						return on;
 					}
@@ -434,11 +433,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("empty?",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return ((IokeList) IokeObject.data(on)).getList()
 								.isEmpty() ? context.runtime._true
 										: context.runtime._false;
@@ -516,9 +513,9 @@ public class IokeList extends IokeData {
 							Map<String, Object> keywords,
 							IokeObject context, IokeObject message)
 							throws ControlFlow {
-						List<Object> newList = new ArrayList<>();
-						newList.addAll(((IokeList) IokeObject.data(on))
-								.getList());
+						List<Object> newList = NumberList.copyOf(
+								context.runtime,
+								((IokeList) IokeObject.data(on)).getList());
 						newList.addAll(
 								((IokeList) IokeObject.data(args.get(0)))
 										.getList());
@@ -562,55 +559,88 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("sort",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						Object newList = IokeObject.mimic(on, message,
 								context);
-						try {
-							Collections.sort(
-									((IokeList) IokeObject.data(newList))
-											.getList(),
-									new SpaceshipComparator(context,
-											message));
-						} catch (RuntimeException e) {
-							if (e.getCause() instanceof ControlFlow) {
-								throw (ControlFlow) e.getCause();
-							}
-							throw e;
-						}
+						SpaceshipComparator.sort(
+								((IokeList) IokeObject.data(newList))
+										.getList(),
+								context, message);
 						return newList;
 					}
 				}));
 
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a list of keys, and returns a new list with the elements of this list sorted on the key at the same index. the keys are compared using <=>, and elements with equal keys keep their order. this is what sortBy uses to only evaluate the key of every element once.",
+				new TypeCheckingNativeMethod("sortByKeys") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().receiverMustMimic(runtime.list)
+							.withRequiredPositional("keys")
+							.whichMustMimic(runtime.list).getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object keys) throws ControlFlow {
+						return context.runtime.newList(SpaceshipComparator
+								.sortBy(getList(on), getList(keys), context,
+										message));
+					}
+				}));
+
 		obj.registerMethod(runtime.newNativeMethod(
 				"sorts this list in place and then returns it",
 				new TypeCheckingNativeMethod.WithNoArguments("sort!",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						try {
-							Collections.sort(
-									((IokeList) IokeObject.data(on))
-											.getList(),
-									new SpaceshipComparator(context,
-											message));
-						} catch (RuntimeException e) {
-							if (e.getCause() instanceof ControlFlow) {
-								throw (ControlFlow) e.getCause();
-							}
-							throw e;
-						}
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						SpaceshipComparator.sort(
+								((IokeList) IokeObject.data(on)).getList(),
+								context, message);
 						return on;
 					}
 				}));
 
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns the sum of all the elements in this list, by adding them together using +. returns nil for an empty list.",
+				new TypeCheckingNativeMethod.WithNoArguments("sum",
+						runtime.list) {
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						Runtime runtime = context.runtime;
+						List<Object> l = getList(on);
+						if (l.isEmpty()) {
+							return runtime.nil;
+						}
+						if ((l instanceof NumberList)
+								&& ((NumberList) l).isPlain()
+								&& NativeMethod.nativeKeyData(
+										IokeObject.findCell(runtime.integer,
+												Selectors.PLUS)) == Number.class) {
+							return sumLongs(runtime,
+									((NumberList) l).longValues(), l.size());
+						}
+
+						Object result = l.get(0);
+						for (int i = 1, j = l.size(); i < j; i++) {
+							result = Interpreter.send(runtime.plusMessage,
+									context, result, l.get(i));
+						}
+						return result;
+					}
+				}));
+
 		obj.registerMethod(
 				runtime.newNativeMethod("returns the size of this list",
 						new TypeCheckingNativeMethod.WithNoArguments(
@@ -642,13 +672,9 @@ public class IokeList extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						if (IokeObject.data(arg) instanceof Range) {
 							int first = Number.extractInt(
 									Range.getFrom(arg), message, context);
@@ -933,13 +959,9 @@ public class IokeList extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						if (IokeObject.data(arg) instanceof Range) {
 
 							int first = Number.extractInt(
@@ -1075,11 +1097,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("compact!",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						List<Object> list = getList(on);
 						List<Object> newList = new ArrayList<>();
 						Object nil = context.runtime.nil;
@@ -1098,11 +1118,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("reverse!",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						List<Object> list = getList(on);
 						Collections.reverse(list);
 						return on;
@@ -1114,11 +1132,9 @@ public class IokeList extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("flatten!",
 						runtime.list) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						setList(on, flatten(getList(on)));
 						return on;
 					}
@@ -1389,6 +1405,28 @@ public class IokeList extends IokeData {
 		((IokeList) (IokeObject.data(on))).setList(list);
 	}
 
+	private static Object sumLongs(Runtime runtime, long[] values,
+			int size) {
+		long sum = 0;
+		int i = 0;
+		for (; i < size; i++) {
+			long r = sum + values[i];
+			if (((sum ^ r) & (values[i] ^ r)) < 0) {
+				break;
+			}
+			sum = r;
+		}
+		if (i == size) {
+			return runtime.newNumber(sum);
+		}
+
+		IntNum big = IntNum.make(sum);
+		for (; i < size; i++) {
+			big = IntNum.add(big, IntNum.make(values[i]));
+		}
+		return runtime.newNumber(big);
+	}
+
 	public static String getInspect(Object on) throws ControlFlow {
 		return ((IokeList) (IokeObject.data(on))).inspect(on);
 	}
@@ -1398,18 +1436,31 @@ public class IokeList extends IokeData {
 	}
 
 	public static IokeObject emptyList(IokeObject context) {
-		return context.runtime.newList(new ArrayList<>());
+		return context.runtime.newList(new NumberList(context.runtime));
 	}
 
 	public static IokeObject copyList(IokeObject context,
 			List<Object> orig) {
-		return context.runtime.newList(new ArrayList<>(orig));
+		return context.runtime
+				.newList(NumberList.copyOf(context.runtime, orig));
 	}
 
 	@Override
 	public IokeData cloneData(IokeObject obj, IokeObject m,
 			IokeObject context) {
-		return new IokeList(new ArrayList<>(list));
+		return new IokeList(NumberList.copyOf(obj.runtime, list));
+	}
+
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		return (other instanceof IokeObject)
+				&& (IokeObject.data(other) instanceof IokeList)
+				&& list.equals(((IokeList) IokeObject.data(other)).list);
+	}
+
+	@Override
+	int nativeHashCode(IokeObject self) {
+		return list.hashCode();
 	}
 
 	@Override
@@ -17,7 +17,7 @@ import ioke.lang.exceptions.ControlFlow;
 public final class IokeObject implements TypeChecker {
 	public Runtime			runtime;
 	public IokeData			data;
-	Body					body				= new Body();
+	Body					body;
 
 	public static final int	FALSY_F				= 1 << 0;
 	public static final int	NIL_F				= 1 << 1;
@@ -25,6 +25,11 @@ public final class IokeObject implements TypeChecker {
 	public static final int	ACTIVATABLE_F		= 1 << 3;
 	public static final int	HAS_ACTIVATABLE_F	= 1 << 4;
 	public static final int	LEXICAL_F			= 1 << 5;
+	/**
+	 * Set on bodies that an inline cache lookup has walked through. Any
+	 * later change to such a body invalidates all inline caches.
+	 */
+	public static final int	OBSERVED_F			= 1 << 6;
 
 	public final boolean isNil() {
 		return (body.flags & NIL_F) != 0;
@@ -74,6 +79,7 @@ public final class IokeObject implements TypeChecker {
 	public IokeObject(Runtime runtime, String documentation,
 			IokeData data) {
 		this.runtime = runtime;
+		this.body = new Body(runtime.selectors);
 		this.body.documentation = documentation;
 		this.data = data;
 	}
@@ -105,9 +111,13 @@ public final class IokeObject implements TypeChecker {
 			IokeObject context) throws ControlFlow {
 		checkFrozen("become!", message, context);
 
+		if (this.data instanceof Message) {
+			((Message) this.data).changed();
+		}
 		this.runtime = other.runtime;
 		this.data = other.data;
 		this.body = other.body;
+		Body.invalidate();
 	}
 
 	public void init() throws ControlFlow {
@@ -168,6 +178,7 @@ public final class IokeObject implements TypeChecker {
 	}
 
 	private void removeMimicAt(int index) {
+		body.touched();
 		switch (index) {
 			case -2:
 				body.mimic = null;
@@ -239,6 +250,7 @@ public final class IokeObject implements TypeChecker {
 
 		me.body.mimic = null;
 		me.body.mimics = null;
+		me.body.touched();
 	}
 
 	public static Object getRealContext(Object o) {
@@ -306,6 +318,46 @@ public final class IokeObject implements TypeChecker {
 		return nn;
 	}
 
+	/**
+	 * Works exactly like markingFindSuperCell, but flags every body it
+	 * passes through as observed. The first element of state is the
+	 * found flag, and the second is cleared if the lookup had to go
+	 * through a lexical context, in which case the result can't be
+	 * cached.
+	 */
+	static final Object findSuperCellObserved(IokeObject on,
+			IokeObject early, int selector, boolean[] state) {
+		if (on.isLexical()) {
+			state[1] = false;
+			return on.markingFindSuperCell(early,
+					on.runtime.selectors.nameOf(selector), state);
+		}
+
+		Body b = on.body;
+		b.flags |= OBSERVED_F;
+		Object cell = b.get(selector);
+		if (cell != null) {
+			if (state[0]) {
+				return cell;
+			}
+			if (early == cell) {
+				state[0] = true;
+			}
+		}
+
+		if (b.mimicCount == 1) {
+			return findSuperCellObserved(b.mimic, early, selector, state);
+		}
+		for (int i = 0; i < b.mimicCount; i++) {
+			cell = findSuperCellObserved(b.mimics[i], early, selector,
+					state);
+			if (cell != on.runtime.nul) {
+				return cell;
+			}
+		}
+		return on.runtime.nul;
+	}
+
 	public static Object findPlace(Object obj, String name) {
 		return as(obj, null).markingFindPlace(name);
 	}
@@ -379,13 +431,66 @@ public final class IokeObject implements TypeChecker {
 	}
 
 	public static final Object findCell(IokeObject on, String name) {
+		int selector = on.runtime.selectors.find(name);
+		if (selector == -1) {
+			return on.runtime.nul;
+		}
+		return findCell(on, selector);
+	}
+
+	static final Object findCell(IokeObject on, int selector) {
+		Object cell;
+		IokeObject nul = on.runtime.nul;
+		IokeObject c = on;
+
+		while (true) {
+			Body b = c.body;
+			if ((cell = b.get(selector)) != null) {
+				if (cell == nul && c.isLexical()) {
+					c = ((LexicalContext) c.data).surroundingContext;
+				} else {
+					return cell;
+				}
+			} else {
+				if (b.mimic != null) {
+					if (c.isLexical()) {
+						if ((cell = findCell(b.mimic, selector)) != nul) {
+							return cell;
+						}
+						c = ((LexicalContext) c.data).surroundingContext;
+					} else {
+						c = b.mimic;
+					}
+				} else {
+					for (int i = 0; i < b.mimicCount; i++) {
+						if ((cell = findCell(b.mimics[i], selector)) != nul) {
+							return cell;
+						}
+					}
+					if (c.isLexical()) {
+						c = ((LexicalContext) c.data).surroundingContext;
+					} else {
+						return nul;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Works exactly like findCell, but flags every body it passes
+	 * through as observed, so that changes to any of them will
+	 * invalidate inline caches holding the result.
+	 */
+	static final Object findCellObserved(IokeObject on, int selector) {
 		Object cell;
 		IokeObject nul = on.runtime.nul;
 		IokeObject c = on;
 
 		while (true) {
 			Body b = c.body;
-			if ((cell = b.get(name)) != null) {
+			b.flags |= OBSERVED_F;
+			if ((cell = b.get(selector)) != null) {
 				if (cell == nul && c.isLexical()) {
 					c = ((LexicalContext) c.data).surroundingContext;
 				} else {
@@ -394,7 +499,8 @@ public final class IokeObject implements TypeChecker {
 			} else {
 				if (b.mimic != null) {
 					if (c.isLexical()) {
-						if ((cell = findCell(b.mimic, name)) != nul) {
+						if ((cell = findCellObserved(b.mimic,
+								selector)) != nul) {
 							return cell;
 						}
 						c = ((LexicalContext) c.data).surroundingContext;
@@ -403,7 +509,8 @@ public final class IokeObject implements TypeChecker {
 					}
 				} else {
 					for (int i = 0; i < b.mimicCount; i++) {
-						if ((cell = findCell(b.mimics[i], name)) != nul) {
+						if ((cell = findCellObserved(b.mimics[i],
+								selector)) != nul) {
 							return cell;
 						}
 					}
@@ -506,6 +613,29 @@ public final class IokeObject implements TypeChecker {
 		return false;
 	}
 
+	/**
+	 * Works exactly like isMimic, but flags every body it passes through
+	 * as observed, so that changes to the mimics of any of them will
+	 * invalidate caches holding the result.
+	 */
+	static final boolean isMimicObserved(IokeObject on, IokeObject pot) {
+		Body b = on.body;
+		b.flags |= OBSERVED_F;
+		if (b == pot.body || on.containsMimic(pot)) {
+			return true;
+		}
+
+		if (b.mimic != null) {
+			return isMimicObserved(b.mimic, pot);
+		}
+		for (int i = 0; i < b.mimicCount; i++) {
+			if (isMimicObserved(b.mimics[i], pot)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public static Object getCellChain(Object on, IokeObject m,
 			IokeObject c, String... names) throws ControlFlow {
 		Object current = on;
@@ -768,6 +898,7 @@ public final class IokeObject implements TypeChecker {
 	}
 
 	private void addMimic(int at, IokeObject mimic) {
+		body.touched();
 		switch (body.mimicCount) {
 			case 0:
 				body.mimic = mimic;
@@ -828,6 +959,7 @@ public final class IokeObject implements TypeChecker {
 	public void singleMimicsWithoutCheck(IokeObject mimic) {
 		body.mimic = mimic;
 		body.mimicCount = 1;
+		body.touched();
 		transplantActivation(mimic);
 	}
 
@@ -852,6 +984,7 @@ public final class IokeObject implements TypeChecker {
 		mimic.data.checkMimic(mimic, message, context);
 		body.mimic = mimic;
 		body.mimicCount = 1;
+		body.touched();
 		transplantActivation(mimic);
 		if (mimic.body.hooks != null) {
 			Hook.fireMimicked(mimic, message, context, this);
@@ -940,7 +1073,7 @@ public final class IokeObject implements TypeChecker {
 			return ((LexicalContext) this.data).surroundingContext
 					.getSelf();
 		}
-		return this.body.get("self");
+		return ActivationFrame.cellOf(this, "self");
 	}
 
 	public static IokeObject convertToNumber(Object on, IokeObject m,
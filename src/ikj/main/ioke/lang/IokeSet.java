@@ -94,11 +94,9 @@ public class IokeSet extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						runtime.set) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(IokeSet.getInspect(on));
 					}
@@ -109,11 +107,9 @@ public class IokeSet extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments(
 						"withIdentitySemantics!", runtime.set) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						IokeSet set = (IokeSet) IokeObject.data(on);
 						set.set = new IdentitySet<>(set.set);
 						return on;
@@ -125,11 +121,9 @@ public class IokeSet extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						runtime.set) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(IokeSet.getNotice(on));
 					}
@@ -140,11 +134,9 @@ public class IokeSet extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("empty?",
 						runtime.set) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return ((IokeSet) IokeObject.data(on)).getSet()
 								.isEmpty() ? context.runtime._true
 										: context.runtime._false;
@@ -405,11 +397,9 @@ public class IokeSet extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("seq",
 						runtime.set) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						IokeObject obj = method.runtime.iteratorSequence
 								.allocateCopy(null, null);
 						obj.singleMimicsWithoutCheck(
@@ -437,6 +427,11 @@ public class IokeSet extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return IokeSet.class;
+					}
+
 					@Override
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
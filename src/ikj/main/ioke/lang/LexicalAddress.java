@@ -0,0 +1,231 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.Arrays;
+
+/**
+ * Where a name sent to a lexical context was found, stored on the
+ * message node. Lexical blocks reach the locals of their surrounding
+ * blocks and methods through a chain of contexts, and looking a name
+ * up means a search at every level, both in the body of the context
+ * and in its mimics. An address instead remembers how many levels out
+ * the name was found and at which slot, together with the shape of
+ * every level on the way and the mimic that was searched at each of
+ * them.
+ *
+ * Since the contexts of a block get the same cells in the same order
+ * every time it is called, their shapes are shared, and an address
+ * found during one call will match the contexts of the next. If
+ * anything changes the layout of a context - by adding a cell to an
+ * outer level that shadows the name, or removing one with removeCell!
+ * - the shapes don't match any more and the address is found again.
+ * Changes to the mimics are noticed through the global body version.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class LexicalAddress {
+	static final int			MAX_ENTRIES	= 4;
+
+	/**
+	 * Names found further out than this are looked up the normal way.
+	 */
+	static final int			MAX_DEPTH	= 8;
+
+	final int					selector;
+	final Shape[]				shapes;
+	final IokeObject[]			mimics;
+	// slot of the cell in the last level, or -1 if cell was found
+	// through the mimic of the last level
+	final int					index;
+	final Object				cell;
+	final int					version;
+
+	private LexicalAddress(int selector, Shape[] shapes,
+			IokeObject[] mimics, int index, Object cell, int version) {
+		this.selector = selector;
+		this.shapes = shapes;
+		this.mimics = mimics;
+		this.index = index;
+		this.cell = cell;
+		this.version = version;
+	}
+
+	/**
+	 * Finds the cell with the given name on the lexical context, using
+	 * and filling the addresses on the message if possible.
+	 */
+	static Object findCell(IokeObject message, IokeObject on,
+			int selector) {
+		if (!(message.data instanceof Message)) {
+			return IokeObject.findCell(on, selector);
+		}
+
+		Message m = (Message) message.data;
+		LexicalAddress[] entries = m.lexicalAddresses;
+		if (entries != null) {
+			for (LexicalAddress e : entries) {
+				Body b;
+				if (e.selector == selector && (b = e.locate(on)) != null) {
+					if (e.index == -1) {
+						return e.cell;
+					}
+					Object cell = b.valueAt(e.index);
+					if (cell != on.runtime.nul) {
+						return cell;
+					}
+				}
+			}
+		}
+
+		LexicalAddress a = resolve(on, selector);
+		if (a != null) {
+			m.lexicalAddresses = add(entries, a);
+		}
+		return IokeObject.findCell(on, selector);
+	}
+
+	/**
+	 * Assigns the value to the name of the place message in the lexical
+	 * context, the same way IokeObject.assign would - to the context in
+	 * the chain that has the cell, or to the innermost one if none has
+	 * it. Returns false if the assignment has to be done the normal way.
+	 */
+	static boolean assign(IokeObject place, Object on, Object value) {
+		if (!(on instanceof IokeObject) || !((IokeObject) on).isLexical()
+				|| !(place.data instanceof Message)) {
+			return false;
+		}
+
+		IokeObject ctx = (IokeObject) on;
+		Message m = (Message) place.data;
+		int selector = m.selector;
+		if (selector == -1) {
+			return false;
+		}
+
+		LexicalAddress[] entries = m.lexicalAddresses;
+		if (entries != null) {
+			for (LexicalAddress e : entries) {
+				Body b;
+				if (e.selector == selector && (b = e.locate(ctx)) != null) {
+					return e.assign(ctx, b, value);
+				}
+			}
+		}
+
+		LexicalAddress a = resolve(ctx, selector);
+		if (a == null) {
+			return false;
+		}
+		m.lexicalAddresses = add(entries, a);
+		Body b = a.locate(ctx);
+		return b != null && a.assign(ctx, b, value);
+	}
+
+	private boolean assign(IokeObject on, Body b, Object value) {
+		if (index != -1) {
+			b.setValueAt(index, value);
+			return true;
+		}
+		if (cell == on.runtime.nul) {
+			on.body.put(selector, value);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the body of the level that this address points into, if
+	 * the chain of contexts from the given one still looks the same as
+	 * when the address was found. Otherwise returns null.
+	 */
+	private Body locate(IokeObject on) {
+		IokeObject c = on;
+		int last = shapes.length - 1;
+		for (int i = 0; i < last; i++) {
+			Body b = c.body;
+			if (b.shape() != shapes[i] || b.mimic != mimics[i]
+					|| (b.flags & IokeObject.LEXICAL_F) == 0) {
+				return null;
+			}
+			c = ((LexicalContext) c.data).surroundingContext;
+		}
+
+		Body b = c.body;
+		if (b.shape() != shapes[last]) {
+			return null;
+		}
+		if (index == -1) {
+			if (b.mimic != mimics[last] || b.mimicCount != 1
+					|| (cell == c.runtime.nul
+							&& (b.flags & IokeObject.LEXICAL_F) != 0)) {
+				return null;
+			}
+		}
+		if ((last > 0 || index == -1) && version != Body.version()) {
+			return null;
+		}
+		return b;
+	}
+
+	/**
+	 * Follows the chain of contexts the same way IokeObject.findCell
+	 * does, and returns the address of the name, or null if it can't
+	 * be addressed.
+	 */
+	private static LexicalAddress resolve(IokeObject on, int selector) {
+		IokeObject nul = on.runtime.nul;
+		int version = Body.version();
+		Shape[] shapes = new Shape[MAX_DEPTH + 1];
+		IokeObject[] mimics = new IokeObject[MAX_DEPTH + 1];
+		IokeObject c = on;
+
+		for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+			Body b = c.body;
+			Shape shape = b.shape();
+			if (shape.dictionary) {
+				return null;
+			}
+			shapes[depth] = shape;
+
+			int index = shape.indexOf(selector);
+			if (index != -1) {
+				if (b.valueAt(index) == nul) {
+					return null;
+				}
+				return new LexicalAddress(selector,
+						Arrays.copyOf(shapes, depth + 1),
+						Arrays.copyOf(mimics, depth + 1), index, null, version);
+			}
+
+			if (b.mimicCount != 1 || b.mimic == null) {
+				return null;
+			}
+			mimics[depth] = b.mimic;
+			Object cell = IokeObject.findCellObserved(b.mimic, selector);
+			if (cell != nul || !c.isLexical()) {
+				return new LexicalAddress(selector,
+						Arrays.copyOf(shapes, depth + 1),
+						Arrays.copyOf(mimics, depth + 1), -1, cell, version);
+			}
+			c = ((LexicalContext) c.data).surroundingContext;
+		}
+		return null;
+	}
+
+	private static LexicalAddress[] add(LexicalAddress[] entries,
+			LexicalAddress entry) {
+		if (entries == null || entries.length >= MAX_ENTRIES) {
+			return new LexicalAddress[] { entry };
+		}
+
+		LexicalAddress[] newEntries = new LexicalAddress[entries.length
+				+ 1];
+		System.arraycopy(entries, 0, newEntries, 0, entries.length);
+		newEntries[entries.length] = entry;
+		return newEntries;
+	}
+}// LexicalAddress
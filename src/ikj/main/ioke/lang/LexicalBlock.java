@@ -9,6 +9,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import ioke.lang.compiler.MessageCompiler;
 import ioke.lang.exceptions.ControlFlow;
 
 /**
@@ -38,6 +39,15 @@ public class LexicalBlock extends IokeData implements AssociatedCode {
 		return message;
 	}
 
+	private Object evaluateCode(IokeObject c, Object on) throws ControlFlow {
+		MessageCompiler compiler = c.runtime.compiler;
+		if (compiler == null) {
+			return c.runtime.interpreter.evaluate(message, c, on, c);
+		}
+
+		return compiler.profileFor(message).activate(c, on, c);
+	}
+
 	@Override
 	public String getArgumentsCode() {
 		return arguments.getCode(false);
@@ -273,7 +283,7 @@ public class LexicalBlock extends IokeData implements AssociatedCode {
 		lb.arguments.assignArgumentValues(c, dynamicContext, message, on,
 				((Call) IokeObject.data(call)));
 
-		return self.runtime.interpreter.evaluate(lb.message, c, on, c);
+		return lb.evaluateCode(c, on);
 	}
 
 	public static Object activateFixed(IokeObject self,
@@ -283,7 +293,7 @@ public class LexicalBlock extends IokeData implements AssociatedCode {
 		IokeObject c = self.runtime.newLexicalContext(on,
 				"Lexical activation context", lb.context);
 		lb.arguments.assignArgumentValues(c, dynamicContext, message, on);
-		return self.runtime.interpreter.evaluate(lb.message, c, on, c);
+		return lb.evaluateCode(c, on);
 	}
 
 	public static Object activateWithDataFixed(IokeObject self,
@@ -300,7 +310,7 @@ public class LexicalBlock extends IokeData implements AssociatedCode {
 
 		lb.arguments.assignArgumentValues(c, dynamicContext, message, on);
 
-		return self.runtime.interpreter.evaluate(lb.message, c, on, c);
+		return lb.evaluateCode(c, on);
 	}
 
 	public static String getInspect(Object on) {
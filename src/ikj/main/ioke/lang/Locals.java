@@ -48,31 +48,22 @@ public class Locals {
 
 		obj.registerMethod(obj.runtime.newNativeMethod(
 				"will pass along the call to the real self object of this context.",
-				new NativeMethod("pass") {
-					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
-							.builder().withRestUnevaluated("arguments")
-							.getArguments();
-
-					@Override
-					public DefaultArgumentsDefinition getArguments() {
-						return ARGUMENTS;
-					}
-
-					@Override
-					public Object activate(IokeObject method,
-							IokeObject context, IokeObject message,
-							Object on) throws ControlFlow {
-						Object selfDelegate = IokeObject.as(on, context)
-								.getSelf();
-
-						if (selfDelegate != null && selfDelegate != on) {
-							return Interpreter.perform(selfDelegate,
-									context, message);
-						}
-
-						return context.runtime.nil;
-					}
-				}));
+				new PassToSelf()));
+
+		registerLazyCell(obj, "self",
+				"returns the receiver of the current activation");
+		registerLazyCell(obj, "@",
+				"returns the receiver of the current activation");
+		registerLazyCell(obj, "@@",
+				"will return the currently executing method or macro");
+		registerLazyCell(obj, "currentMessage",
+				"returns the message that started the current activation");
+		registerLazyCell(obj, "surroundingContext",
+				"returns the context the current activation was called from");
+		registerLazyCell(obj, "super",
+				"will call the super method of the current message on the same receiver");
+		registerLazyCell(obj, "call",
+				"returns the Call object of the current macro activation");
 
 		obj.registerMethod(obj.runtime.newNativeMethod(
 				"will return a text representation of the current stack trace",
@@ -89,7 +80,7 @@ public class Locals {
 						while ("Locals"
 								.equals(current.getKind(m, context))) {
 							IokeObject message = IokeObject.as(
-									IokeObject.getCell(current, m, context,
+									ActivationFrame.cellOf(current,
 											"currentMessage"),
 									context);
 							IokeObject start = message;
@@ -114,13 +105,14 @@ public class Locals {
 											+ message.getPosition()
 											+ getContextMessageName(
 													IokeObject.as(
-															current.body
-																	.get("surroundingContext"),
+															ActivationFrame
+																	.cellOf(current,
+																			"surroundingContext"),
 															context))
 											+ "]"));
 
 							current = IokeObject.as(
-									IokeObject.findCell(current,
+									ActivationFrame.cellOf(current,
 											"surroundingContext"),
 									context);
 						}
@@ -130,11 +122,70 @@ public class Locals {
 				}));
 	}
 
+	/**
+	 * The pass of Locals. Code that resolves names without sending them
+	 * can recognize it and follow self instead.
+	 */
+	static final class PassToSelf extends NativeMethod {
+		private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
+				.builder().withRestUnevaluated("arguments").getArguments();
+
+		PassToSelf() {
+			super("pass");
+		}
+
+		@Override
+		public DefaultArgumentsDefinition getArguments() {
+			return ARGUMENTS;
+		}
+
+		@Override
+		public Object activate(IokeObject method, IokeObject context,
+				IokeObject message, Object on) throws ControlFlow {
+			Object selfDelegate = IokeObject.as(on, context).getSelf();
+
+			if (selfDelegate != null && selfDelegate != on) {
+				return Interpreter.perform(selfDelegate, context, message);
+			}
+
+			return context.runtime.nil;
+		}
+	}
+
+	/**
+	 * Activations of DefaultMethod and DefaultMacro only get the cells
+	 * their code actually mentions - these cells look up the rest from
+	 * the ActivationFrame when needed.
+	 */
+	private static void registerLazyCell(IokeObject obj, final String name,
+			String documentation) throws ControlFlow {
+		obj.registerMethod(obj.runtime.newNativeMethod(documentation,
+				new NativeMethod(name) {
+					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
+							.builder().withRestUnevaluated("arguments")
+							.getArguments();
+
+					@Override
+					public DefaultArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						return ActivationFrame.activateLazyCell(name,
+								context, message, on);
+					}
+				}));
+	}
+
 	public static String getContextMessageName(IokeObject ctx)
 			throws ControlFlow {
 		if ("Locals".equals(ctx.getKind())) {
 			return ":in `" + IokeObject
-					.as(ctx.body.get("currentMessage"), ctx).getName()
+					.as(ActivationFrame.cellOf(ctx, "currentMessage"), ctx)
+					.getName()
 					+ "'";
 		} else {
 			return "";
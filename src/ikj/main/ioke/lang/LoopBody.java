@@ -0,0 +1,335 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * The body of a while, until or loop, split into statements. Statements
+ * that are just a break or continue, or an if or unless with a break or
+ * continue as one of the branches, are handled directly by returning
+ * BREAK or CONTINUE from iterate, instead of activating the break or
+ * continue method, which would throw a ControlFlow that has to be caught
+ * by the loop. Every such statement checks that the names still refer to
+ * the builtin methods, and evaluates normally if they don't. Any other
+ * break or continue - further down in the body, inside of a block or
+ * from a method - still ends up as a ControlFlow.
+ *
+ * The body is marked as compiled, so that renaming or relinking any of
+ * its messages makes the plan stale and it will be created again.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class LoopBody {
+	/**
+	 * Returned from iterate when a break was found. The value of the
+	 * break is in the first slot of the array given to iterate.
+	 */
+	static final Object	BREAK		= new Object();
+	/**
+	 * Returned from iterate when a continue was found.
+	 */
+	static final Object	CONTINUE	= new Object();
+
+	/**
+	 * The builtin methods that can be handled directly, as created by
+	 * FlowControlBehavior.
+	 */
+	static final class Builtins {
+		NativeMethod	breakMethod;
+		NativeMethod	continueMethod;
+		NativeMethod	ifMethod;
+		NativeMethod	unlessMethod;
+	}
+
+	// how many times refersTo will follow pass to self
+	private static final int	MAX_PASSES	= 4;
+
+	private static final int	PLAIN	= 0;
+	private static final int	JUMP	= 1;
+	private static final int	COND	= 2;
+
+	private static final class Statement {
+		final int			kind;
+		final IokeObject	start;
+		final IokeObject	stop;
+		// for COND, the argument holding the jump, or null
+		final IokeObject	thenJump;
+		final IokeObject	elseJump;
+
+		Statement(int kind, IokeObject start, IokeObject stop,
+				IokeObject thenJump, IokeObject elseJump) {
+			this.kind = kind;
+			this.start = start;
+			this.stop = stop;
+			this.thenJump = thenJump;
+			this.elseJump = elseJump;
+		}
+	}
+
+	private final IokeObject	code;
+	private final Builtins		builtins;
+	private final CodeVersion	version;
+	private final int			stamp;
+	private final Statement[]	statements;
+
+	private LoopBody(IokeObject code, Builtins builtins,
+			CodeVersion version, int stamp, Statement[] statements) {
+		this.code = code;
+		this.builtins = builtins;
+		this.version = version;
+		this.stamp = stamp;
+		this.statements = statements;
+	}
+
+	/**
+	 * Returns the plan for the given argument of a loop message, or null
+	 * if the argument should just be evaluated as usual.
+	 */
+	static LoopBody of(IokeObject message, int index, IokeObject context,
+			Builtins builtins) {
+		Runtime runtime = context.runtime;
+		if (runtime.compiler != null
+				|| runtime.interpreter.getClass() != Interpreter.class) {
+			return null;
+		}
+		Object arg = ((Message) message.data).arguments.get(index);
+		if (!(arg instanceof IokeObject)
+				|| !(((IokeObject) arg).data instanceof Message)) {
+			return null;
+		}
+
+		IokeObject code = (IokeObject) arg;
+		Message msg = (Message) code.data;
+		LoopBody body = msg.loopBody;
+		if (body != null && body.code == code && body.builtins == builtins
+				&& body.stamp == body.version.get()) {
+			return body.statements == null ? null : body;
+		}
+
+		CodeVersion version = body != null && body.code == code
+				? body.version : new CodeVersion();
+		markChain(code, version);
+		int stamp = version.get();
+		Statement[] statements = split(code);
+		msg.loopBody = new LoopBody(code, builtins, version, stamp,
+				statements);
+		return statements == null ? null : msg.loopBody;
+	}
+
+	private static void markChain(IokeObject code, CodeVersion version) {
+		for (IokeObject m = code; m != null; m = Message.next(m)) {
+			Message.markCompiled(m, version);
+			for (Object arg : ((Message) m.data).arguments) {
+				if ((arg instanceof IokeObject)
+						&& (((IokeObject) arg).data instanceof Message)) {
+					Message.markCompiled((IokeObject) arg, version);
+				}
+			}
+		}
+	}
+
+	// returns null if there is nothing to gain
+	private static Statement[] split(IokeObject code) {
+		List<Statement> statements = new ArrayList<>();
+		boolean jumps = false;
+		IokeObject m = code;
+		while (m != null) {
+			if (Message.name(m) == ".") {
+				m = Message.next(m);
+				continue;
+			}
+			IokeObject stop = Message.next(m);
+			while (stop != null && Message.name(stop) != ".") {
+				stop = Message.next(stop);
+			}
+
+			Statement s = statementFor(m, stop);
+			jumps |= s.kind != PLAIN;
+			statements.add(s);
+			m = stop;
+		}
+
+		return jumps ? statements.toArray(new Statement[statements.size()])
+				: null;
+	}
+
+	private static Statement statementFor(IokeObject m, IokeObject stop) {
+		if (Message.next(m) == stop) {
+			if (isJump(m)) {
+				return new Statement(JUMP, m, stop, null, null);
+			}
+
+			String name = Message.name(m);
+			List<Object> args = ((Message) m.data).arguments;
+			if ((name.equals("if") || name.equals("unless"))
+					&& (args.size() == 2 || args.size() == 3)) {
+				IokeObject thenJump = jumpIn(args.get(1));
+				IokeObject elseJump = args.size() == 3 ? jumpIn(args.get(2))
+						: null;
+				if (thenJump != null || elseJump != null) {
+					return new Statement(COND, m, stop, thenJump, elseJump);
+				}
+			}
+		}
+		return new Statement(PLAIN, m, stop, null, null);
+	}
+
+	private static IokeObject jumpIn(Object arg) {
+		if ((arg instanceof IokeObject)
+				&& (((IokeObject) arg).data instanceof Message)) {
+			IokeObject m = (IokeObject) arg;
+			if (Message.next(m) == null && isJump(m)) {
+				return m;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isJump(IokeObject m) {
+		Message msg = (Message) m.data;
+		if (msg.cached != null) {
+			return false;
+		}
+		return (msg.name.equals("break") && msg.arguments.size() <= 1)
+				|| (msg.name.equals("continue") && msg.arguments.isEmpty());
+	}
+
+	/**
+	 * Returns true if sending the message in the context would activate
+	 * the method. Inside of a method the context is a Locals object that
+	 * doesn't have the cell, and the send goes through pass to self, so
+	 * that is followed here too. Any other pass is not, since it might
+	 * do anything with the message.
+	 */
+	private static boolean refersTo(IokeObject m, IokeObject context,
+			NativeMethod method) {
+		Runtime runtime = context.runtime;
+		int selector = ((Message) m.data).selector;
+		IokeObject on = context;
+		for (int i = 0; i < MAX_PASSES; i++) {
+			Object cell = InlineCache.findCell(m, on, selector);
+			if (cell != runtime.nul) {
+				return (cell instanceof IokeObject)
+						&& ((IokeObject) cell).data == method;
+			}
+
+			Object pass = InlineCache.findCell(m, on, Selectors.PASS);
+			if (!(IokeObject.data(pass) instanceof Locals.PassToSelf)) {
+				return false;
+			}
+			Object self = on.getSelf();
+			if (!(self instanceof IokeObject) || self == on) {
+				return false;
+			}
+			on = (IokeObject) self;
+		}
+		return false;
+	}
+
+	/**
+	 * Evaluates the body once. Returns BREAK, with the value in
+	 * broken[0], or CONTINUE if the body did one of those, and otherwise
+	 * the result of the body.
+	 */
+	Object iterate(IokeObject context, Object[] broken) throws ControlFlow {
+		Runtime runtime = context.runtime;
+		Interpreter interpreter = runtime.interpreter;
+		Object ground = context.getRealContext();
+		Object result = runtime.nil;
+		for (Statement s : statements) {
+			switch (s.kind) {
+				case JUMP: {
+					Object jump = jump(s.start, context, context, broken);
+					if (jump != null) {
+						return jump;
+					}
+					break;
+				}
+				case COND: {
+					Object value = conditional(s, context, broken);
+					if (value != null) {
+						if (value == BREAK || value == CONTINUE) {
+							return value;
+						}
+						result = value;
+						continue;
+					}
+					break;
+				}
+				default:
+					break;
+			}
+			result = interpreter.evaluate(s.start, s.stop, context, ground,
+					context);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns BREAK or CONTINUE if the message is a call to the builtin
+	 * method, otherwise null.
+	 */
+	private Object jump(IokeObject m, IokeObject context,
+			IokeObject valueContext, Object[] broken) throws ControlFlow {
+		if (Message.name(m).equals("continue")) {
+			return refersTo(m, context, builtins.continueMethod) ? CONTINUE
+					: null;
+		}
+		if (!refersTo(m, context, builtins.breakMethod)) {
+			return null;
+		}
+		broken[0] = ((Message) m.data).arguments.isEmpty()
+				? context.runtime.nil
+				: Interpreter.getEvaluatedArgument(m, 0, valueContext);
+		return BREAK;
+	}
+
+	/**
+	 * Does the same thing as if and unless in FlowControlBehavior, but
+	 * returns BREAK or CONTINUE for a branch that jumps. Returns null if
+	 * the statement has to be evaluated as usual.
+	 */
+	private Object conditional(Statement s, IokeObject context,
+			Object[] broken) throws ControlFlow {
+		IokeObject m = s.start;
+		boolean unless = Message.name(m).equals("unless");
+		if (!refersTo(m, context,
+				unless ? builtins.unlessMethod : builtins.ifMethod)) {
+			return null;
+		}
+		List<Object> args = ((Message) m.data).arguments;
+		int argCount = args.size();
+		if ((argCount != 2 && argCount != 3)
+				|| (s.thenJump != null && args.get(1) != s.thenJump)
+				|| (s.elseJump != null
+						&& (argCount < 3 || args.get(2) != s.elseJump))) {
+			return null;
+		}
+
+		Object test = Interpreter.getEvaluatedArgument(m, 0, context);
+		int branch = IokeObject.isTrue(test) != unless ? 1 : 2;
+		if (branch >= argCount) {
+			return test;
+		}
+
+		IokeObject itContext = context.runtime.newLexicalContext(
+				context.getRealContext(), "Lexical activation context",
+				context);
+		itContext.setCell("it", test);
+
+		IokeObject jump = branch == 1 ? s.thenJump : s.elseJump;
+		if (jump != null) {
+			Object result = jump(jump, context, itContext, broken);
+			if (result != null) {
+				return result;
+			}
+		}
+		return Interpreter.getEvaluatedArgument(m, branch, itContext);
+	}
+}// LoopBody
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
+import ioke.lang.compiler.MessageCompiler;
 import ioke.lang.coverage.Coverage;
 import ioke.lang.coverage.CoverageInterpreter;
 import ioke.lang.exceptions.ControlFlow;
@@ -24,16 +25,61 @@ public class Main {
 			+ " -e script       execute the script. if provided, no program file is necessary.\n"
 			+ " -c, --coverage  collects coverage information and gives that to IKover after program run.\n"
 			+ "                 there can be many of these provided on the same command line.\n"
+			+ " --compile       compile hot method, block and loop bodies to JVM bytecode\n"
+			+ " --compile-threshold N\n"
+			+ "                 compile bodies after N invocations or loop iterations (implies --compile)\n"
+			+ " --integer-cache LOW:HIGH\n"
+			+ "                 always keep the integers from LOW to HIGH cached (default "
+			+ IntegerCache.DEFAULT_LOW + ":" + IntegerCache.DEFAULT_HIGH + ",\n"
+			+ "                 at most " + IntegerCache.MAX_SIZE + " integers)\n"
+			+ " --integer-cache-stats\n"
+			+ "                 print the hit rate of the integer cache when done\n"
 			+ " -h, --help      help, this message\n"
 			+ " -Idir           add directory to 'System loadPath'. May be used more than once\n"
 			+ " --copyright     print the copyright\n"
 			+ " --version       print current version\n";
 
+	/**
+	 * Parses LOW:HIGH into an array of two ints, or returns null if it
+	 * isn't a valid range for the integer cache.
+	 */
+	private static int[] parseRange(String range) {
+		int colon = range.indexOf(':');
+		if (colon == -1) {
+			return null;
+		}
+		try {
+			int low = Integer.parseInt(range.substring(0, colon));
+			int high = Integer.parseInt(range.substring(colon + 1));
+			return IntegerCache.isValidRange(low, high)
+					? new int[] { low, high } : null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a number larger than zero, or returns -1 if it isn't one.
+	 */
+	private static int parsePositive(String value) {
+		try {
+			int n = Integer.parseInt(value);
+			return n > 0 ? n : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
 	@SuppressWarnings("null")
 	public static void main(String[] args) throws Throwable {
 		boolean debug = false;
 		String cwd = null;
 		boolean coverage = false;
+		boolean compile = false;
+		int compileThreshold = MessageCompiler.DEFAULT_THRESHOLD;
+		int integerCacheLow = IntegerCache.DEFAULT_LOW;
+		int integerCacheHigh = IntegerCache.DEFAULT_HIGH;
+		boolean integerCacheStats = false;
 		String argError = null;
 		List<String> scripts = new ArrayList<>();
 		List<String> loadDirs = new ArrayList<>();
@@ -71,6 +117,30 @@ public class Main {
 					} else if (arg.equals("-c")
 							|| arg.equals("--coverage")) {
 						coverage = true;
+					} else if (arg.equals("--compile")) {
+						compile = true;
+					} else if (arg.equals("--compile-threshold")) {
+						compile = true;
+						String value = start + 1 < args.length
+								? args[++start] : "";
+						int threshold = parsePositive(value);
+						if (threshold != -1) {
+							compileThreshold = threshold;
+						} else {
+							argError = (arg + " " + value).trim();
+						}
+					} else if (arg.equals("--integer-cache")) {
+						String value = start + 1 < args.length
+								? args[++start] : "";
+						int[] range = parseRange(value);
+						if (range != null) {
+							integerCacheLow = range[0];
+							integerCacheHigh = range[1];
+						} else {
+							argError = (arg + " " + value).trim();
+						}
+					} else if (arg.equals("--integer-cache-stats")) {
+						integerCacheStats = true;
 					} else if (arg.equals("--version")) {
 						System.err.println(getVersion());
 						printedSomething = true;
@@ -101,6 +171,7 @@ public class Main {
 			iter = new Interpreter();
 		}
 		Runtime r = new Runtime(iter);
+		r.integers = new IntegerCache(r, integerCacheLow, integerCacheHigh);
 		try {
 			r.init();
 			final IokeObject context = r.ground;
@@ -113,6 +184,10 @@ public class Main {
 				r.debug = true;
 			}
 
+			if (compile) {
+				MessageCompiler.install(r, compileThreshold);
+			}
+
 			if (argError != null) {
 				final IokeObject condition = IokeObject
 						.as(IokeObject.getCellChain(r.condition, message,
@@ -188,6 +263,9 @@ public class Main {
 			}
 
 			r.tearDown();
+			if (integerCacheStats) {
+				System.err.println(r.integers);
+			}
 		} catch (ControlFlow.Exit e) {
 			int exitVal = e.getExitValue();
 			try {
@@ -200,6 +278,9 @@ public class Main {
 			} catch (ControlFlow.Exit e2) {
 				exitVal = e2.getExitValue();
 			}
+			if (integerCacheStats) {
+				System.err.println(r.integers);
+			}
 			System.exit(exitVal);
 		} catch (ControlFlow e) {
 			String name = e.getClass().getName();
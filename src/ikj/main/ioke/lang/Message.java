@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import ioke.lang.compiler.CodeProfile;
 import ioke.lang.exceptions.ControlFlow;
 import ioke.lang.parser.IokeParser;
 
@@ -21,6 +22,7 @@ public class Message extends IokeData {
 	private boolean		isTerminator;
 
 	public String		name;
+	int					selector;
 	private String		file;
 	private int			line;
 	private int			pos;
@@ -32,6 +34,69 @@ public class Message extends IokeData {
 
 	public Object		cached		= null;
 
+	InlineCache[]		inlineCache	= null;
+
+	PassCache			passCache	= null;
+
+	LexicalAddress[]	lexicalAddresses	= null;
+
+	/**
+	 * The versions of the compiled chains this message is part of.
+	 * Changing the name or the next pointer of the message, or replacing
+	 * it with become!, bumps all of them, which invalidates the code
+	 * compiled from those chains.
+	 */
+	private volatile CodeVersion[]	versions	= null;
+
+	/**
+	 * Invocation counters and compiled code for the chain starting
+	 * with this message, when running with a compiler.
+	 */
+	public CodeProfile	profile;
+
+	/**
+	 * The statements of this chain, when it's the body of a loop.
+	 */
+	LoopBody			loopBody;
+
+	/**
+	 * How the arguments of this message should be bound.
+	 */
+	ArgumentPlan		argumentPlan;
+
+	/**
+	 * Marks the message as part of the chain with the given version.
+	 */
+	public static void markCompiled(IokeObject message,
+			CodeVersion version) {
+		((Message) IokeObject.data(message)).addVersion(version);
+	}
+
+	private synchronized void addVersion(CodeVersion version) {
+		CodeVersion[] vs = versions;
+		if (vs == null) {
+			versions = new CodeVersion[] { version };
+			return;
+		}
+		for (CodeVersion v : vs) {
+			if (v == version) {
+				return;
+			}
+		}
+		vs = Arrays.copyOf(vs, vs.length + 1);
+		vs[vs.length - 1] = version;
+		versions = vs;
+	}
+
+	void changed() {
+		CodeVersion[] vs = versions;
+		if (vs != null) {
+			for (CodeVersion v : vs) {
+				v.bump();
+			}
+		}
+	}
+
 	public Message(Runtime runtime, String name) {
 		this(runtime, name, null, false);
 	}
@@ -47,7 +112,7 @@ public class Message extends IokeData {
 	public Message(Runtime runtime, String name, Object arg1,
 			boolean isTerminator) {
 		this.isTerminator = isTerminator;
-		this.name = name;
+		setName(runtime, name);
 
 		this.file = ((IokeSystem) IokeObject.data(runtime.system))
 				.currentFile();
@@ -1062,7 +1127,22 @@ public class Message extends IokeData {
 	}
 
 	public static void setName(IokeObject message, String name) {
-		((Message) IokeObject.data(message)).name = name;
+		((Message) IokeObject.data(message)).setName(message.runtime, name);
+	}
+
+	/**
+	 * Names are interned and resolved to their selector once, so that
+	 * the interpreter never has to do it during evaluation.
+	 */
+	private void setName(Runtime runtime, String name) {
+		changed();
+		if (name == null) {
+			this.name = null;
+			this.selector = -1;
+		} else {
+			this.name = name.intern();
+			this.selector = runtime.selectors.idOf(this.name);
+		}
 	}
 
 	public static void setArguments(IokeObject message,
@@ -1195,7 +1275,9 @@ public class Message extends IokeData {
 	@Override
 	public IokeData cloneData(IokeObject obj, IokeObject message,
 			IokeObject context) {
-		Message m = new Message(obj.runtime, name);
+		Message m = new Message(obj.runtime, null);
+		m.name = name;
+		m.selector = selector;
 		m.arguments = new ArrayList<>(
 				((Message) IokeObject.data(obj)).arguments);
 		m.isTerminator = ((Message) IokeObject.data(obj)).isTerminator;
@@ -1206,6 +1288,7 @@ public class Message extends IokeData {
 	}
 
 	public void setNext(IokeObject next) {
+		changed();
 		this.next = next;
 	}
 
@@ -1318,14 +1401,14 @@ public class Message extends IokeData {
 	}
 
 	public static void setNext(IokeObject message, IokeObject next) {
-		((Message) IokeObject.data(message)).next = next;
+		((Message) IokeObject.data(message)).setNext(next);
 	}
 
 	public static void setNextOfLast(IokeObject message, IokeObject next) {
 		while (next(message) != null) {
 			message = next(message);
 		}
-		((Message) IokeObject.data(message)).next = next;
+		((Message) IokeObject.data(message)).setNext(next);
 	}
 
 	public static String thisCode(IokeObject message) {
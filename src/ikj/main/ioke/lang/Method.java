@@ -16,6 +16,11 @@ import ioke.lang.exceptions.ControlFlow;
 public class Method extends IokeData implements Named, Inspectable {
 	String name;
 
+	/**
+	 * What super calls from this method have resolved to.
+	 */
+	SuperCache[] superCache;
+
 	public Method(String name, int type) {
 		super(type);
 		this.name = name;
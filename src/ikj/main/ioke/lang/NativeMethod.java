@@ -5,6 +5,7 @@
 package ioke.lang;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -83,15 +84,118 @@ public abstract class NativeMethod extends Method implements CanRun {
 		return getArguments().getCode(false);
 	}
 
+	static final Map<String, Object> NO_KEYWORDS = Collections.emptyMap();
+
 	public Object activate(IokeObject self, IokeObject context,
 			IokeObject message, Object on) throws ControlFlow {
+		DefaultArgumentsDefinition arguments = getArguments();
+		int arity = arguments.getFixedArity();
+		if (arity >= 0 && arity <= 2) {
+			ArgumentPlan plan = ArgumentPlan.of(message);
+			if (plan.isSimple() && plan.positional == arity) {
+				switch (arity) {
+					case 0:
+						return activate0(self, context, message, on);
+					case 1:
+						return activate1(self, context, message, on,
+								plan.evaluate(0, context));
+					default:
+						Object arg0 = plan.evaluate(0, context);
+						return activate2(self, context, message, on, arg0,
+								plan.evaluate(1, context));
+				}
+			}
+		}
+
 		List<Object> args = new ArrayList<>();
 		Map<String, Object> keywords = new HashMap<>();
-		getArguments().getEvaluatedArguments(context, message, on, args,
+		arguments.getEvaluatedArguments(context, message, on, args,
 				keywords);
+		if (arity >= 0 && arity <= 2) {
+			return activateArity(self, context, message, on, arity, args);
+		}
 		return activate(self, on, args, keywords, context, message);
 	}
 
+	/**
+	 * Calls the entry point for the given arity with arguments that have
+	 * been evaluated the general way, for example because of a splat.
+	 */
+	Object activateArity(IokeObject self, IokeObject context,
+			IokeObject message, Object on, int arity, List<Object> args)
+			throws ControlFlow {
+		switch (arity) {
+			case 0:
+				return activate0(self, context, message, on);
+			case 1:
+				return activate1(self, context, message, on, args.get(0));
+			default:
+				return activate2(self, context, message, on, args.get(0),
+						args.get(1));
+		}
+	}
+
+	/**
+	 * Called instead of the general activate for natives that take no
+	 * arguments at all. Natives that care about the cost of a call can
+	 * override this, and the corresponding activate1 and activate2.
+	 * By default they all collect the arguments into a list and call
+	 * the general activate.
+	 */
+	public Object activate0(IokeObject self, IokeObject context,
+			IokeObject message, Object on) throws ControlFlow {
+		return activate(self, on, new ArrayList<>(0), NO_KEYWORDS, context,
+				message);
+	}
+
+	public Object activate1(IokeObject self, IokeObject context,
+			IokeObject message, Object on, Object arg0) throws ControlFlow {
+		List<Object> args = new ArrayList<>(1);
+		args.add(arg0);
+		return activate(self, on, args, NO_KEYWORDS, context, message);
+	}
+
+	public Object activate2(IokeObject self, IokeObject context,
+			IokeObject message, Object on, Object arg0, Object arg1)
+			throws ControlFlow {
+		List<Object> args = new ArrayList<>(2);
+		args.add(arg0);
+		args.add(arg1);
+		return activate(self, on, args, NO_KEYWORDS, context, message);
+	}
+
+	/**
+	 * The builtin hash, == and <=> methods override this to return the
+	 * class of the data whose nativeHashCode, nativeEquals or
+	 * nativeSortKey gives the same answer as activating them, so that
+	 * objects used as keys in Dicts and Sets can be hashed and compared,
+	 * and lists can be sorted, without sending any messages.
+	 * IokeData.class means that the method only looks at the identity of
+	 * the object, whatever its data is. The builtin +, succ and pred on
+	 * numbers, and each on the builtin collections, do the same, so that
+	 * lists can be summed and collections iterated natively.
+	 */
+	Class<? extends IokeData> nativeKeyData() {
+		return null;
+	}
+
+	static Class<? extends IokeData> nativeKeyData(Object cell) {
+		if ((cell instanceof IokeObject)
+				&& (((IokeObject) cell).data instanceof NativeMethod)) {
+			return ((NativeMethod) ((IokeObject) cell).data).nativeKeyData();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the cell is the builtin method for objects with
+	 * the given kind of data, as described for nativeKeyData.
+	 */
+	public static boolean isBuiltin(Object cell,
+			Class<? extends IokeData> data) {
+		return nativeKeyData(cell) == data;
+	}
+
 	public static Object activateFixed(IokeObject self, IokeObject context,
 			IokeObject message, Object on) throws ControlFlow {
 		NativeMethod nm = (NativeMethod) self.data;
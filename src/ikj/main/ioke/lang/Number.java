@@ -26,14 +26,37 @@ import ioke.lang.exceptions.ControlFlow;
  * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
  */
 public class Number extends IokeData {
-	private final RatNum	value;
+	// created lazily for fixnums
+	private RatNum			value;
+	// integers that fit in a long are kept here, and the arithmetic
+	// on them only falls back on IntNum when it overflows
+	private final long		fixnum;
+	private final boolean	isFixnum;
 	private final boolean	kind;
 
 	public Number(RatNum value) {
 		this.value = value;
+		if ((value instanceof IntNum) && fitsInLong((IntNum) value)) {
+			this.fixnum = value.longValue();
+			this.isFixnum = true;
+		} else {
+			this.fixnum = 0;
+			this.isFixnum = false;
+		}
+		kind = false;
+	}
+
+	private Number(long value) {
+		this.fixnum = value;
+		this.isFixnum = true;
 		kind = false;
 	}
 
+	public static boolean fitsInLong(IntNum value) {
+		// canonical IntNums use at most two words for 64 bit values
+		return value.words == null || value.ival <= 2;
+	}
+
 	public static IntNum getFrom(long javaNumber) {
 		return IntNum.make(javaNumber);
 	}
@@ -49,6 +72,8 @@ public class Number extends IokeData {
 
 	private Number() {
 		this.value = IntNum.make(0);
+		this.fixnum = 0;
+		this.isFixnum = false;
 		kind = true;
 	}
 
@@ -57,7 +82,7 @@ public class Number extends IokeData {
 	}
 
 	public static Number integer(long val) {
-		return new Number(getFrom(val));
+		return new Number(val);
 	}
 
 	public static Number integer(IntNum val) {
@@ -69,23 +94,102 @@ public class Number extends IokeData {
 	}
 
 	public String asJavaString() {
+		if (isFixnum) {
+			return Long.toString(fixnum);
+		}
 		return value.toString();
 	}
 
 	public int asJavaInteger() {
+		if (isFixnum) {
+			return (int) fixnum;
+		}
 		return value.intValue();
 	}
 
 	public long asJavaLong() {
+		if (isFixnum) {
+			return fixnum;
+		}
 		return value.longValue();
 	}
 
 	public RatNum getValue() {
-		return value;
+		RatNum v = value;
+		if (v == null) {
+			value = v = IntNum.make(fixnum);
+		}
+		return v;
+	}
+
+	public boolean isFixnum() {
+		return isFixnum;
+	}
+
+	/**
+	 * Returns the value of an integer that fits in a long. Only valid if
+	 * isFixnum returns true.
+	 */
+	public long getFixnum() {
+		return fixnum;
+	}
+
+	/**
+	 * Returns the Number data of the argument if it's an integer that
+	 * fits in a long, otherwise null.
+	 */
+	public static Number fixnum(Object number) {
+		IokeData data = IokeObject.data(number);
+		if ((data instanceof Number) && ((Number) data).isFixnum) {
+			return (Number) data;
+		}
+		return null;
+	}
+
+	boolean valueEquals(Number other) {
+		if (isFixnum && other.isFixnum) {
+			return fixnum == other.fixnum;
+		}
+		return getValue().equals(other.getValue());
+	}
+
+	/**
+	 * Returns the same hash as the IntNum or RatNum of this number.
+	 */
+	int hash() {
+		if (isFixnum) {
+			int low = (int) fixnum;
+			return low == fixnum ? low : low + (int) (fixnum >> 32);
+		}
+		return getValue().hashCode();
+	}
+
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		if (isFixnum) {
+			Number y = fixnum(other);
+			if (y != null) {
+				return fixnum == y.fixnum;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	int nativeHashCode(IokeObject self) {
+		return hash();
+	}
+
+	@Override
+	Comparable<?> nativeSortKey(IokeObject self) {
+		return isFixnum ? Long.valueOf(fixnum) : null;
 	}
 
 	@Override
 	public IokeObject negate(IokeObject obj) {
+		if (isFixnum && fixnum != Long.MIN_VALUE) {
+			return obj.runtime.newNumber(-fixnum);
+		}
 		return obj.runtime
 				.newNumber((RatNum) RatNum.neg(Number.value(obj)));
 	}
@@ -129,11 +233,11 @@ public class Number extends IokeData {
 	}
 
 	public static RatNum value(Object number) {
-		return ((Number) IokeObject.data(number)).value;
+		return ((Number) IokeObject.data(number)).getValue();
 	}
 
 	public static IntNum intValue(Object number) {
-		return (IntNum) ((Number) IokeObject.data(number)).value;
+		return (IntNum) ((Number) IokeObject.data(number)).getValue();
 	}
 
 	public static int extractInt(Object number, IokeObject m,
@@ -142,7 +246,7 @@ public class Number extends IokeData {
 			number = IokeObject.convertToNumber(number, m, context);
 		}
 
-		return intValue(number).intValue();
+		return ((Number) IokeObject.data(number)).asJavaInteger();
 	}
 
 	@Override
@@ -208,6 +312,11 @@ public class Number extends IokeData {
 		number.registerMethod(
 				runtime.newNativeMethod("returns a hash for the number",
 						new NativeMethod.WithNoArguments("hash") {
+							@Override
+							Class<? extends IokeData> nativeKeyData() {
+								return Number.class;
+							}
+
 							@Override
 							public Object activate(IokeObject method,
 									IokeObject context, IokeObject message,
@@ -218,8 +327,7 @@ public class Number extends IokeData {
 										new HashMap<String, Object>());
 								return context.runtime
 										.newNumber(((Number) IokeObject
-												.data(on)).value
-														.hashCode());
+												.data(on)).hash());
 							}
 						}));
 
@@ -235,7 +343,7 @@ public class Number extends IokeData {
 								new HashMap<String, Object>());
 
 						RatNum value = ((Number) IokeObject
-								.data(on)).value;
+								.data(on)).getValue();
 						if (value instanceof IntFraction) {
 							IntNum num = value.numerator();
 							IntNum den = value.denominator();
@@ -305,9 +413,8 @@ public class Number extends IokeData {
 								&& (((d.kind || ((Number) IokeObject
 										.data(other)).kind)
 												? on == other
-												: d.value
-														.equals(((Number) IokeObject
-																.data(other)).value))))
+												: d.valueEquals((Number) IokeObject
+														.data(other)))))
 																		? context.runtime._true
 																		: context.runtime._false;
 					}
@@ -327,13 +434,14 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
+					Class<? extends IokeData> nativeKeyData() {
+						return Number.class;
+					}
 
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Decimal) {
@@ -360,6 +468,15 @@ public class Number extends IokeData {
 								return context.runtime.nil;
 							}
 
+							Number x = fixnum(on);
+							Number y = fixnum(arg);
+							if (x != null && y != null) {
+								return context.runtime.newNumber(
+										x.fixnum < y.fixnum ? -1
+												: (x.fixnum == y.fixnum ? 0
+														: 1));
+							}
+
 							return context.runtime.newNumber(
 									IntNum.compare(Number.value(on),
 											Number.value(arg)));
@@ -411,12 +528,14 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
+					Class<? extends IokeData> nativeKeyData() {
+						return Number.class;
+					}
+
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						if (on == rational || arg == rational
 								|| on == integer || arg == integer
 								|| on == ratio || arg == ratio
@@ -434,6 +553,13 @@ public class Number extends IokeData {
 											: context.runtime._false;
 						} else if (IokeObject
 								.data(arg) instanceof Number) {
+							Number x = fixnum(on);
+							Number y = fixnum(arg);
+							if (x != null && y != null) {
+								return x.fixnum == y.fixnum
+										? context.runtime._true
+										: context.runtime._false;
+							}
 							return IntNum.compare(Number.value(on),
 									Number.value(arg)) == 0
 											? context.runtime._true
@@ -458,13 +584,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Decimal) {
@@ -480,6 +602,15 @@ public class Number extends IokeData {
 										message, context, true);
 							}
 
+							Number x = fixnum(on);
+							Number y = fixnum(arg);
+							if (x != null && y != null) {
+								long a = x.fixnum, b = y.fixnum, r = a - b;
+								if (((a ^ b) & (a ^ r)) >= 0) {
+									return context.runtime.newNumber(r);
+								}
+							}
+
 							return context.runtime
 									.newNumber((RatNum) Number.value(on)
 											.sub(Number.value(arg)));
@@ -501,13 +632,14 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
+					Class<? extends IokeData> nativeKeyData() {
+						return Number.class;
+					}
 
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Decimal) {
@@ -523,6 +655,15 @@ public class Number extends IokeData {
 										message, context, true);
 							}
 
+							Number x = fixnum(on);
+							Number y = fixnum(arg);
+							if (x != null && y != null) {
+								long a = x.fixnum, b = y.fixnum, r = a + b;
+								if (((a ^ r) & (b ^ r)) >= 0) {
+									return context.runtime.newNumber(r);
+								}
+							}
+
 							return context.runtime
 									.newNumber(RatNum.add(Number.value(on),
 											Number.value(arg), 1));
@@ -544,13 +685,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (data instanceof Decimal) {
@@ -566,6 +703,18 @@ public class Number extends IokeData {
 										message, context, true);
 							}
 
+							Number x = fixnum(on);
+							Number y = fixnum(arg);
+							if (x != null && y != null) {
+								long a = x.fixnum, b = y.fixnum, r = a * b;
+								if ((((Math.abs(a) | Math.abs(b)) >>> 31) == 0
+										|| b == 0 || (r / b == a
+												&& (a != Long.MIN_VALUE
+														|| b != -1)))) {
+									return context.runtime.newNumber(r);
+								}
+							}
+
 							return context.runtime.newNumber(RatNum.times(
 									Number.value(on), Number.value(arg)));
 						}
@@ -677,13 +826,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -691,6 +836,19 @@ public class Number extends IokeData {
 									message, context, true);
 						}
 
+						Number x = fixnum(on);
+						Number y = fixnum(arg);
+						if (x != null && y != null) {
+							if (y.fixnum == 0) {
+								return on;
+							}
+							long r = x.fixnum % y.fixnum;
+							if (r != 0 && (r ^ y.fixnum) < 0) {
+								r += y.fixnum;
+							}
+							return context.runtime.newNumber(r);
+						}
+
 						return context.runtime.newNumber(
 								IntNum.modulo(Number.intValue(on),
 										Number.intValue(arg)));
@@ -864,13 +1022,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -906,13 +1060,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -940,13 +1090,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -974,13 +1120,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -1008,13 +1150,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -1042,13 +1180,9 @@ public class Number extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
-
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						IokeData data = IokeObject.data(arg);
 
 						if (!(data instanceof Number)) {
@@ -1066,11 +1200,9 @@ public class Number extends IokeData {
 				"Returns a text representation of the object",
 				new NativeMethod.WithNoArguments("asText") {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return runtime.newText(on.toString());
 					}
 				}));
@@ -1080,11 +1212,9 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						number) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(Number.getInspect(on));
 					}
@@ -1095,11 +1225,9 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						number) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(Number.getInspect(on));
 					}
@@ -1110,11 +1238,18 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("succ",
 						integer) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					Class<? extends IokeData> nativeKeyData() {
+						return Number.class;
+					}
+
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						Number x = fixnum(on);
+						if (x != null && x.fixnum != Long.MAX_VALUE) {
+							return runtime.newNumber(x.fixnum + 1);
+						}
 						return runtime.newNumber(IntNum
 								.add(Number.intValue(on), IntNum.one()));
 					}
@@ -1125,11 +1260,18 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("pred",
 						integer) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					Class<? extends IokeData> nativeKeyData() {
+						return Number.class;
+					}
+
+					@Override
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						Number x = fixnum(on);
+						if (x != null && x.fixnum != Long.MIN_VALUE) {
+							return runtime.newNumber(x.fixnum - 1);
+						}
 						return runtime.newNumber(IntNum
 								.sub(Number.intValue(on), IntNum.one()));
 					}
@@ -1140,11 +1282,9 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						infinity) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText("Infinity");
 					}
 				}));
@@ -1154,11 +1294,9 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						infinity) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText("Infinity");
 					}
 				}));
@@ -1168,11 +1306,9 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						infinity2) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText("\u221E");
 					}
 				}));
@@ -1182,11 +1318,9 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						infinity2) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText("\u221E");
 					}
 				}));
@@ -1252,11 +1386,9 @@ public class Number extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("char",
 						integer) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return runtime.newText(String.valueOf(
 								(char) Number.intValue(on).intValue()));
 					}
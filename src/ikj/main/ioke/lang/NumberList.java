@@ -0,0 +1,261 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The storage of a List. As long as all its elements are integers from
+ * the permanently cached range of the integer cache, they are kept
+ * unboxed in a long array, and the Integer objects are only looked up in
+ * the cache when an element is asked for. Since the cache always hands
+ * out the same object for those values, the list still gives back the
+ * objects that were put into it. As soon as anything else is put into
+ * the list, all the elements are boxed into an ArrayList that is used
+ * from then on. A list of a million small integers is then a single
+ * array of longs instead of a million references.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public final class NumberList extends AbstractList<Object>
+		implements RandomAccess {
+	private static final long[]	EMPTY	= new long[0];
+
+	private final Runtime		runtime;
+	// null once the list has switched to holding objects
+	private long[]				longs;
+	private int					size;
+	private ArrayList<Object>	objects;
+
+	public NumberList(Runtime runtime) {
+		this.runtime = runtime;
+		this.longs = EMPTY;
+	}
+
+	private NumberList(Runtime runtime, long[] longs, int size) {
+		this.runtime = runtime;
+		this.longs = longs;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the storage to use for a new list with these elements -
+	 * a NumberList if all of them are permanently cached integers,
+	 * otherwise the list itself.
+	 */
+	public static List<Object> storageFor(Runtime runtime,
+			List<Object> elements) {
+		if (elements instanceof NumberList) {
+			return elements;
+		}
+		int n = elements.size();
+		long[] values = n == 0 ? EMPTY : new long[n];
+		for (int i = 0; i < n; i++) {
+			Object o = elements.get(i);
+			if (!runtime.integers.isPermanent(o)) {
+				return elements;
+			}
+			values[i] = ((Number) ((IokeObject) o).data).getFixnum();
+		}
+		return new NumberList(runtime, values, n);
+	}
+
+	/**
+	 * Returns a new list with the same elements, keeping them unboxed if
+	 * they are in the original.
+	 */
+	public static List<Object> copyOf(Runtime runtime, List<Object> list) {
+		if (list instanceof NumberList) {
+			NumberList nl = (NumberList) list;
+			if (nl.longs != null) {
+				return new NumberList(runtime,
+						Arrays.copyOf(nl.longs, nl.size), nl.size);
+			}
+		}
+		return new ArrayList<>(list);
+	}
+
+	/**
+	 * Returns true if all the elements are kept unboxed.
+	 */
+	public boolean isPrimitive() {
+		return longs != null;
+	}
+
+	/**
+	 * Returns true if all the elements are kept unboxed, and none of the
+	 * Integer objects for them has cells or mimics of its own, so that
+	 * the elements can be added and compared as plain longs.
+	 */
+	public boolean isPlain() {
+		if (longs == null) {
+			return false;
+		}
+		IntegerCache integers = runtime.integers;
+		for (int i = 0; i < size; i++) {
+			if (!integers.isPlain(longs[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the unboxed elements. Only the first size() of them are
+	 * valid, and only if isPrimitive returns true.
+	 */
+	long[] longValues() {
+		return longs;
+	}
+
+	/**
+	 * Sorts the unboxed elements in numeric order. Only valid if
+	 * isPrimitive returns true.
+	 */
+	void sortLongs() {
+		Arrays.sort(longs, 0, size);
+		modCount++;
+	}
+
+	private void generalize() {
+		ArrayList<Object> result = new ArrayList<>(
+				Math.max(size + (size >> 1), 10));
+		for (int i = 0; i < size; i++) {
+			result.add(runtime.newNumber(longs[i]));
+		}
+		objects = result;
+		longs = null;
+		size = 0;
+	}
+
+	private boolean fits(Object element) {
+		if (longs == null) {
+			return false;
+		}
+		if (runtime.integers.isPermanent(element)) {
+			return true;
+		}
+		generalize();
+		return false;
+	}
+
+	private static long value(Object element) {
+		return ((Number) ((IokeObject) element).data).getFixnum();
+	}
+
+	private void checkIndex(int index, int max) {
+		if (index < 0 || index >= max) {
+			throw new IndexOutOfBoundsException(
+					"Index: " + index + ", Size: " + size);
+		}
+	}
+
+	@Override
+	public int size() {
+		return longs == null ? objects.size() : size;
+	}
+
+	@Override
+	public Object get(int index) {
+		if (longs == null) {
+			return objects.get(index);
+		}
+		checkIndex(index, size);
+		return runtime.newNumber(longs[index]);
+	}
+
+	@Override
+	public Object set(int index, Object element) {
+		if (fits(element)) {
+			checkIndex(index, size);
+			long old = longs[index];
+			longs[index] = value(element);
+			return runtime.newNumber(old);
+		}
+		return objects.set(index, element);
+	}
+
+	@Override
+	public void add(int index, Object element) {
+		if (fits(element)) {
+			checkIndex(index, size + 1);
+			if (size == longs.length) {
+				longs = Arrays.copyOf(longs,
+						Math.max(size + (size >> 1), 10));
+			}
+			System.arraycopy(longs, index, longs, index + 1, size - index);
+			longs[index] = value(element);
+			size++;
+			modCount++;
+			return;
+		}
+		objects.add(index, element);
+		modCount++;
+	}
+
+	@Override
+	public Object remove(int index) {
+		if (longs == null) {
+			modCount++;
+			return objects.remove(index);
+		}
+		checkIndex(index, size);
+		long old = longs[index];
+		System.arraycopy(longs, index + 1, longs, index, size - index - 1);
+		size--;
+		modCount++;
+		return runtime.newNumber(old);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Object> c) {
+		if (longs == null) {
+			modCount++;
+			return objects.addAll(c);
+		}
+		return super.addAll(c);
+	}
+
+	@Override
+	public void clear() {
+		if (longs == null) {
+			objects.clear();
+		} else {
+			size = 0;
+		}
+		modCount++;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if ((other instanceof NumberList) && longs != null
+				&& ((NumberList) other).longs != null) {
+			NumberList o = (NumberList) other;
+			if (o.size != size) {
+				return false;
+			}
+			for (int i = 0; i < size; i++) {
+				if (longs[i] != o.longs[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return super.equals(other);
+	}
+
+	@Override
+	public int hashCode() {
+		if (longs == null) {
+			return objects.hashCode();
+		}
+		return super.hashCode();
+	}
+}// NumberList
@@ -55,6 +55,11 @@ public class Pair extends IokeData {
 		obj.registerMethod(
 				runtime.newNativeMethod("returns a hash for the pair",
 						new NativeMethod.WithNoArguments("hash") {
+							@Override
+							Class<? extends IokeData> nativeKeyData() {
+								return Pair.class;
+							}
+
 							@Override
 							public Object activate(IokeObject method,
 									IokeObject context, IokeObject message,
@@ -85,6 +90,11 @@ public class Pair extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return Pair.class;
+					}
+
 					@Override
 					public Object activate(IokeObject self, Object on,
 							List<Object> args,
@@ -94,16 +104,10 @@ public class Pair extends IokeData {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
-						Pair d = (Pair) IokeObject.data(on);
-						Object other = args.get(0);
-						return ((other instanceof IokeObject)
-								&& (IokeObject.data(other) instanceof Pair)
-								&& d.first.equals(((Pair) IokeObject
-										.data(other)).first)
-								&& d.second.equals(((Pair) IokeObject
-										.data(other)).second))
-												? context.runtime._true
-												: context.runtime._false;
+						return ((Pair) IokeObject.data(on)).nativeEquals(
+								IokeObject.as(on, context), args.get(0))
+										? context.runtime._true
+										: context.runtime._false;
 					}
 				}));
 
@@ -168,11 +172,9 @@ public class Pair extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						runtime.pair) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText(Pair.getInspect(on));
 					}
 				}));
@@ -182,11 +184,9 @@ public class Pair extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						runtime.pair) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText(Pair.getNotice(on));
 					}
 				}));
@@ -206,6 +206,19 @@ public class Pair extends IokeData {
 		return ((Pair) (IokeObject.data(on))).notice(on);
 	}
 
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		return (other instanceof IokeObject)
+				&& (IokeObject.data(other) instanceof Pair)
+				&& first.equals(((Pair) IokeObject.data(other)).first)
+				&& second.equals(((Pair) IokeObject.data(other)).second);
+	}
+
+	@Override
+	int nativeHashCode(IokeObject self) {
+		return first.hashCode() + 13 * second.hashCode();
+	}
+
 	@Override
 	public String toString() {
 		return "" + first + " => " + second;
@@ -0,0 +1,157 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * Remembers, on a message node, that the last send from it didn't find
+ * its cell and went to pass instead. The entry is keyed like an
+ * {@link InlineCache} entry, by the shape and the single mimic of the
+ * receiver and the selector looked up, and is only valid as long as the
+ * global body version hasn't changed since it was filled. A matching
+ * entry means that neither the cell nor pass can be found on the
+ * receiver itself, and that pass resolves to the same object as before.
+ *
+ * The entry also remembers what the applicable? cell of the pass object
+ * says. If there is no such cell, or if it isn't activatable, the answer
+ * doesn't depend on the message and is kept. Otherwise applicable? is
+ * activated for every send, but without looking it up again.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class PassCache {
+	private static final int	ALWAYS	= 0;
+	private static final int	NEVER	= 1;
+	private static final int	ASK		= 2;
+
+	final Shape					shape;
+	final IokeObject			mimic;
+	final int					selector;
+	final Object				pass;
+	final int					version;
+	final int					applicability;
+	final Object				applicable;
+
+	private PassCache(Shape shape, IokeObject mimic, int selector,
+			Object pass, int version, int applicability,
+			Object applicable) {
+		this.shape = shape;
+		this.mimic = mimic;
+		this.selector = selector;
+		this.pass = pass;
+		this.version = version;
+		this.applicability = applicability;
+		this.applicable = applicable;
+	}
+
+	/**
+	 * Returns the pass cell to use for a send of the selector from the
+	 * message, if the entry on the message covers the receiver. If pass
+	 * isn't applicable to the message, nul is returned instead. If the
+	 * entry doesn't cover the receiver, returns null.
+	 */
+	static Object find(IokeObject message, IokeObject ctx, IokeObject on,
+			int selector) throws ControlFlow {
+		if (!(message.data instanceof Message)) {
+			return null;
+		}
+		PassCache e = ((Message) message.data).passCache;
+		if (e == null || e.mimic == null || e.selector != selector
+				|| e.version != Body.version()) {
+			return null;
+		}
+
+		Body b = on.body;
+		if (b.mimicCount != 1 || b.mimic != e.mimic || on.isLexical()) {
+			return null;
+		}
+		Shape shape = b.shape();
+		if (e.shape == null) {
+			if (!shape.dictionary || b.get(selector) != null
+					|| b.get(Selectors.PASS) != null) {
+				return null;
+			}
+		} else if (shape != e.shape) {
+			return null;
+		}
+
+		if (e.isApplicable(message, ctx)) {
+			return e.pass;
+		}
+		return ctx.runtime.nul;
+	}
+
+	/**
+	 * Returns true if the pass cell, found for a send of the selector to
+	 * the receiver that didn't find its cell, applies to the message.
+	 * Fills the entry on the message as a side effect.
+	 */
+	static boolean isApplicable(IokeObject message, IokeObject ctx,
+			IokeObject on, int selector, Object pass) throws ControlFlow {
+		if (!(message.data instanceof Message)) {
+			return Interpreter.isApplicable(pass, message, ctx);
+		}
+
+		Message m = (Message) message.data;
+		int version = Body.version();
+		PassCache e = m.passCache;
+		int applicability;
+		Object applicable;
+		if (e != null && e.pass == pass && e.version == version) {
+			applicability = e.applicability;
+			applicable = e.applicable;
+		} else {
+			applicable = IokeObject.findCellObserved(
+					IokeObject.as(pass, ctx), Selectors.APPLICABLE);
+			if (applicable == ctx.runtime.nul) {
+				applicability = ALWAYS;
+			} else if (applicable instanceof IokeObject
+					&& (((IokeObject) applicable).isActivatable()
+							|| ((IokeObject) applicable).data instanceof CanRun)) {
+				applicability = ASK;
+			} else {
+				applicability = IokeObject.isTrue(applicable) ? ALWAYS
+						: NEVER;
+			}
+		}
+
+		Shape shape = null;
+		IokeObject mimic = null;
+		Body b = on.body;
+		if (b.mimicCount == 1 && !on.isLexical()
+				&& b.get(Selectors.PASS) == null) {
+			mimic = b.mimic;
+			shape = b.shape();
+			if (shape.dictionary) {
+				shape = null;
+			}
+		}
+
+		e = new PassCache(shape, mimic, selector, pass, version,
+				applicability, applicable);
+		m.passCache = e;
+		return e.isApplicable(message, ctx);
+	}
+
+	private boolean isApplicable(IokeObject message, IokeObject ctx)
+			throws ControlFlow {
+		switch (applicability) {
+			case ALWAYS:
+				return true;
+			case NEVER:
+				return false;
+			default:
+				Runtime runtime = ctx.runtime;
+				IokeObject m = runtime.isApplicableMessage
+						.allocateCopy(runtime.isApplicableMessage, ctx);
+				m.getArguments().clear();
+				m.getArguments()
+						.add(runtime.createMessage(Message.wrap(message)));
+				return IokeObject.isTrue(Interpreter.getOrActivate(
+						applicable, ctx, m, pass));
+		}
+	}
+}// PassCache
@@ -54,6 +54,14 @@ public class Range extends IokeData {
 		return inclusive;
 	}
 
+	public static boolean isInverted(Object range) {
+		return ((Range) IokeObject.data(range)).isInverted();
+	}
+
+	public boolean isInverted() {
+		return inverted;
+	}
+
 	private static class RangeIterator implements Iterator<Object> {
 		private IokeObject		start;
 		private IokeObject		end;
@@ -301,11 +309,9 @@ public class Range extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("from",
 						runtime.range) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						getArguments().getEvaluatedArguments(context,
 								message, on, new ArrayList<>(),
 								new HashMap<String, Object>());
@@ -332,11 +338,9 @@ public class Range extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("seq",
 						runtime.range) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						IokeObject obj = method.runtime.iteratorSequence
 								.allocateCopy(null, null);
 						obj.singleMimicsWithoutCheck(
@@ -365,6 +369,11 @@ public class Range extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return Range.class;
+					}
+
 					@Override
 					public Object activate(IokeObject method,
 							IokeObject context, IokeObject message,
@@ -31,6 +31,21 @@ public class Restart {
 						runtime.message, runtime.ground));
 	}
 
+	private static final DefaultArgumentsDefinition REPORT_ARGUMENTS = DefaultArgumentsDefinition
+			.builder().withRequiredPositional("r").getArguments();
+
+	/**
+	 * Returns a block that takes a restart and gives back the report
+	 * text, built directly instead of by evaluating Ioke code.
+	 */
+	static IokeObject report(Runtime runtime, String report)
+			throws ControlFlow {
+		return runtime.newLexicalBlock(null, runtime.lexicalBlock,
+				new LexicalBlock(runtime.ground, REPORT_ARGUMENTS,
+						runtime.createMessage(Message
+								.wrap(runtime.newText(report)))));
+	}
+
 	public abstract static class JavaRestart {
 		protected String name;
 
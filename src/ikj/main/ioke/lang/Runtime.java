@@ -14,16 +14,21 @@ import java.io.StringReader;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import gnu.math.IntFraction;
 import gnu.math.IntNum;
 import gnu.math.RatNum;
+import ioke.lang.compiler.MessageCompiler;
 import ioke.lang.exceptions.ControlFlow;
 import ioke.lang.java.ClassRegistry;
+import ioke.lang.util.PersistentHashMap;
+import ioke.lang.util.PersistentVector;
 
 /**
  *
@@ -39,6 +44,11 @@ public class Runtime extends IokeData {
 	}
 
 	public boolean				debug						= false;
+	/**
+	 * The selectors of the names used in this runtime, and the roots of
+	 * its shapes. Has to be created before any object.
+	 */
+	final Selectors				selectors					= new Selectors();
 	private final int			id							= getNextId();
 	// NOT TO BE EXPOSED TO Ioke - used for internal usage only
 	public final IokeObject		nul							= new IokeObject(
@@ -54,6 +64,17 @@ public class Runtime extends IokeData {
 	public ClassRegistry		classRegistry				= new ClassRegistry(
 			this);
 	public final Interpreter	interpreter;
+	/**
+	 * When set, method and block bodies will be compiled to JVM
+	 * bytecode.
+	 */
+	public MessageCompiler		compiler					= null;
+	/**
+	 * Where Integer objects come from. Can be set before init is called,
+	 * to change the cached range - otherwise init creates one with the
+	 * default range.
+	 */
+	public IntegerCache			integers					= null;
 
 	// Core objects and origins
 	public IokeObject			base						= new IokeObject(
@@ -163,6 +184,18 @@ public class Runtime extends IokeData {
 			this,
 			"A tuple is a collection of objects of any kind. It is immutable and supports destructuring.",
 			new Tuple(new Object[0]));
+	public IokeObject			immutableList				= new IokeObject(
+			this,
+			"An immutable list is a list that can't be changed. Adding or replacing elements returns a new list sharing most of its structure with the old one.",
+			new ImmutableList());
+	public IokeObject			immutableDict				= new IokeObject(
+			this,
+			"An immutable dict is a dictionary that can't be changed. Adding or removing keys returns a new dict sharing most of its structure with the old one.",
+			new ImmutableDict());
+	public IokeObject			immutableSet				= new IokeObject(
+			this,
+			"An immutable set is a set that can't be changed. Adding or removing elements returns a new set sharing most of its structure with the old one.",
+			new ImmutableSet());
 	public IokeObject			call						= new IokeObject(
 			this,
 			"A call is the runtime structure that includes the specific information for a call, that is available inside a DefaultMacro.",
@@ -219,6 +252,11 @@ public class Runtime extends IokeData {
 			"The root mimic of all the key-value-iterator sequences in the system.",
 			new Sequence.KeyValueIteratorSequence(
 					new HashMap<>().entrySet().iterator()));
+	public IokeObject			lazySequence				= new IokeObject(
+			this,
+			"The root mimic of all the lazy sequences in the system.",
+			new Sequence.LazySequence(Sequence.Source
+					.of(java.util.Arrays.asList().iterator())));
 
 	public IokeObject			integer						= null;
 	public IokeObject			decimal						= null;
@@ -426,6 +464,9 @@ public class Runtime extends IokeData {
 	}
 
 	public void init() throws ControlFlow {
+		if (integers == null) {
+			integers = new IntegerCache(this);
+		}
 		Base.init(base);
 		DefaultBehavior.init(defaultBehavior);
 		Mixins.init(mixins);
@@ -448,6 +489,9 @@ public class Runtime extends IokeData {
 		list.init();
 		dict.init();
 		set.init();
+		immutableList.init();
+		immutableDict.init();
+		immutableSet.init();
 		call.init();
 		Locals.init(locals);
 		Condition.init(condition);
@@ -526,10 +570,12 @@ public class Runtime extends IokeData {
 
 		Reflector.init(this);
 		Hook.init(this);
+		Threading.init(this);
 
 		Sequence.init(sequence);
 		iteratorSequence.init();
 		keyValueIteratorSequence.init();
+		lazySequence.init();
 
 		afterInitRuntime(runtime);
 
@@ -576,6 +622,8 @@ public class Runtime extends IokeData {
 			evaluateString("use(\"builtin/D30_dict\")", message, ground);
 			evaluateString("use(\"builtin/D35_pair\")", message, ground);
 			evaluateString("use(\"builtin/D37_tuple\")", message, ground);
+			evaluateString("use(\"builtin/D38_immutable\")", message,
+					ground);
 			evaluateString("use(\"builtin/D40_text\")", message, ground);
 			evaluateString("use(\"builtin/D43_regexp\")", message, ground);
 			evaluateString("use(\"builtin/D45_fileSystem\")", message,
@@ -607,6 +655,8 @@ public class Runtime extends IokeData {
 			evaluateString("use(\"builtin/M05_ignoreErrors\")", message,
 					ground);
 			evaluateString("use(\"builtin/O05_misc\")", message, ground);
+			evaluateString("use(\"builtin/T01_threading\")", message,
+					ground);
 
 			evaluateString("use(\"builtin/J05_javaGround\")", message,
 					ground);
@@ -873,6 +923,7 @@ public class Runtime extends IokeData {
 	public IokeObject newLexicalContext(Object ground,
 			String documentation, IokeObject surroundingContext) {
 		IokeObject obj = this.lexicalContext.allocateCopy(null, null);
+		obj.body.useContextShapes();
 		obj.singleMimicsWithoutCheck(this.lexicalContext);
 		obj.setData(new LexicalContext(ground, surroundingContext));
 		obj.setKind("LexicalContext");
@@ -924,12 +975,11 @@ public class Runtime extends IokeData {
 				obj.singleMimicsWithoutCheck(objWrap);
 				obj.setData(JavaWrapper.wrapWithMethods(clz, obj, this));
 
-				Body.Cell c = obj.body.firstAdded;
-				while (c != null) {
-					if (c.name.startsWith("class:")) {
-						objWrap.body.put(c.name, c.value);
+				Body b = obj.body;
+				for (int i = 0, n = b.count(); i < n; i++) {
+					if (b.nameAt(i).startsWith("class:")) {
+						objWrap.body.put(b.nameAt(i), b.valueAt(i));
 					}
-					c = c.orderedNext;
 				}
 
 				return obj;
@@ -997,21 +1047,11 @@ public class Runtime extends IokeData {
 	}
 
 	public IokeObject newNumber(long number) {
-		return newNumber(Number.getFrom(number));
+		return integers.get(number);
 	}
 
-	private Map<IntNum, IokeObject> numCache = new HashMap<>();
-
 	public IokeObject newNumber(IntNum number) {
-		IokeObject obj = null;
-		obj = numCache.get(number);
-		if (obj == null) {
-			obj = this.integer.allocateCopy(null, null);
-			obj.singleMimicsWithoutCheck(this.integer);
-			obj.setData(Number.integer(number));
-			numCache.put(number, obj);
-		}
-		return obj;
+		return integers.get(number);
 	}
 
 	public IokeObject newNumber(RatNum number) {
@@ -1094,6 +1134,27 @@ public class Runtime extends IokeData {
 		return obj;
 	}
 
+	public IokeObject newImmutableList(PersistentVector<Object> vector) {
+		IokeObject obj = immutableList.allocateCopy(null, null);
+		obj.singleMimicsWithoutCheck(immutableList);
+		obj.setData(new ImmutableList(vector));
+		return obj;
+	}
+
+	public IokeObject newImmutableDict(PersistentHashMap<Object, Object> map) {
+		IokeObject obj = immutableDict.allocateCopy(null, null);
+		obj.singleMimicsWithoutCheck(immutableDict);
+		obj.setData(new ImmutableDict(map));
+		return obj;
+	}
+
+	public IokeObject newImmutableSet(PersistentHashMap<Object, Object> map) {
+		IokeObject obj = immutableSet.allocateCopy(null, null);
+		obj.singleMimicsWithoutCheck(immutableSet);
+		obj.setData(new ImmutableSet(map));
+		return obj;
+	}
+
 	public void errorCondition(IokeObject cond) throws ControlFlow {
 		Interpreter.send(errorMessage, ground, ground,
 				createMessage(Message.wrap(cond)));
@@ -1183,31 +1244,7 @@ public class Runtime extends IokeData {
 		BindIndex index = getBindIndex();
 
 		for (Restart.JavaRestart rjr : restarts) {
-			IokeObject rr = IokeObject.as(
-					Interpreter.send(mimic, context, restart), context);
-			IokeObject.setCell(rr, "name", getSymbol(rjr.getName()),
-					context);
-
-			List<Object> args = new ArrayList<>();
-			for (String argName : rjr.getArgumentNames()) {
-				args.add(getSymbol(argName));
-			}
-
-			IokeObject.setCell(rr, "name", getSymbol(rjr.getName()),
-					context);
-			IokeObject.setCell(rr, "argumentNames", newList(args),
-					context);
-
-			String report = rjr.report();
-			if (report != null) {
-				IokeObject.setCell(rr, "report",
-						evaluateString("fn(r, \"" + report + "\")",
-								message, ground),
-						context);
-			}
-
-			rrs.add(0,
-					new RestartInfo(rjr.getName(), rr, rrs, index, rjr));
+			rrs.add(0, new RestartInfo(this, rjr.getName(), rrs, index, rjr));
 			index = index.nextCol();
 		}
 		registerRestarts(rrs);
@@ -1232,16 +1269,8 @@ public class Runtime extends IokeData {
 
 	public void withReturningRestart(String name, IokeObject context,
 			RunnableWithControlFlow code) throws ControlFlow {
-		IokeObject rr = IokeObject
-				.as(Interpreter.send(mimic, context, restart), context);
-		IokeObject.setCell(rr, "name", getSymbol(name), context);
-		IokeObject.setCell(rr, "argumentNames", newList(new ArrayList<>()),
-				context);
-
 		List<RestartInfo> rrs = new ArrayList<>();
-		BindIndex index = getBindIndex();
-		rrs.add(0, new RestartInfo(name, rr, rrs, index, null));
-		index = index.nextCol();
+		rrs.add(new RestartInfo(this, name, rrs, getBindIndex(), null));
 		registerRestarts(rrs);
 
 		try {
@@ -1262,11 +1291,9 @@ public class Runtime extends IokeData {
 			RunnableWithReturnAndControlFlow javaRescue)
 			throws ControlFlow {
 		List<RescueInfo> rescues = new ArrayList<>();
-		IokeObject rr = IokeObject
-				.as(Interpreter.send(mimic, context, rescue), context);
 		List<Object> conds = new ArrayList<>();
 		conds.add(this.condition);
-		rescues.add(new RescueInfo(rr, conds, rescues, getBindIndex()));
+		rescues.add(new RescueInfo(null, conds, rescues, getBindIndex()));
 		registerRescues(rescues);
 		try {
 			return javaRescue.run();
@@ -1282,11 +1309,18 @@ public class Runtime extends IokeData {
 	}
 
 	public static class RescueInfo {
+		/**
+		 * The Rescue object, or null for rescues established from Java,
+		 * which are only ever caught by the Java code that established
+		 * them.
+		 */
 		public final IokeObject		rescue;
 		public final List<Object>	applicableConditions;
 		public final Object			token;
 		public final BindIndex		index;
 
+		final Applicability			applicable;
+
 		public RescueInfo(IokeObject rescue,
 				List<Object> applicableConditions, Object token,
 				BindIndex index) {
@@ -1294,6 +1328,7 @@ public class Runtime extends IokeData {
 			this.applicableConditions = applicableConditions;
 			this.token = token;
 			this.index = index;
+			this.applicable = new Applicability(applicableConditions);
 		}
 
 		@Override
@@ -1308,6 +1343,8 @@ public class Runtime extends IokeData {
 		public final Object			token;
 		public final BindIndex		index;
 
+		final Applicability			applicable;
+
 		public HandlerInfo(IokeObject handler,
 				List<Object> applicableConditions, Object token,
 				BindIndex index) {
@@ -1315,16 +1352,19 @@ public class Runtime extends IokeData {
 			this.applicableConditions = applicableConditions;
 			this.token = token;
 			this.index = index;
+			this.applicable = new Applicability(applicableConditions);
 		}
 	}
 
 	public static class RestartInfo {
 		public final String		name;
-		public final IokeObject	restart;
 		public final Object		token;
 		public final BindIndex	index;
 		public final Object		data;
 
+		private final Runtime	runtime;
+		private IokeObject		restart;
+
 		public RestartInfo(String name, IokeObject restart, Object token,
 				BindIndex index, Object data) {
 			this.name = name;
@@ -1332,52 +1372,194 @@ public class Runtime extends IokeData {
 			this.token = token;
 			this.index = index;
 			this.data = data;
+			this.runtime = null;
+		}
+
+		/**
+		 * Creates the info for a restart established from Java. The
+		 * Restart object is only created when something asks for it,
+		 * since most of these restarts are never even looked at.
+		 */
+		public RestartInfo(Runtime runtime, String name, Object token,
+				BindIndex index, Restart.JavaRestart data) {
+			this.name = name;
+			this.token = token;
+			this.index = index;
+			this.data = data;
+			this.runtime = runtime;
+		}
+
+		public synchronized IokeObject getRestart() throws ControlFlow {
+			if (restart == null) {
+				restart = runtime.newJavaRestart(name,
+						(Restart.JavaRestart) data);
+			}
+			return restart;
+		}
+
+		synchronized boolean isRestart(IokeObject restart) {
+			return this.restart == restart;
 		}
 	}
 
-	private ThreadLocal<List<List<RestartInfo>>>	restarts	= new ThreadLocal<List<List<RestartInfo>>>() {
-																	@Override
-																	protected List<List<RestartInfo>> initialValue() {
-																		return new ArrayList<>();
-																	}
-																};
+	private IokeObject newJavaRestart(String name, Restart.JavaRestart rjr)
+			throws ControlFlow {
+		IokeObject rr = IokeObject
+				.as(Interpreter.send(mimic, ground, restart), ground);
+		IokeObject.setCell(rr, "name", getSymbol(name), ground);
 
-	private ThreadLocal<List<List<RescueInfo>>>		rescues		= new ThreadLocal<List<List<RescueInfo>>>() {
-																	@Override
-																	protected List<List<RescueInfo>> initialValue() {
-																		return new ArrayList<>();
-																	}
-																};
+		List<Object> args = new ArrayList<>();
+		if (rjr != null) {
+			for (String argName : rjr.getArgumentNames()) {
+				args.add(getSymbol(argName));
+			}
+		}
+		IokeObject.setCell(rr, "argumentNames", newList(args), ground);
+
+		String report = rjr == null ? null : rjr.report();
+		if (report != null) {
+			IokeObject.setCell(rr, "report", Restart.report(this, report),
+					ground);
+		}
+		return rr;
+	}
+
+	/**
+	 * The restarts, rescues and handlers established in one thread, with
+	 * the innermost ones last.
+	 */
+	private static final class ThreadConditions {
+		List<List<RestartInfo>>		restarts;
+		List<List<RescueInfo>>		rescues;
+		List<List<HandlerInfo>>		handlers;
+
+		ThreadConditions(ConditionStacks stacks) {
+			this.restarts = stacks.restarts;
+			this.rescues = stacks.rescues;
+			this.handlers = stacks.handlers;
+		}
+	}
 
-	private ThreadLocal<List<List<HandlerInfo>>>	handlers	= new ThreadLocal<List<List<HandlerInfo>>>() {
+	private ThreadLocal<ThreadConditions>	threadConditions	= new ThreadLocal<ThreadConditions>() {
 																	@Override
-																	protected List<List<HandlerInfo>> initialValue() {
-																		return new ArrayList<>();
+																	protected ThreadConditions initialValue() {
+																		return new ThreadConditions(
+																				new ConditionStacks());
 																	}
 																};
 
+	private ThreadConditions conditions() {
+		return threadConditions.get();
+	}
+
+	/**
+	 * Removes the frame from the stack. It's nearly always the innermost
+	 * one, and it's found by identity, since different frames can have
+	 * the same contents.
+	 */
+	private static <T> void pop(List<List<T>> stack, List<T> frame) {
+		for (int i = stack.size() - 1; i >= 0; i--) {
+			if (stack.get(i) == frame) {
+				stack.remove(i);
+				return;
+			}
+		}
+	}
+
 	public void registerRestarts(List<RestartInfo> restarts) {
-		this.restarts.get().add(0, restarts);
+		conditions().restarts.add(restarts);
 	}
 
 	public void unregisterRestarts(List<RestartInfo> restarts) {
-		this.restarts.get().remove(restarts);
+		pop(conditions().restarts, restarts);
 	}
 
 	public void registerRescues(List<RescueInfo> rescues) {
-		this.rescues.get().add(0, rescues);
+		conditions().rescues.add(rescues);
 	}
 
 	public void unregisterRescues(List<RescueInfo> rescues) {
-		this.rescues.get().remove(rescues);
+		pop(conditions().rescues, rescues);
 	}
 
 	public void registerHandlers(List<HandlerInfo> handlers) {
-		this.handlers.get().add(0, handlers);
+		conditions().handlers.add(handlers);
 	}
 
 	public void unregisterHandlers(List<HandlerInfo> handlers) {
-		this.handlers.get().remove(handlers);
+		pop(conditions().handlers, handlers);
+	}
+
+	/**
+	 * The restarts, rescues and handlers active in a thread. A worker
+	 * that runs code on behalf of another thread installs a copy of the
+	 * stacks of that thread, so that conditions signalled in the worker
+	 * find the same handlers and rescues, and can invoke the same
+	 * restarts.
+	 */
+	public static class ConditionStacks {
+		final List<List<RestartInfo>>	restarts;
+		final List<List<RescueInfo>>	rescues;
+		final List<List<HandlerInfo>>	handlers;
+
+		/**
+		 * Creates empty stacks, the ones of a thread that hasn't
+		 * established any restarts, rescues or handlers.
+		 */
+		public ConditionStacks() {
+			this(new ArrayList<List<RestartInfo>>(),
+					new ArrayList<List<RescueInfo>>(),
+					new ArrayList<List<HandlerInfo>>());
+		}
+
+		ConditionStacks(List<List<RestartInfo>> restarts,
+				List<List<RescueInfo>> rescues,
+				List<List<HandlerInfo>> handlers) {
+			this.restarts = restarts;
+			this.rescues = rescues;
+			this.handlers = handlers;
+		}
+	}
+
+	public ConditionStacks getConditionStacks() {
+		ThreadConditions tc = conditions();
+		return new ConditionStacks(new ArrayList<>(tc.restarts),
+				new ArrayList<>(tc.rescues), new ArrayList<>(tc.handlers));
+	}
+
+	/**
+	 * Makes copies of the stacks the active ones in the current thread,
+	 * and returns the ones that were active before.
+	 */
+	public ConditionStacks installConditionStacks(ConditionStacks stacks) {
+		ThreadConditions tc = conditions();
+		ConditionStacks previous = new ConditionStacks(tc.restarts,
+				tc.rescues, tc.handlers);
+		tc.restarts = new ArrayList<>(stacks.restarts);
+		tc.rescues = new ArrayList<>(stacks.rescues);
+		tc.handlers = new ArrayList<>(stacks.handlers);
+		return previous;
+	}
+
+	public void restoreConditionStacks(ConditionStacks previous) {
+		ThreadConditions tc = conditions();
+		tc.restarts = previous.restarts;
+		tc.rescues = previous.rescues;
+		tc.handlers = previous.handlers;
+	}
+
+	private ForkJoinPool forkJoinPool;
+
+	/**
+	 * Returns the pool the parallel Enumerable methods run on, creating
+	 * it with one worker per processor the first time it's needed.
+	 */
+	public synchronized ForkJoinPool getForkJoinPool() {
+		if (forkJoinPool == null) {
+			forkJoinPool = new ForkJoinPool(
+					java.lang.Runtime.getRuntime().availableProcessors());
+		}
+		return forkJoinPool;
 	}
 
 	public static class BindIndex {
@@ -1414,24 +1596,22 @@ public class Runtime extends IokeData {
 	}
 
 	public BindIndex getBindIndex() {
-		return new BindIndex(rescues.get().size());
+		return new BindIndex(conditions().rescues.size());
 	}
 
 	public List<HandlerInfo> findActiveHandlersFor(IokeObject condition,
 			BindIndex stopIndex) {
 		List<HandlerInfo> result = new ArrayList<>();
 
-		for (List<HandlerInfo> lrp : handlers.get()) {
-			for (HandlerInfo rp : lrp) {
+		List<List<HandlerInfo>> stack = conditions().handlers;
+		for (int i = stack.size() - 1; i >= 0; i--) {
+			for (HandlerInfo rp : stack.get(i)) {
 				if (rp.index.lessThan(stopIndex)) {
 					return result;
 				}
 
-				for (Object possibleKind : rp.applicableConditions) {
-					if (IokeObject.isMimic(condition,
-							IokeObject.as(possibleKind, condition))) {
-						result.add(rp);
-					}
+				for (int n = rp.applicable.matches(condition); n > 0; n--) {
+					result.add(rp);
 				}
 			}
 		}
@@ -1440,13 +1620,11 @@ public class Runtime extends IokeData {
 	}
 
 	public RescueInfo findActiveRescueFor(IokeObject condition) {
-		for (List<RescueInfo> lrp : rescues.get()) {
-			for (RescueInfo rp : lrp) {
-				for (Object possibleKind : rp.applicableConditions) {
-					if (IokeObject.isMimic(condition,
-							IokeObject.as(possibleKind, condition))) {
-						return rp;
-					}
+		List<List<RescueInfo>> stack = conditions().rescues;
+		for (int i = stack.size() - 1; i >= 0; i--) {
+			for (RescueInfo rp : stack.get(i)) {
+				if (rp.applicable.matches(condition) > 0) {
+					return rp;
 				}
 			}
 		}
@@ -1454,13 +1632,20 @@ public class Runtime extends IokeData {
 		return null;
 	}
 
+	/**
+	 * Returns the frames of active restarts, innermost first.
+	 */
 	public List<List<RestartInfo>> getActiveRestarts() {
-		return restarts.get();
+		List<List<RestartInfo>> result = new ArrayList<>(
+				conditions().restarts);
+		Collections.reverse(result);
+		return result;
 	}
 
 	public RestartInfo findActiveRestart(String name) {
-		for (List<RestartInfo> lrp : restarts.get()) {
-			for (RestartInfo rp : lrp) {
+		List<List<RestartInfo>> stack = conditions().restarts;
+		for (int i = stack.size() - 1; i >= 0; i--) {
+			for (RestartInfo rp : stack.get(i)) {
 				if (name.equals(rp.name)) {
 					return rp;
 				}
@@ -1471,9 +1656,10 @@ public class Runtime extends IokeData {
 	}
 
 	public RestartInfo findActiveRestart(IokeObject restart) {
-		for (List<RestartInfo> lrp : restarts.get()) {
-			for (RestartInfo rp : lrp) {
-				if (rp.restart == restart) {
+		List<List<RestartInfo>> stack = conditions().restarts;
+		for (int i = stack.size() - 1; i >= 0; i--) {
+			for (RestartInfo rp : stack.get(i)) {
+				if (rp.isRestart(restart)) {
 					return rp;
 				}
 			}
@@ -1503,6 +1689,14 @@ public class Runtime extends IokeData {
 				status = 1;
 			}
 		}
+		synchronized (this) {
+			if (forkJoinPool != null) {
+				forkJoinPool.shutdown();
+			}
+		}
+		if (compiler != null) {
+			compiler.shutdown();
+		}
 		if (status != 0) {
 			throw new ControlFlow.Exit();
 		}
@@ -0,0 +1,98 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps cell and message names to dense integer selector ids. Messages
+ * resolve their selector when created, and shapes store selectors
+ * instead of names, so that cell lookups on the hot path compare ints
+ * instead of hashing and comparing Strings.
+ *
+ * Every runtime has a table of its own, together with the roots of its
+ * shapes, so that the names a runtime has seen go away with it. Only
+ * names that are used for a cell or a message get a selector - looking
+ * up a name that has never been used doesn't add it. The few selectors
+ * that are constants here are registered first in every table, so
+ * they are the same everywhere.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class Selectors {
+	static final int								PASS		= 0;
+	static final int								APPLICABLE	= 1;
+	static final int								EQ			= 2;
+	static final int								HASH		= 3;
+	static final int								SPACESHIP	= 4;
+	static final int								PLUS		= 5;
+
+	private static final String[]					WELL_KNOWN	= {
+			"pass", "applicable?", "==", "hash", "<=>", "+" };
+
+	private final ConcurrentHashMap<String, Integer>	ids			= new ConcurrentHashMap<>();
+	private volatile String[]						names		= new String[256];
+	private int										count		= 0;
+
+	final Shape										root;
+	/**
+	 * The root of the shapes of Locals objects and lexical contexts.
+	 * Their cells are named by the code that runs in them rather than
+	 * by data, so this tree is allowed to branch much more, which keeps
+	 * the contexts of the same block sharing shapes even in a big
+	 * program.
+	 */
+	final Shape										contextRoot;
+
+	Selectors() {
+		for (String name : WELL_KNOWN) {
+			register(name);
+		}
+		root = Shape.root(this, Shape.MAX_TRANSITIONS);
+		contextRoot = Shape.root(this, Shape.MAX_CONTEXT_TRANSITIONS);
+	}
+
+	/**
+	 * Returns the selector of the name, giving it one if it doesn't
+	 * have one yet.
+	 */
+	int idOf(String name) {
+		Integer id = ids.get(name);
+		if (id != null) {
+			return id;
+		}
+		return register(name);
+	}
+
+	/**
+	 * Returns the selector of the name, or -1 if it doesn't have one. No
+	 * cell can have a name without a selector.
+	 */
+	int find(String name) {
+		Integer id = ids.get(name);
+		return id == null ? -1 : id;
+	}
+
+	String nameOf(int id) {
+		return names[id];
+	}
+
+	private synchronized int register(String name) {
+		Integer id = ids.get(name);
+		if (id != null) {
+			return id;
+		}
+
+		String[] ns = names;
+		if (count == ns.length) {
+			ns = Arrays.copyOf(ns, count * 2);
+		}
+		ns[count] = name;
+		names = ns;
+		ids.put(name, count);
+		return count++;
+	}
+}// Selectors
@@ -0,0 +1,207 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * A call site for sending one specific message, for use by compiled
+ * code. The site starts out unlinked. The first send looks up the cell
+ * the normal way and links the site to a guarded target that calls the
+ * activation code of the cell directly - NativeMethod.activate on the
+ * actual native method, DefaultMethod.activateFixed, or the Java
+ * integration entry points - instead of going through the switch in
+ * Interpreter.activate. Since compiled code keeps the dynamic invoker of
+ * the site in a static final field, HotSpot can inline the whole target.
+ *
+ * The guard checks the shape of the receiver together with either the
+ * cell in the receiver itself, or the mimic and the global body version
+ * for cells found further up. When the guard fails, the site is
+ * relinked. Sites that have been relinked too many times - whether for
+ * a new kind of receiver or because the body version moved on - give
+ * up and just do a normal send.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public final class SendSite extends MutableCallSite {
+	public static final MethodType		TYPE			= MethodType.methodType(
+			Object.class, IokeObject.class, Object.class);
+
+	/**
+	 * Sites that had to be relinked this many times will stop linking.
+	 */
+	public static final int				MAX_RELINKS		= 8;
+
+	private static final MethodHandle	FALLBACK;
+	private static final MethodHandle	SEND;
+	private static final MethodHandle	TEST;
+	private static final MethodHandle	NATIVE_ACTIVATE;
+	private static final MethodHandle	DEFAULT_METHOD_ACTIVATE;
+	private static final MethodHandle	JAVA_METHOD_ACTIVATE;
+	private static final MethodHandle	ACTIVATE;
+
+	static {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodType activate = MethodType.methodType(Object.class,
+				IokeObject.class, IokeObject.class, IokeObject.class,
+				Object.class);
+		try {
+			FALLBACK = lookup.findVirtual(SendSite.class, "fallback", TYPE);
+			SEND = lookup.findStatic(Interpreter.class, "send",
+					MethodType.methodType(Object.class, IokeObject.class,
+							IokeObject.class, Object.class));
+			TEST = lookup.findVirtual(Link.class, "test", MethodType
+					.methodType(boolean.class, IokeObject.class,
+							Object.class));
+			NATIVE_ACTIVATE = lookup.findVirtual(NativeMethod.class,
+					"activate", activate);
+			DEFAULT_METHOD_ACTIVATE = lookup.findStatic(DefaultMethod.class,
+					"activateFixed", activate);
+			JAVA_METHOD_ACTIVATE = lookup.findStatic(
+					JavaMethodNativeMethod.class, "activateFixed", activate);
+			ACTIVATE = lookup.findStatic(Interpreter.class, "activate",
+					activate);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final IokeObject			message;
+	private int							relinks;
+
+	public SendSite(IokeObject message) {
+		super(TYPE);
+		this.message = message;
+		setTarget(FALLBACK.bindTo(this));
+	}
+
+	/**
+	 * What a linked site has found out about the receivers it has seen.
+	 */
+	static final class Link {
+		final Message		msg;
+		final Shape			shape;
+		final IokeObject	mimic;
+		final int			version;
+		// index of the cell in the receiver, or -1 if it was found
+		// through the mimic
+		final int			index;
+		final IokeObject	cell;
+		final IokeData		data;
+		final boolean		activatable;
+
+		Link(Message msg, Shape shape, IokeObject mimic, int version,
+				int index, IokeObject cell) {
+			this.msg = msg;
+			this.shape = shape;
+			this.mimic = mimic;
+			this.version = version;
+			this.index = index;
+			this.cell = cell;
+			this.data = cell.data;
+			this.activatable = cell.isActivatable();
+		}
+
+		boolean test(IokeObject ctx, Object recv) {
+			if (!(recv instanceof IokeObject) || msg.cached != null
+					|| cell.data != data
+					|| cell.isActivatable() != activatable) {
+				return false;
+			}
+			Body b = ((IokeObject) recv).body;
+			if (b.shape() != shape) {
+				return false;
+			}
+			if (index != -1) {
+				return b.valueAt(index) == cell;
+			}
+			return b.mimic == mimic && b.mimicCount == 1
+					&& Body.version() == version
+					&& (b.flags & IokeObject.LEXICAL_F) == 0;
+		}
+	}
+
+	private Object fallback(IokeObject ctx, Object recv) throws ControlFlow {
+		Message msg = (Message) message.data;
+		Object cached = msg.cached;
+		if (cached != null) {
+			setTarget(MethodHandles.dropArguments(
+					MethodHandles.constant(Object.class, cached), 0,
+					IokeObject.class, Object.class));
+			return cached;
+		}
+
+		if (relinks < MAX_RELINKS) {
+			Link l = linkFor(msg, recv);
+			if (l != null) {
+				relinks++;
+				setTarget(MethodHandles.guardWithTest(TEST.bindTo(l),
+						targetFor(l), FALLBACK.bindTo(this)));
+			}
+		} else {
+			setTarget(MethodHandles.insertArguments(SEND, 0, message));
+		}
+
+		return Interpreter.send(message, ctx, recv);
+	}
+
+	private static Link linkFor(Message msg, Object recv) {
+		if (!(recv instanceof IokeObject) || msg.selector == -1) {
+			return null;
+		}
+
+		IokeObject on = (IokeObject) recv;
+		Body b = on.body;
+		Shape shape = b.shape();
+		if (b.mimicCount != 1 || on.isLexical() || shape.dictionary) {
+			return null;
+		}
+
+		int index = shape.indexOf(msg.selector);
+		Object cell = index == -1
+				? IokeObject.findCellObserved(b.mimic, msg.selector)
+				: b.valueAt(index);
+		if (!(cell instanceof IokeObject) || cell == on.runtime.nul) {
+			return null;
+		}
+		return new Link(msg, shape, b.mimic, Body.version(), index,
+				(IokeObject) cell);
+	}
+
+	private MethodHandle targetFor(Link l) {
+		IokeObject cell = l.cell;
+		boolean activate = l.activatable || ((cell.data instanceof CanRun)
+				&& l.msg.arguments.size() > 0);
+		if (!activate) {
+			return MethodHandles.dropArguments(
+					MethodHandles.constant(Object.class, cell), 0,
+					IokeObject.class, Object.class);
+		}
+
+		MethodHandle target;
+		switch (cell.data.type) {
+			case IokeData.TYPE_NATIVE_METHOD:
+				target = NATIVE_ACTIVATE.bindTo(cell.data);
+				break;
+			case IokeData.TYPE_DEFAULT_METHOD:
+				target = DEFAULT_METHOD_ACTIVATE;
+				break;
+			case IokeData.TYPE_JAVA_METHOD:
+				target = JAVA_METHOD_ACTIVATE;
+				break;
+			default:
+				target = ACTIVATE;
+				break;
+		}
+		// (cell, ctx, message, on) -> (ctx, on)
+		target = MethodHandles.insertArguments(target, 2, message);
+		return MethodHandles.insertArguments(target, 0, cell);
+	}
+}// SendSite
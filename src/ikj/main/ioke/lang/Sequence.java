@@ -4,20 +4,65 @@
  */
 package ioke.lang;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import ioke.lang.exceptions.ControlFlow;
+import ioke.lang.mixins.Enumerable;
 
 public class Sequence {
-	public static class IteratorSequence extends IokeData {
+	/**
+	 * Where a native sequence gets its elements from. A pipeline of
+	 * mapped, selected, rejected, dropped and droppedWhile on a native
+	 * sequence is a chain of sources, each pulling straight from the one
+	 * before, so taking an element runs all the stages for it in one go
+	 * without sending next? and next between them, and without any
+	 * intermediate collections. Sequences that aren't native are read by
+	 * sending next? and next to them.
+	 */
+	public static abstract class Source {
+		public abstract boolean hasNext() throws ControlFlow;
+
+		public abstract Object next() throws ControlFlow;
+
+		public static Source of(final Iterator<?> iter) {
+			return new Source() {
+				@Override
+				public boolean hasNext() {
+					return iter.hasNext();
+				}
+
+				@Override
+				public Object next() {
+					return iter.next();
+				}
+			};
+		}
+	}
+
+	/**
+	 * The data of the sequences whose next and next? are implemented
+	 * natively, and can be read from a Source directly.
+	 */
+	static abstract class NativeSequence extends IokeData {
+		abstract Source source(Runtime runtime);
+	}
+
+	public static class IteratorSequence extends NativeSequence {
 		private final Iterator<Object> iter;
 
 		public IteratorSequence(Iterator<Object> iter) {
 			this.iter = iter;
 		}
 
+		@Override
+		Source source(Runtime runtime) {
+			return Source.of(iter);
+		}
+
 		@Override
 		public void init(final IokeObject obj) throws ControlFlow {
 			obj.setKind("Sequence Iterator");
@@ -36,6 +81,11 @@ public class Sequence {
 							return ((IteratorSequence) IokeObject
 									.data(on)).iter.next();
 						}
+
+						@Override
+						Class<? extends IokeData> nativeKeyData() {
+							return IteratorSequence.class;
+						}
 					}));
 
 			obj.registerMethod(obj.runtime.newNativeMethod(
@@ -53,11 +103,16 @@ public class Sequence {
 											? method.runtime._true
 											: method.runtime._false;
 						}
+
+						@Override
+						Class<? extends IokeData> nativeKeyData() {
+							return IteratorSequence.class;
+						}
 					}));
 		}
 	}
 
-	public static class KeyValueIteratorSequence extends IokeData {
+	public static class KeyValueIteratorSequence extends NativeSequence {
 		private final Iterator<Map.Entry<Object, Object>> iter;
 
 		public KeyValueIteratorSequence(
@@ -65,6 +120,22 @@ public class Sequence {
 			this.iter = iter;
 		}
 
+		@Override
+		Source source(final Runtime runtime) {
+			return new Source() {
+				@Override
+				public boolean hasNext() {
+					return iter.hasNext();
+				}
+
+				@Override
+				public Object next() {
+					Map.Entry<Object, Object> me = iter.next();
+					return runtime.newPair(me.getKey(), me.getValue());
+				}
+			};
+		}
+
 		@Override
 		public void init(final IokeObject obj) throws ControlFlow {
 			obj.setKind("Sequence KeyValueIterator");
@@ -85,6 +156,11 @@ public class Sequence {
 							return method.runtime.newPair(me.getKey(),
 									me.getValue());
 						}
+
+						@Override
+						Class<? extends IokeData> nativeKeyData() {
+							return KeyValueIteratorSequence.class;
+						}
 					}));
 
 			obj.registerMethod(obj.runtime.newNativeMethod(
@@ -102,13 +178,400 @@ public class Sequence {
 											? method.runtime._true
 											: method.runtime._false;
 						}
+
+						@Override
+						Class<? extends IokeData> nativeKeyData() {
+							return KeyValueIteratorSequence.class;
+						}
 					}));
 		}
 	}
 
+	/**
+	 * The data of the sequences created by the native mapped, selected,
+	 * rejected, dropped and droppedWhile. The objects themselves mimic
+	 * Sequence Map, Sequence Filter and so on, and get the next and next?
+	 * cells of the LazySequence prototype.
+	 */
+	public static class LazySequence extends NativeSequence {
+		private final Source source;
+
+		public LazySequence(Source source) {
+			this.source = source;
+		}
+
+		@Override
+		Source source(Runtime runtime) {
+			return source;
+		}
+
+		@Override
+		public void init(final IokeObject obj) throws ControlFlow {
+			obj.setKind("Sequence Lazy");
+			obj.mimicsWithoutCheck(obj.runtime.sequence);
+
+			obj.registerMethod(obj.runtime.newNativeMethod(
+					"returns the next object from this sequence if it exists. the behavior otherwise is undefined",
+					new TypeCheckingNativeMethod.WithNoArguments("next") {
+						@Override
+						public Object activate(IokeObject method,
+								Object on, List<Object> args,
+								Map<String, Object> keywords,
+								IokeObject context, IokeObject message)
+								throws ControlFlow {
+							Source source = ((LazySequence) IokeObject
+									.data(on)).source;
+							return source.hasNext() ? source.next()
+									: method.runtime.nil;
+						}
+
+						@Override
+						Class<? extends IokeData> nativeKeyData() {
+							return LazySequence.class;
+						}
+					}));
+
+			obj.registerMethod(obj.runtime.newNativeMethod(
+					"returns true if there is another object in this sequence.",
+					new TypeCheckingNativeMethod.WithNoArguments("next?") {
+						@Override
+						public Object activate(IokeObject method,
+								Object on, List<Object> args,
+								Map<String, Object> keywords,
+								IokeObject context, IokeObject message)
+								throws ControlFlow {
+							return ((LazySequence) IokeObject
+									.data(on)).source.hasNext()
+											? method.runtime._true
+											: method.runtime._false;
+						}
+
+						@Override
+						Class<? extends IokeData> nativeKeyData() {
+							return LazySequence.class;
+						}
+					}));
+		}
+	}
+
+	/**
+	 * Returns a source for the elements of a sequence. For native
+	 * sequences that still have their builtin next and next?, this is
+	 * the source they read from themselves, so consuming one consumes the
+	 * other.
+	 */
+	public static Source sourceFor(final IokeObject context,
+			final Object seq) {
+		IokeData data = IokeObject.data(seq);
+		if (data instanceof NativeSequence) {
+			IokeObject obj = (IokeObject) seq;
+			Class<? extends IokeData> c = data.getClass();
+			if (NativeMethod.isBuiltin(IokeObject.findCell(obj, "next"), c)
+					&& NativeMethod.isBuiltin(
+							IokeObject.findCell(obj, "next?"), c)) {
+				return ((NativeSequence) data).source(context.runtime);
+			}
+		}
+
+		final Runtime runtime = context.runtime;
+		return new Source() {
+			@Override
+			public boolean hasNext() throws ControlFlow {
+				return IokeObject.isTrue(Interpreter
+						.send(runtime.nextPMessage, context, seq));
+			}
+
+			@Override
+			public Object next() throws ControlFlow {
+				return Interpreter.send(runtime.nextMessage, context, seq);
+			}
+		};
+	}
+
+	private static class Mapped extends Source {
+		private final Source			source;
+		private final Enumerable.Code	code;
+
+		Mapped(Source source, Enumerable.Code code) {
+			this.source = source;
+			this.code = code;
+		}
+
+		@Override
+		public boolean hasNext() throws ControlFlow {
+			return source.hasNext();
+		}
+
+		@Override
+		public Object next() throws ControlFlow {
+			return code.call(source.next());
+		}
+	}
+
+	private static class Filtered extends Source {
+		private final Source			source;
+		private final Enumerable.Code	code;
+		private final boolean			keep;
+		private Object					current;
+		private boolean					hasCurrent;
+
+		Filtered(Source source, Enumerable.Code code, boolean keep) {
+			this.source = source;
+			this.code = code;
+			this.keep = keep;
+		}
+
+		@Override
+		public boolean hasNext() throws ControlFlow {
+			while (!hasCurrent && source.hasNext()) {
+				Object n = source.next();
+				if (IokeObject.isTrue(code.call(n)) == keep) {
+					current = n;
+					hasCurrent = true;
+				}
+			}
+			return hasCurrent;
+		}
+
+		@Override
+		public Object next() throws ControlFlow {
+			hasNext();
+			Object n = current;
+			current = null;
+			hasCurrent = false;
+			return n;
+		}
+	}
+
+	private static class Dropped extends Source {
+		private final Source	source;
+		private int				left;
+
+		Dropped(Source source, int left) {
+			this.source = source;
+			this.left = left;
+		}
+
+		private void drop() throws ControlFlow {
+			while (left > 0 && source.hasNext()) {
+				source.next();
+				left--;
+			}
+			left = 0;
+		}
+
+		@Override
+		public boolean hasNext() throws ControlFlow {
+			drop();
+			return source.hasNext();
+		}
+
+		@Override
+		public Object next() throws ControlFlow {
+			drop();
+			return source.next();
+		}
+	}
+
+	private static class DroppedWhile extends Source {
+		private final Source			source;
+		private final Enumerable.Code	code;
+		private boolean					collecting;
+		private Object					current;
+		private boolean					hasCurrent;
+
+		DroppedWhile(Source source, Enumerable.Code code) {
+			this.source = source;
+			this.code = code;
+		}
+
+		@Override
+		public boolean hasNext() throws ControlFlow {
+			while (!collecting && source.hasNext()) {
+				Object n = source.next();
+				if (!IokeObject.isTrue(code.call(n))) {
+					collecting = true;
+					current = n;
+					hasCurrent = true;
+				}
+			}
+			return hasCurrent || (collecting && source.hasNext());
+		}
+
+		@Override
+		public Object next() throws ControlFlow {
+			hasNext();
+			if (hasCurrent) {
+				Object n = current;
+				current = null;
+				hasCurrent = false;
+				return n;
+			}
+			return source.next();
+		}
+	}
+
+	/**
+	 * A native version of one of the Sequence methods that wrap a
+	 * sequence in a new one. The result mimics the Ioke prototype for
+	 * the kind of sequence, with the same cells as Sequence Base create
+	 * would give it.
+	 */
+	private static abstract class WrapMethod extends NativeMethod {
+		private final String	kind;
+
+		WrapMethod(String name, String kind) {
+			super(name);
+			this.kind = kind;
+		}
+
+		IokeObject create(IokeObject context, IokeObject message,
+				Object on, Source source, List<Object> messages,
+				List<Object> rest) throws ControlFlow {
+			Runtime runtime = context.runtime;
+			IokeObject proto = IokeObject.as(
+					IokeObject.findCell(runtime.sequence, kind), context);
+			IokeObject obj = proto.allocateCopy(message, context);
+			obj.singleMimicsWithoutCheck(proto);
+			obj.setData(new LazySequence(source));
+			obj.setCell("next",
+					IokeObject.findCell(runtime.lazySequence, "next"));
+			obj.setCell("next?",
+					IokeObject.findCell(runtime.lazySequence, "next?"));
+			obj.setCell("wrappedSequence", on);
+			obj.setCell("context", context);
+			obj.setCell("messages", runtime.newList(messages));
+			obj.setCell("restArguments", runtime.newList(rest));
+			return obj;
+		}
+	}
+
+	/**
+	 * A wrapping method that takes code to apply to the elements. If the
+	 * arguments destructure, the Ioke version in the cell prefixed with
+	 * internal: is used instead.
+	 */
+	private static abstract class StageMethod extends WrapMethod {
+		private static final DefaultArgumentsDefinition	ARGUMENTS	= DefaultArgumentsDefinition
+				.builder().withOptionalPositionalUnevaluated("argOrCode")
+				.withOptionalPositionalUnevaluated("code")
+				.getArguments();
+
+		StageMethod(String name, String kind) {
+			super(name, kind);
+		}
+
+		@Override
+		public DefaultArgumentsDefinition getArguments() {
+			return ARGUMENTS;
+		}
+
+		@Override
+		public Object activate(IokeObject method, IokeObject context,
+				IokeObject message, Object on) throws ControlFlow {
+			Enumerable.Code code = Enumerable.Code.from(context, message,
+					on, 0);
+			if (code == null) {
+				return Interpreter.activate(
+						IokeObject.as(IokeObject.findCell(
+								IokeObject.as(on, context),
+								"internal:" + getName()), context),
+						context, message, on);
+			}
+			return create(context, message, on,
+					stage(sourceFor(context, on), code),
+					new ArrayList<Object>(message.getArguments()),
+					new ArrayList<Object>());
+		}
+
+		abstract Source stage(Source source, Enumerable.Code code);
+	}
+
 	public static void init(IokeObject obj) throws ControlFlow {
 		final Runtime runtime = obj.runtime;
 		obj.setKind("Sequence");
 		obj.singleMimicsWithoutCheck(runtime.origin);
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments and returns a new sequence where the code has been applied to each element of this one. if one argument is given, it will be evaluated as a message chain on each element. if two arguments are given, the first one should be an argument name, which will be bound inside the scope of executing the second piece of code.",
+				new StageMethod("mapped", "Map") {
+					@Override
+					Source stage(Source source, Enumerable.Code code) {
+						return new Mapped(source, code);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments and returns a new sequence where the code has been applied to each element of this one. if one argument is given, it will be evaluated as a message chain on each element. if two arguments are given, the first one should be an argument name, which will be bound inside the scope of executing the second piece of code.",
+				new StageMethod("collected", "Map") {
+					@Override
+					Source stage(Source source, Enumerable.Code code) {
+						return new Mapped(source, code);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments and returns a new sequence with only the elements of this one for which the predicate is true. if zero arguments, the elements that are true are kept. if one argument is given, it will be applied as a message chain. if two arguments are given, they will be turned into a lexical block.",
+				new StageMethod("selected", "Filter") {
+					@Override
+					Source stage(Source source, Enumerable.Code code) {
+						return new Filtered(source, code, true);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments and returns a new sequence with only the elements of this one for which the predicate is true. if zero arguments, the elements that are true are kept. if one argument is given, it will be applied as a message chain. if two arguments are given, they will be turned into a lexical block.",
+				new StageMethod("filtered", "Filter") {
+					@Override
+					Source stage(Source source, Enumerable.Code code) {
+						return new Filtered(source, code, true);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments and returns a new sequence without the elements of this one for which the predicate is true. if zero arguments, the elements that are true are left out. if one argument is given, it will be applied as a message chain. if two arguments are given, they will be turned into a lexical block.",
+				new StageMethod("rejected", "Reject") {
+					@Override
+					Source stage(Source source, Enumerable.Code code) {
+						return new Filtered(source, code, false);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments and returns a new sequence that skips the elements of this one for as long as the predicate is true, and then returns all the rest. if zero arguments, the elements are tested directly. if one argument is given, it will be applied as a message chain. if two arguments are given, they will be turned into a lexical block.",
+				new StageMethod("droppedWhile", "DropWhile") {
+					@Override
+					Source stage(Source source, Enumerable.Code code) {
+						return new DroppedWhile(source, code);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes one argument and returns a new sequence that skips that many elements of this one, and then returns all the rest.",
+				new WrapMethod("dropped", "Drop") {
+					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
+							.builder().withRequiredPositional("howManyToDrop")
+							.getArguments();
+
+					@Override
+					public DefaultArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						List<Object> args = new ArrayList<>();
+						getArguments().getEvaluatedArguments(context,
+								message, on, args,
+								new HashMap<String, Object>());
+						return create(context, message, on,
+								new Dropped(sourceFor(context, on),
+										Number.extractInt(args.get(0),
+												message, context)),
+								new ArrayList<>(), args);
+					}
+				}));
 	}
 }
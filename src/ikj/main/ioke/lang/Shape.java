@@ -0,0 +1,219 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The layout of the cells of a Body - the names of the cells in the
+ * order they were added, and the slot index of each name. Shapes are
+ * shared and immutable: all bodies that got the same cells added in the
+ * same order point to the same Shape, and only keep their own array of
+ * values. Adding a cell moves a body along a transition to a child
+ * shape.
+ *
+ * Bodies that grow very large, or that get cells removed, switch to a
+ * private dictionary shape that is mutated in place instead.
+ *
+ * Every runtime has its own trees of shapes, rooted in its selector
+ * table, since the selectors only mean something in that table.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class Shape {
+	/**
+	 * Shapes with more cells than this are never shared.
+	 */
+	static final int				MAX_SHARED_SIZE		= 64;
+
+	/**
+	 * A shape that already has this many transitions will hand out
+	 * unshared children for any new names, so that objects used as
+	 * dictionaries can't grow the transition tree without bound.
+	 */
+	static final int				MAX_TRANSITIONS		= 32;
+
+	/**
+	 * The number of transitions a shape in the context tree can have
+	 * before it starts handing out unshared children.
+	 */
+	static final int				MAX_CONTEXT_TRANSITIONS	= 1024;
+
+	private static final int		LINEAR_SEARCH_SIZE	= 8;
+
+	private int[]					selectors;
+	private int						size;
+	// open addressed table from selector to index + 1, for bigger
+	// shapes
+	private int[]					table;
+	private Map<Integer, Shape>		transitions;
+
+	private final int				maxTransitions;
+
+	final Selectors					registry;
+	final boolean					dictionary;
+
+	/**
+	 * Returns a new, empty root shape for the selector table. The tree
+	 * of the shapes of Locals objects and lexical contexts has its own
+	 * root with many more transitions allowed, see
+	 * {@link #MAX_CONTEXT_TRANSITIONS}.
+	 */
+	static Shape root(Selectors registry, int maxTransitions) {
+		return new Shape(registry, new int[0], 0, false, maxTransitions);
+	}
+
+	private Shape(Selectors registry, int[] selectors, int size,
+			boolean dictionary, int maxTransitions) {
+		this.registry = registry;
+		this.selectors = selectors;
+		this.size = size;
+		this.dictionary = dictionary;
+		this.maxTransitions = maxTransitions;
+		if (size > LINEAR_SEARCH_SIZE) {
+			rehash();
+		}
+	}
+
+	final int size() {
+		return size;
+	}
+
+	final int selectorAt(int i) {
+		return selectors[i];
+	}
+
+	final String nameAt(int i) {
+		return registry.nameOf(selectors[i]);
+	}
+
+	final int indexOf(String name) {
+		int selector = registry.find(name);
+		return selector == -1 ? -1 : indexOf(selector);
+	}
+
+	final int indexOf(int selector) {
+		int[] t = table;
+		if (t != null) {
+			int mask = t.length - 1;
+			for (int i = selector & mask;; i = (i + 1) & mask) {
+				int v = t[i];
+				if (v == 0) {
+					return -1;
+				}
+				if (selectors[v - 1] == selector) {
+					return v - 1;
+				}
+			}
+		}
+
+		int[] ss = selectors;
+		for (int i = 0, n = size; i < n; i++) {
+			if (ss[i] == selector) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the shape that results from adding a cell with the given
+	 * selector, which must not already be part of this shape. A
+	 * dictionary shape will be modified and returned.
+	 */
+	final Shape withCell(int selector) {
+		if (dictionary) {
+			addInPlace(selector);
+			return this;
+		}
+
+		if (size >= MAX_SHARED_SIZE) {
+			Shape dict = toDictionary();
+			dict.addInPlace(selector);
+			return dict;
+		}
+
+		synchronized (this) {
+			Shape next = null;
+			if (transitions == null) {
+				transitions = new HashMap<>();
+			} else {
+				next = transitions.get(selector);
+			}
+
+			if (next == null) {
+				int[] newSelectors = new int[size + 1];
+				System.arraycopy(selectors, 0, newSelectors, 0, size);
+				newSelectors[size] = selector;
+				next = new Shape(registry, newSelectors, size + 1, false,
+						maxTransitions);
+				if (transitions.size() < maxTransitions) {
+					transitions.put(selector, next);
+				}
+			}
+			return next;
+		}
+	}
+
+	/**
+	 * Returns a dictionary shape without the cell at the given index.
+	 */
+	final Shape withoutCell(int i) {
+		Shape dict = dictionary ? this : toDictionary();
+		dict.removeInPlace(i);
+		return dict;
+	}
+
+	private Shape toDictionary() {
+		int[] newSelectors = new int[Math.max(size * 2, 4)];
+		System.arraycopy(selectors, 0, newSelectors, 0, size);
+		return new Shape(registry, newSelectors, size, true,
+				maxTransitions);
+	}
+
+	private void addInPlace(int selector) {
+		if (size == selectors.length) {
+			int[] newSelectors = new int[Math.max(size * 2, 4)];
+			System.arraycopy(selectors, 0, newSelectors, 0, size);
+			selectors = newSelectors;
+		}
+		selectors[size++] = selector;
+		if (table != null && 2 * size <= table.length) {
+			insert(table, selectors, size - 1);
+		} else if (size > LINEAR_SEARCH_SIZE) {
+			rehash();
+		}
+	}
+
+	private void removeInPlace(int i) {
+		System.arraycopy(selectors, i + 1, selectors, i, size - i - 1);
+		size--;
+		if (table != null) {
+			rehash();
+		}
+	}
+
+	private void rehash() {
+		int len = 16;
+		while (len < 2 * size) {
+			len <<= 1;
+		}
+		int[] t = new int[len];
+		for (int i = 0; i < size; i++) {
+			insert(t, selectors, i);
+		}
+		table = t;
+	}
+
+	private static void insert(int[] t, int[] selectors, int index) {
+		int mask = t.length - 1;
+		int i = selectors[index] & mask;
+		while (t[i] != 0) {
+			i = (i + 1) & mask;
+		}
+		t[i] = index + 1;
+	}
+}// Shape
@@ -4,11 +4,19 @@
  */
 package ioke.lang;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 import ioke.lang.exceptions.ControlFlow;
 
 /**
+ * Compares objects by sending <=>. Objects whose <=> is the builtin
+ * method of their kind - numbers, texts and symbols - are compared on
+ * their native sort keys instead, and sort can sort whole lists of them
+ * without sending any messages at all.
  *
  * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
  */
@@ -23,6 +31,15 @@ public class SpaceshipComparator implements Comparator<Object> {
 
 	@Override
 	public int compare(Object one, Object two) {
+		Comparable<?> a = sortKey(one);
+		if (a != null) {
+			Comparable<?> b = sortKey(two);
+			if (b != null && ((IokeObject) one).data
+					.getClass() == ((IokeObject) two).data.getClass()) {
+				return compareKeys(a, b);
+			}
+		}
+
 		Runtime runtime = context.runtime;
 		try {
 			return Number.extractInt(
@@ -32,4 +49,164 @@ public class SpaceshipComparator implements Comparator<Object> {
 			throw new RuntimeException(e);
 		}
 	}
+
+	/**
+	 * Returns the native sort key of the object if its <=> is the
+	 * builtin method of its kind, otherwise null.
+	 */
+	static Comparable<?> sortKey(Object obj) {
+		if (!(obj instanceof IokeObject)) {
+			return null;
+		}
+		IokeObject o = (IokeObject) obj;
+		IokeData data = o.data;
+		if (NativeMethod.nativeKeyData(IokeObject.findCell(o,
+				Selectors.SPACESHIP)) != data.getClass()) {
+			return null;
+		}
+		return data.nativeSortKey(o);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static int compareKeys(Comparable<?> a, Comparable<?> b) {
+		return Integer.signum(((Comparable<Object>) a).compareTo(b));
+	}
+
+	/**
+	 * Returns the sort keys of all the objects, or null unless all of
+	 * them have the same kind of data and a native sort key.
+	 */
+	private static Comparable<?>[] sortKeys(List<Object> objects) {
+		int n = objects.size();
+		Comparable<?>[] keys = new Comparable<?>[n];
+		Class<?> kind = null;
+		for (int i = 0; i < n; i++) {
+			Object o = objects.get(i);
+			Comparable<?> key = sortKey(o);
+			if (key == null) {
+				return null;
+			}
+			Class<?> c = IokeObject.data(o).getClass();
+			if (kind == null) {
+				kind = c;
+			} else if (kind != c) {
+				return null;
+			}
+			keys[i] = key;
+		}
+		return keys;
+	}
+
+	private static final class Entry {
+		final Object	key;
+		final Object	value;
+
+		Entry(Object key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	private static final Comparator<Entry> NATIVE_KEYS = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry one, Entry two) {
+			return compareKeys((Comparable<?>) one.key,
+					(Comparable<?>) two.key);
+		}
+	};
+
+	/**
+	 * Sorts the values on the keys at the same index, which are either
+	 * native sort keys or compared using the given comparator. The sort
+	 * is stable.
+	 */
+	private static Entry[] sortEntries(List<Object> values, Object[] keys,
+			final Comparator<Object> comparator) throws ControlFlow {
+		int n = values.size();
+		Entry[] entries = new Entry[n];
+		for (int i = 0; i < n; i++) {
+			entries[i] = new Entry(keys[i], values.get(i));
+		}
+
+		Comparator<Entry> c = NATIVE_KEYS;
+		if (comparator != null) {
+			c = new Comparator<Entry>() {
+				@Override
+				public int compare(Entry one, Entry two) {
+					return comparator.compare(one.key, two.key);
+				}
+			};
+		}
+
+		try {
+			Arrays.sort(entries, c);
+		} catch (RuntimeException e) {
+			if (e.getCause() instanceof ControlFlow) {
+				throw (ControlFlow) e.getCause();
+			}
+			throw e;
+		}
+		return entries;
+	}
+
+	/**
+	 * Sorts the list in place using <=>, signalling any conditions that
+	 * <=> signals.
+	 */
+	public static void sort(List<Object> list, IokeObject context,
+			IokeObject message) throws ControlFlow {
+		if ((list instanceof NumberList) && ((NumberList) list).isPlain()
+				&& NativeMethod.nativeKeyData(
+						IokeObject.findCell(context.runtime.integer,
+								Selectors.SPACESHIP)) == Number.class) {
+			((NumberList) list).sortLongs();
+			return;
+		}
+
+		Comparable<?>[] keys = sortKeys(list);
+		if (keys == null) {
+			try {
+				Collections.sort(list,
+						new SpaceshipComparator(context, message));
+			} catch (RuntimeException e) {
+				if (e.getCause() instanceof ControlFlow) {
+					throw (ControlFlow) e.getCause();
+				}
+				throw e;
+			}
+			return;
+		}
+
+		Entry[] entries = sortEntries(list, keys, null);
+		for (int i = 0; i < entries.length; i++) {
+			list.set(i, entries[i].value);
+		}
+	}
+
+	/**
+	 * Returns a new list with the values sorted on the keys at the same
+	 * index, using <=> on the keys. Values with equal keys keep their
+	 * order. If one of the lists is longer than the other, the extra
+	 * elements are left out.
+	 */
+	public static List<Object> sortBy(List<Object> values, List<Object> keys,
+			IokeObject context, IokeObject message) throws ControlFlow {
+		int n = Math.min(values.size(), keys.size());
+		values = values.subList(0, n);
+		keys = keys.subList(0, n);
+
+		Object[] sortKeys = sortKeys(keys);
+		Comparator<Object> comparator = null;
+		if (sortKeys == null) {
+			sortKeys = keys.toArray();
+			comparator = new SpaceshipComparator(context, message);
+		}
+
+		Entry[] entries = sortEntries(values, sortKeys, comparator);
+		List<Object> result = new ArrayList<>(entries.length);
+		for (Entry e : entries) {
+			result.add(e.value);
+		}
+		return result;
+	}
 }// SpaceshipComparator
@@ -0,0 +1,109 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+/**
+ * The cells that super calls from a method resolve to, cached on the
+ * method. An entry is keyed by the method object, the selector looked
+ * up, the single mimic of the receiver and whether the receiver itself
+ * holds the method, and
+ * is only valid as long as the global body version hasn't changed since
+ * it was filled. Every body the lookup walks through is flagged as
+ * observed, so adding, changing or removing cells or mimics anywhere
+ * along the way empties the cache, just as for inline caches.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+final class SuperCache {
+	static final int		MAX_ENTRIES	= 4;
+
+	final IokeObject		method;
+	final int				selector;
+	final IokeObject		mimic;
+	final boolean			found;
+	final Object			cell;
+	final int				version;
+
+	private SuperCache(IokeObject method, int selector, IokeObject mimic,
+			boolean found, Object cell, int version) {
+		this.method = method;
+		this.selector = selector;
+		this.mimic = mimic;
+		this.found = found;
+		this.cell = cell;
+		this.version = version;
+	}
+
+	/**
+	 * Finds the cell with the given name that comes after the method in
+	 * the mimic chain of the receiver, like IokeObject.findSuperCellOn.
+	 * Lexical receivers and receivers with more than one mimic always
+	 * take the slow path, as do lookups passing through lexical
+	 * contexts.
+	 */
+	static Object find(Object self, IokeObject method, IokeObject context,
+			String name) {
+		IokeObject on = IokeObject.as(self, context);
+		Body b = on.body;
+		if (b.mimicCount != 1 || on.isLexical()
+				|| !(method.data instanceof Method)) {
+			return IokeObject.findSuperCellOn(self, method, context, name);
+		}
+
+		int selector = context.runtime.selectors.idOf(name);
+		boolean found = b.get(selector) == method;
+		IokeObject mimic = b.mimic;
+		Method m = (Method) method.data;
+		int version = Body.version();
+		SuperCache[] entries = m.superCache;
+		if (entries != null) {
+			for (SuperCache e : entries) {
+				if (e.mimic == mimic && e.found == found
+						&& e.version == version && e.method == method
+						&& e.selector == selector) {
+					return e.cell;
+				}
+			}
+		}
+
+		boolean[] state = new boolean[] { found, true };
+		Object cell = IokeObject.findSuperCellObserved(mimic, method,
+				selector, state);
+		if (state[1]) {
+			m.superCache = add(entries,
+					new SuperCache(method, selector, mimic, found, cell,
+							version));
+		}
+		return cell;
+	}
+
+	private static SuperCache[] add(SuperCache[] entries,
+			SuperCache entry) {
+		if (entries == null) {
+			return new SuperCache[] { entry };
+		}
+
+		int live = 0;
+		for (SuperCache e : entries) {
+			if (e.version == entry.version) {
+				live++;
+			}
+		}
+
+		if (live >= MAX_ENTRIES) {
+			return new SuperCache[] { entry };
+		}
+
+		SuperCache[] newEntries = new SuperCache[live + 1];
+		int i = 0;
+		for (SuperCache e : entries) {
+			if (e.version == entry.version) {
+				newEntries[i++] = e;
+			}
+		}
+		newEntries[i] = entry;
+		return newEntries;
+	}
+}// SuperCache
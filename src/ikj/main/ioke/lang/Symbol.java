@@ -44,6 +44,11 @@ public class Symbol extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return Symbol.class;
+					}
+
 					@Override
 					public Object activate(IokeObject self, Object on,
 							List<Object> args,
@@ -64,11 +69,9 @@ public class Symbol extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("asText",
 						obj.runtime.symbol) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime.newText(Symbol.getText(on));
 					}
 				}));
@@ -78,11 +81,9 @@ public class Symbol extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("inspect",
 						obj.runtime.symbol) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(Symbol.getInspect(on));
 					}
@@ -93,11 +94,9 @@ public class Symbol extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("notice",
 						obj.runtime.symbol) {
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						return method.runtime
 								.newText(Symbol.getInspect(on));
 					}
@@ -118,13 +117,14 @@ public class Symbol extends IokeData {
 					}
 
 					@Override
-					public Object activate(IokeObject method, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
-						Object arg = args.get(0);
+					Class<? extends IokeData> nativeKeyData() {
+						return Symbol.class;
+					}
 
+					@Override
+					public Object activate1(IokeObject method,
+							IokeObject context, IokeObject message,
+							Object on, Object arg) throws ControlFlow {
 						if (!(IokeObject.data(arg) instanceof Symbol)) {
 							arg = IokeObject.convertToSymbol(arg, message,
 									context, false);
@@ -188,6 +188,16 @@ public class Symbol extends IokeData {
 		return self.runtime.newText(getText());
 	}
 
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		return self == other;
+	}
+
+	@Override
+	Comparable<?> nativeSortKey(IokeObject self) {
+		return text;
+	}
+
 	@Override
 	public String toString() {
 		return text;
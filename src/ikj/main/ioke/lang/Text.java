@@ -42,6 +42,11 @@ public class Text extends IokeData {
 		obj.registerMethod(
 				runtime.newNativeMethod("returns a hash for the text",
 						new NativeMethod.WithNoArguments("hash") {
+							@Override
+							Class<? extends IokeData> nativeKeyData() {
+								return Text.class;
+							}
+
 							@Override
 							public Object activate(IokeObject method,
 									IokeObject context, IokeObject message,
@@ -69,6 +74,11 @@ public class Text extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return Text.class;
+					}
+
 					@Override
 					public Object activate(IokeObject self, Object on,
 							List<Object> args,
@@ -78,18 +88,10 @@ public class Text extends IokeData {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
-						Object other = args.get(0);
-						String real = Text.getText(on);
-						return (((other instanceof IokeObject)
-								&& (IokeObject.data(other) instanceof Text)
-								&& ((on == self.runtime.text
-										|| other == self.runtime.text)
-												? on == other
-												: real.equals(
-														((Text) IokeObject
-																.data(other)).text))))
-																		? context.runtime._true
-																		: context.runtime._false;
+						return ((Text) IokeObject.data(on)).nativeEquals(
+								IokeObject.as(on, context), args.get(0))
+										? context.runtime._true
+										: context.runtime._false;
 					}
 				}));
 
@@ -112,11 +114,9 @@ public class Text extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("toRational",
 						runtime.text) {
 					@Override
-					public Object activate(IokeObject self, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject self,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						getArguments().getEvaluatedArguments(context,
 								message, on, new ArrayList<>(),
 								new HashMap<String, Object>());
@@ -129,11 +129,9 @@ public class Text extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("toDecimal",
 						runtime.text) {
 					@Override
-					public Object activate(IokeObject self, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject self,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						getArguments().getEvaluatedArguments(context,
 								message, on, new ArrayList<>(),
 								new HashMap<String, Object>());
@@ -372,11 +370,9 @@ public class Text extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments("length",
 						runtime.text) {
 					@Override
-					public Object activate(IokeObject self, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject self,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						getArguments().getEvaluatedArguments(context,
 								message, on, new ArrayList<>(),
 								new HashMap<String, Object>());
@@ -427,6 +423,11 @@ public class Text extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return Text.class;
+					}
+
 					@Override
 					public Object activate(IokeObject self, Object on,
 							List<Object> args,
@@ -592,11 +593,9 @@ public class Text extends IokeData {
 				new TypeCheckingNativeMethod.WithNoArguments(
 						"evaluateEscapes", runtime.text) {
 					@Override
-					public Object activate(IokeObject self, Object on,
-							List<Object> args,
-							Map<String, Object> keywords,
-							IokeObject context, IokeObject message)
-							throws ControlFlow {
+					public Object activate0(IokeObject self,
+							IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
 						getArguments().getEvaluatedArguments(context,
 								message, on, new ArrayList<>(),
 								new HashMap<String, Object>());
@@ -1022,6 +1021,26 @@ public class Text extends IokeData {
 		return self;
 	}
 
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		Runtime runtime = self.runtime;
+		return (other instanceof IokeObject)
+				&& (IokeObject.data(other) instanceof Text)
+				&& ((self == runtime.text || other == runtime.text)
+						? self == other
+						: text.equals(((Text) IokeObject.data(other)).text));
+	}
+
+	@Override
+	int nativeHashCode(IokeObject self) {
+		return text.hashCode();
+	}
+
+	@Override
+	Comparable<?> nativeSortKey(IokeObject self) {
+		return self == self.runtime.text ? null : text;
+	}
+
 	@Override
 	public String toString() {
 		return text;
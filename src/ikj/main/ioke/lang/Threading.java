@@ -0,0 +1,798 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * Threads, thread pools and futures. A block submitted to a pool or
+ * started on a thread of its own runs with empty restart, rescue and
+ * handler stacks, and errors signalled from it that nothing in the block
+ * takes care of end the task. Getting the result of such a future
+ * signals the same condition again in the thread asking for it, with a
+ * useValue restart. A block that unwinds some other way - with return,
+ * break or a restart outside of the block - can't unwind the thread
+ * asking for the result, since the place it was going to doesn't exist
+ * there, so that is signalled as a Condition Error Threading NonLocalExit
+ * instead.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class Threading {
+	private static final Method NEW_VIRTUAL_EXECUTOR = virtualExecutorFactory();
+
+	private static Method virtualExecutorFactory() {
+		try {
+			return Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true if this JVM can run tasks on virtual threads.
+	 */
+	public static boolean hasVirtualThreads() {
+		return NEW_VIRTUAL_EXECUTOR != null;
+	}
+
+	public static class Pool extends IokeData {
+		private final ExecutorService	executor;
+		private final boolean			virtual;
+
+		public Pool(ExecutorService executor, boolean virtual) {
+			this.executor = executor;
+			this.virtual = virtual;
+		}
+
+		public ExecutorService getExecutor() {
+			return executor;
+		}
+
+		@Override
+		public String toString(IokeObject self) {
+			return "#<Threading Pool" + (virtual ? " virtual" : "") + ">";
+		}
+	}
+
+	public static class Future extends IokeData {
+		private final Task		task;
+		private final Thread	thread;
+
+		public Future(Task task, Thread thread) {
+			this.task = task;
+			this.thread = thread;
+		}
+
+		public Task getTask() {
+			return task;
+		}
+
+		@Override
+		public String toString(IokeObject self) {
+			return "#<Threading Future>";
+		}
+	}
+
+	/**
+	 * What a task ended with, when it didn't end with a value: either an
+	 * error condition, or some other unwinding.
+	 */
+	private static class Failure extends Exception {
+		private static final long	serialVersionUID	= 1L;
+
+		final IokeObject			condition;
+		final ControlFlow			flow;
+
+		Failure(IokeObject condition, ControlFlow flow) {
+			super(null, null, false, false);
+			this.condition = condition;
+			this.flow = flow;
+		}
+	}
+
+	/**
+	 * A block running, or waiting to run, on some thread. Queues
+	 * listening to the task get it added when it's done.
+	 */
+	public static class Task extends FutureTask<Object> {
+		private final List<BlockingQueue<Task>> listeners = new ArrayList<>();
+
+		Task(final IokeObject context, final IokeObject message,
+				final Object block) {
+			super(new Callable<Object>() {
+				@Override
+				public Object call() throws Failure {
+					Runtime runtime = context.runtime;
+					Runtime.ConditionStacks previous = runtime
+							.installConditionStacks(
+									new Runtime.ConditionStacks());
+					try {
+						return callBlock(context, message, block);
+					} finally {
+						runtime.restoreConditionStacks(previous);
+					}
+				}
+			});
+		}
+
+		synchronized void listen(BlockingQueue<Task> queue) {
+			if (isDone()) {
+				queue.add(this);
+			} else {
+				listeners.add(queue);
+			}
+		}
+
+		synchronized void unlisten(BlockingQueue<Task> queue) {
+			listeners.remove(queue);
+		}
+
+		@Override
+		protected synchronized void done() {
+			for (BlockingQueue<Task> queue : listeners) {
+				queue.add(this);
+			}
+			listeners.clear();
+		}
+	}
+
+	/**
+	 * Calls the block inside a rescue for all errors, so that an error
+	 * ends the task instead of the thread.
+	 */
+	private static Object callBlock(IokeObject context,
+			IokeObject message, Object block) throws Failure {
+		Runtime runtime = context.runtime;
+		List<Runtime.RescueInfo> rescues = new ArrayList<>();
+		try {
+			List<Object> conds = new ArrayList<>();
+			conds.add(IokeObject.getCellChain(runtime.condition, message,
+					context, "Error"));
+			rescues.add(new Runtime.RescueInfo(null, conds, rescues,
+					runtime.getBindIndex()));
+			runtime.registerRescues(rescues);
+			return Interpreter.send(runtime.callMessage, context, block);
+		} catch (ControlFlow.Rescue e) {
+			if (e.getRescue().token == rescues) {
+				throw new Failure(e.getCondition(), null);
+			}
+			throw new Failure(null, e);
+		} catch (ControlFlow e) {
+			throw new Failure(null, e);
+		} finally {
+			runtime.unregisterRescues(rescues);
+		}
+	}
+
+	/**
+	 * Waits for the task and returns its value. Errors from the task,
+	 * timeouts, cancellation and interruption are signalled in the
+	 * current thread.
+	 */
+	private static Object get(Task task, long timeout, IokeObject context,
+			IokeObject message, Object on) throws ControlFlow {
+		try {
+			if (timeout < 0) {
+				return task.get();
+			}
+			return task.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Failure) {
+				Failure failure = (Failure) cause;
+				if (failure.flow instanceof ControlFlow.Exit) {
+					throw failure.flow;
+				} else if (failure.flow != null) {
+					IokeObject condition = threadingCondition(
+							"NonLocalExit", context, message, on);
+					condition.setCell("flow",
+							context.runtime.newText(flowName(failure.flow)));
+					return signal(condition, context);
+				}
+				return signal(failure.condition, context);
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else {
+				throw (Error) cause;
+			}
+		} catch (TimeoutException e) {
+			IokeObject condition = threadingCondition("Timeout", context,
+					message, on);
+			condition.setCell("timeout",
+					context.runtime.newNumber(timeout));
+			return signal(condition, context);
+		} catch (CancellationException e) {
+			return signal(threadingCondition("Cancelled", context, message,
+					on), context);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return signal(threadingCondition("Interrupted", context,
+					message, on), context);
+		}
+	}
+
+	private static String flowName(ControlFlow flow) {
+		if (flow instanceof ControlFlow.Return) {
+			return "return";
+		} else if (flow instanceof ControlFlow.Break) {
+			return "break";
+		} else if (flow instanceof ControlFlow.Continue) {
+			return "continue";
+		} else if (flow instanceof ControlFlow.Restart) {
+			return "restart";
+		} else if (flow instanceof ControlFlow.Rescue) {
+			return "rescue";
+		}
+		return flow.toString();
+	}
+
+	/**
+	 * Signals that the receiver is the Pool or Future kind itself, which
+	 * has no executor or task, returning the value given to the useValue
+	 * restart if that is invoked.
+	 */
+	private static Object uninitialized(IokeObject context,
+			IokeObject message, Object on) throws ControlFlow {
+		IokeObject condition = threadingCondition("Uninitialized", context,
+				message, on);
+		condition.setCell("report", context.runtime.newText(
+				"You tried to use a Threading Pool or Future that doesn't run anything - did you by any chance use the kind itself instead of one created with Threading pool, submit or thread?"));
+		return signal(condition, context);
+	}
+
+	private static IokeObject threadingCondition(String kind,
+			IokeObject context, IokeObject message, Object on)
+			throws ControlFlow {
+		IokeObject condition = IokeObject.as(
+				IokeObject.getCellChain(context.runtime.condition, message,
+						context, "Error", "Threading", kind),
+				context).mimic(message, context);
+		condition.setCell("message", message);
+		condition.setCell("context", context);
+		condition.setCell("receiver", on);
+		return condition;
+	}
+
+	/**
+	 * Signals the condition as an error, returning the value given to the
+	 * useValue restart if that is invoked.
+	 */
+	private static Object signal(final IokeObject condition,
+			IokeObject context) throws ControlFlow {
+		final Runtime runtime = context.runtime;
+		final Object[] value = new Object[] { runtime.nil };
+		runtime.withRestartReturningArguments(new RunnableWithControlFlow() {
+			@Override
+			public void run() throws ControlFlow {
+				runtime.errorCondition(condition);
+			}
+		}, context, new Restart.ArgumentGivingRestart("useValue") {
+			@Override
+			public List<String> getArgumentNames() {
+				return new ArrayList<>(Arrays.asList("newValue"));
+			}
+
+			@Override
+			public IokeObject invoke(IokeObject context,
+					List<Object> arguments) throws ControlFlow {
+				value[0] = arguments.get(0);
+				return context.runtime.nil;
+			}
+		});
+		return value[0];
+	}
+
+	private static long timeout(Object timeout, IokeObject context,
+			IokeObject message) throws ControlFlow {
+		if (timeout == null || timeout == context.runtime.nil) {
+			return -1;
+		}
+		return Math.max(0, Number.extractInt(timeout, message, context));
+	}
+
+	// a future without a task is in the list as null
+	private static List<Task> tasks(Object futures) {
+		List<Task> tasks = new ArrayList<>();
+		for (Object f : IokeList.getList(futures)) {
+			tasks.add(((Future) IokeObject.data(f)).task);
+		}
+		return tasks;
+	}
+
+	private static ThreadFactory daemonThreads() {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r,
+						"Ioke pool thread " + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+	public static void init(final Runtime runtime) throws ControlFlow {
+		final IokeObject obj = new IokeObject(runtime,
+				"Threading holds the basics of concurrency: pools of threads to run blocks on, and futures for the results of the blocks.");
+		obj.setKind("Threading");
+		obj.singleMimicsWithoutCheck(runtime.origin);
+		runtime.iokeGround.registerCell("Threading", obj);
+
+		final IokeObject pool = new IokeObject(runtime,
+				"A pool of threads that blocks can be submitted to.",
+				new Pool(null, false));
+		pool.setKind("Threading Pool");
+		pool.singleMimicsWithoutCheck(runtime.origin);
+		obj.registerCell("Pool", pool);
+
+		final IokeObject future = new IokeObject(runtime,
+				"The result of a block running on another thread.",
+				new Future(null, null));
+		future.setKind("Threading Future");
+		future.singleMimicsWithoutCheck(runtime.origin);
+		obj.registerCell("Future", future);
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns a new thread pool. if a size is given, the pool has that many threads, otherwise it creates threads as they are needed and reuses the ones that are idle. if virtual: is true and the JVM has virtual threads, every task runs on a virtual thread of its own instead, and the size is ignored. the threads of a pool don't keep the runtime from exiting.",
+				new TypeCheckingNativeMethod("pool") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().withOptionalPositional("size", "nil")
+							.withKeyword("virtual").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						Object size = args.isEmpty() ? runtime.nil
+								: args.get(0);
+						Object virtual = keywords.get("virtual:");
+						ExecutorService executor = null;
+						boolean isVirtual = false;
+						if (virtual != null && IokeObject.isTrue(virtual)
+								&& hasVirtualThreads()) {
+							try {
+								executor = (ExecutorService) NEW_VIRTUAL_EXECUTOR
+										.invoke(null);
+								isVirtual = true;
+							} catch (Exception e) {
+								executor = null;
+							}
+						}
+						if (executor == null) {
+							if (size == runtime.nil) {
+								executor = Executors
+										.newCachedThreadPool(daemonThreads());
+							} else {
+								executor = Executors.newFixedThreadPool(
+										Math.max(1, Number.extractInt(size,
+												message, context)),
+										daemonThreads());
+							}
+						}
+
+						IokeObject result = pool.allocateCopy(message,
+								context);
+						result.singleMimicsWithoutCheck(pool);
+						result.setData(new Pool(executor, isVirtual));
+						return result;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"returns true if pools can run tasks on virtual threads in this JVM",
+				new TypeCheckingNativeMethod.WithNoArguments("virtual?") {
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						return hasVirtualThreads() ? runtime._true
+								: runtime._false;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a block, and returns a future for calling it on a new thread. the thread is not started until start! is called on the future.",
+				new TypeCheckingNativeMethod("thread") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().withRequiredPositional("block")
+							.getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						return newThread(future, context, message,
+								args.get(0));
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a block, and returns a future for calling it on a new thread that has already been started.",
+				new TypeCheckingNativeMethod("thread!") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().withRequiredPositional("block")
+							.getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						IokeObject result = newThread(future, context,
+								message, args.get(0));
+						((Future) IokeObject.data(result)).thread.start();
+						return result;
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a list of futures, waits for all of them and returns a list of their results, in the same order. the timeout: is in milliseconds, and is for all of the futures together.",
+				new TypeCheckingNativeMethod("awaitAll") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().withRequiredPositional("futures")
+							.whichMustMimic(runtime.list)
+							.withKeyword("timeout").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						long timeout = timeout(keywords.get("timeout:"),
+								context, message);
+						long deadline = System.currentTimeMillis() + timeout;
+						List<Object> results = new ArrayList<>();
+						for (Task task : tasks(args.get(0))) {
+							if (task == null) {
+								results.add(
+										uninitialized(context, message, on));
+								continue;
+							}
+							long left = timeout < 0 ? -1
+									: Math.max(0, deadline
+											- System.currentTimeMillis());
+							results.add(get(task, left, context, message,
+									on));
+						}
+						return runtime.newList(results);
+					}
+				}));
+
+		obj.registerMethod(runtime.newNativeMethod(
+				"takes a list of futures, and returns the result of the first one to be done. the timeout: is in milliseconds.",
+				new TypeCheckingNativeMethod("awaitAny") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().withRequiredPositional("futures")
+							.whichMustMimic(runtime.list)
+							.withKeyword("timeout").getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						long timeout = timeout(keywords.get("timeout:"),
+								context, message);
+						List<Task> tasks = tasks(args.get(0));
+						if (tasks.isEmpty()) {
+							return runtime.nil;
+						}
+						if (tasks.contains(null)) {
+							return uninitialized(context, message, on);
+						}
+
+						BlockingQueue<Task> done = new LinkedBlockingQueue<>();
+						Task first;
+						try {
+							for (Task task : tasks) {
+								task.listen(done);
+							}
+							first = timeout < 0 ? done.take()
+									: done.poll(timeout,
+											TimeUnit.MILLISECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return signal(threadingCondition("Interrupted",
+									context, message, on), context);
+						} finally {
+							for (Task task : tasks) {
+								task.unlisten(done);
+							}
+						}
+
+						if (first == null) {
+							IokeObject condition = threadingCondition(
+									"Timeout", context, message, on);
+							condition.setCell("timeout",
+									runtime.newNumber(timeout));
+							return signal(condition, context);
+						}
+						return get(first, -1, context, message, on);
+					}
+				}));
+
+		pool.registerMethod(runtime.newNativeMethod(
+				"takes a block, and returns a future for calling it on a thread of the pool. signals a Condition Error Threading Rejected if the pool has been shut down",
+				new TypeCheckingNativeMethod("submit") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().receiverMustMimic(pool)
+							.withRequiredPositional("block")
+							.getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						ExecutorService executor = ((Pool) IokeObject
+								.data(on)).executor;
+						if (executor == null) {
+							return uninitialized(context, message, on);
+						}
+						Task task = new Task(context, message, args.get(0));
+						try {
+							executor.execute(task);
+						} catch (RejectedExecutionException e) {
+							return signal(threadingCondition("Rejected",
+									context, message, on), context);
+						}
+						return newFuture(future, context, message, task,
+								null);
+					}
+				}));
+
+		pool.registerMethod(runtime.newNativeMethod(
+				"stops the pool from taking any more tasks. the tasks already submitted are still run. returns nil.",
+				new TypeCheckingNativeMethod.WithNoArguments("shutdown!",
+						pool) {
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						ExecutorService executor = ((Pool) IokeObject
+								.data(on)).executor;
+						if (executor == null) {
+							return uninitialized(context, message, on);
+						}
+						executor.shutdown();
+						return runtime.nil;
+					}
+				}));
+
+		pool.registerMethod(runtime.newNativeMethod(
+				"returns true if the pool has been shut down",
+				new TypeCheckingNativeMethod.WithNoArguments("shutdown?",
+						pool) {
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						ExecutorService executor = ((Pool) IokeObject
+								.data(on)).executor;
+						if (executor == null) {
+							return uninitialized(context, message, on);
+						}
+						return executor.isShutdown() ? runtime._true
+								: runtime._false;
+					}
+				}));
+
+		pool.registerMethod(runtime.newNativeMethod(
+				"returns true if the tasks of the pool run on virtual threads",
+				new TypeCheckingNativeMethod.WithNoArguments("virtual?",
+						pool) {
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						return ((Pool) IokeObject.data(on)).virtual
+								? runtime._true
+								: runtime._false;
+					}
+				}));
+
+		future.registerMethod(runtime.newNativeMethod(
+				"waits for the block to be done and returns its result. takes an optional timeout in milliseconds - if the block isn't done by then, a Condition Error Threading Timeout is signalled. an error the block didn't handle is signalled again here. both can be handled with the useValue restart.",
+				new TypeCheckingNativeMethod("get") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().receiverMustMimic(future)
+							.withOptionalPositional("timeout", "nil")
+							.getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						long timeout = timeout(
+								args.isEmpty() ? null : args.get(0), context,
+								message);
+						Task task = ((Future) IokeObject.data(on)).task;
+						if (task == null) {
+							return uninitialized(context, message, on);
+						}
+						return get(task, timeout, context, message, on);
+					}
+				}));
+
+		future.registerMethod(runtime.newNativeMethod(
+				"starts the thread of a future created with Threading thread. returns the future.",
+				new TypeCheckingNativeMethod.WithNoArguments("start!",
+						future) {
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						Thread thread = ((Future) IokeObject.data(on)).thread;
+						if (thread != null
+								&& thread.getState() == Thread.State.NEW) {
+							thread.start();
+						}
+						return on;
+					}
+				}));
+
+		future.registerMethod(runtime.newNativeMethod(
+				"tries to cancel the block. if the argument is true, the thread running it is interrupted. returns true if the block was cancelled.",
+				new TypeCheckingNativeMethod("cancel!") {
+					private final TypeCheckingArgumentsDefinition ARGUMENTS = TypeCheckingArgumentsDefinition
+							.builder().receiverMustMimic(future)
+							.withOptionalPositional("interrupt", "false")
+							.getArguments();
+
+					@Override
+					public TypeCheckingArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						boolean interrupt = !args.isEmpty()
+								&& IokeObject.isTrue(args.get(0));
+						Task task = ((Future) IokeObject.data(on)).task;
+						if (task == null) {
+							return uninitialized(context, message, on);
+						}
+						return task.cancel(interrupt) ? runtime._true
+								: runtime._false;
+					}
+				}));
+
+		future.registerMethod(runtime.newNativeMethod(
+				"returns true if the block is done, because it returned, signalled an error or was cancelled",
+				new TypeCheckingNativeMethod.WithNoArguments("done?",
+						future) {
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						Task task = ((Future) IokeObject.data(on)).task;
+						if (task == null) {
+							return uninitialized(context, message, on);
+						}
+						return task.isDone() ? runtime._true
+								: runtime._false;
+					}
+				}));
+
+		future.registerMethod(runtime.newNativeMethod(
+				"returns true if the block was cancelled before it was done",
+				new TypeCheckingNativeMethod.WithNoArguments("cancelled?",
+						future) {
+					@Override
+					public Object activate(IokeObject method, Object on,
+							List<Object> args,
+							Map<String, Object> keywords,
+							IokeObject context, IokeObject message)
+							throws ControlFlow {
+						Task task = ((Future) IokeObject.data(on)).task;
+						if (task == null) {
+							return uninitialized(context, message, on);
+						}
+						return task.isCancelled() ? runtime._true
+								: runtime._false;
+					}
+				}));
+	}
+
+	private static IokeObject newThread(IokeObject future,
+			IokeObject context, IokeObject message, Object block) {
+		Task task = new Task(context, message, block);
+		return newFuture(future, context, message, task,
+				new Thread(task, "Ioke thread"));
+	}
+
+	private static IokeObject newFuture(IokeObject future,
+			IokeObject context, IokeObject message, Task task,
+			Thread thread) {
+		IokeObject result = future.allocateCopy(message, context);
+		result.singleMimicsWithoutCheck(future);
+		result.setData(new Future(task, thread));
+		return result;
+	}
+}// Threading
@@ -120,6 +120,11 @@ public class Tuple extends IokeData {
 						return ARGUMENTS;
 					}
 
+					@Override
+					Class<? extends IokeData> nativeKeyData() {
+						return Tuple.class;
+					}
+
 					@Override
 					public Object activate(IokeObject self, Object on,
 							List<Object> args,
@@ -129,30 +134,10 @@ public class Tuple extends IokeData {
 						getArguments().getEvaluatedArguments(context,
 								message, on, args,
 								new HashMap<String, Object>());
-						Tuple d = (Tuple) IokeObject.data(on);
-						Object other = args.get(0);
-						boolean notResult = false;
-						if ((other instanceof IokeObject) && (IokeObject
-								.data(other) instanceof Tuple)) {
-							Tuple d2 = (Tuple) IokeObject.data(other);
-							int len = d.elements.length;
-							if (len == d2.elements.length) {
-								for (int i = 0; i < len; i++) {
-									if (!d.elements[i]
-											.equals(d2.elements[i])) {
-										notResult = true;
-										break;
-									}
-								}
-							} else {
-								notResult = true;
-							}
-						} else {
-							notResult = true;
-						}
-
-						return !notResult ? context.runtime._true
-								: context.runtime._false;
+						return ((Tuple) IokeObject.data(on)).nativeEquals(
+								IokeObject.as(on, context), args.get(0))
+										? context.runtime._true
+										: context.runtime._false;
 					}
 				}));
 
@@ -270,6 +255,24 @@ public class Tuple extends IokeData {
 		return ((Tuple) (IokeObject.data(on))).inspect(on);
 	}
 
+	@Override
+	Boolean nativeEquals(IokeObject self, Object other) {
+		if (!(other instanceof IokeObject)
+				|| !(IokeObject.data(other) instanceof Tuple)) {
+			return false;
+		}
+		Object[] others = ((Tuple) IokeObject.data(other)).elements;
+		if (elements.length != others.length) {
+			return false;
+		}
+		for (int i = 0; i < elements.length; i++) {
+			if (!elements[i].equals(others[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public static String getNotice(Object on) throws ControlFlow {
 		return ((Tuple) (IokeObject.data(on))).notice(on);
 	}
@@ -40,7 +40,7 @@ public class TypeCheckingArgumentsDefinition
 				Object given = givenKeywords.get(name);
 				if (given != null) {
 					givenKeywords.put(name,
-							mustMimic.get(0).convertToMimic(given, message,
+							mustMimic.get(i).convertToMimic(given, message,
 									context, true));
 				}
 			} else {
@@ -58,6 +58,21 @@ public class TypeCheckingArgumentsDefinition
 				true);
 	}
 
+	/**
+	 * Converts the positional argument at the given index, for
+	 * definitions that only take positional arguments.
+	 */
+	public Object convertArgument(int index, Object value,
+			IokeObject message, IokeObject context) throws ControlFlow {
+		return mustMimic.get(index).convertToMimic(value, message, context,
+				true);
+	}
+
+	public Object convertReceiver(Object on, IokeObject message,
+			IokeObject context) throws ControlFlow {
+		return receiverMustMimic.convertToMimic(on, message, context, true);
+	}
+
 	public static TypeCheckingArgumentsDefinition empty() {
 		return new TypeCheckingArgumentsDefinition(
 				new ArrayList<Argument>(), new ArrayList<String>(), null,
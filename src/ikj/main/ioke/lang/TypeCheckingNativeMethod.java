@@ -45,11 +45,44 @@ public abstract class TypeCheckingNativeMethod extends NativeMethod {
 	@Override
 	public Object activate(IokeObject self, IokeObject context,
 			IokeObject message, Object on) throws ControlFlow {
+		TypeCheckingArgumentsDefinition arguments = getArguments();
+		int arity = arguments.getFixedArity();
+		if (arity >= 0 && arity <= 2) {
+			ArgumentPlan plan = ArgumentPlan.of(message);
+			if (plan.isSimple() && plan.positional == arity) {
+				switch (arity) {
+					case 0:
+						return activate0(self, context, message, arguments
+								.convertReceiver(on, message, context));
+					case 1: {
+						Object arg0 = arguments.convertArgument(0,
+								plan.evaluate(0, context), message, context);
+						return activate1(self, context, message, arguments
+								.convertReceiver(on, message, context), arg0);
+					}
+					default: {
+						Object arg0 = plan.evaluate(0, context);
+						Object arg1 = plan.evaluate(1, context);
+						arg0 = arguments.convertArgument(0, arg0, message,
+								context);
+						arg1 = arguments.convertArgument(1, arg1, message,
+								context);
+						return activate2(self, context, message, arguments
+								.convertReceiver(on, message, context), arg0,
+								arg1);
+					}
+				}
+			}
+		}
+
 		List<Object> args = new ArrayList<>();
 		Map<String, Object> keywords = new HashMap<>();
-		Object receiver = getArguments().getValidatedArgumentsAndReceiver(
-				context, message, on, args, keywords);
-
+		Object receiver = arguments.getValidatedArgumentsAndReceiver(context,
+				message, on, args, keywords);
+		if (arity >= 0 && arity <= 2) {
+			return activateArity(self, context, message, receiver, arity,
+					args);
+		}
 		return activate(self, receiver, args, keywords, context, message);
 	}
 }
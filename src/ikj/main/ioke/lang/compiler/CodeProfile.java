@@ -0,0 +1,112 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang.compiler;
+
+import ioke.lang.CodeVersion;
+import ioke.lang.IokeObject;
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * Keeps track of how hot a message chain is. Every activation of a
+ * method, macro or block body counts as an invocation, and every
+ * iteration of a loop body counts as a back edge. When the sum crosses
+ * the threshold of the compiler, the chain is queued for compilation in
+ * the background, and evaluation switches over to the compiled code as
+ * soon as it has been installed. Until then, and after the compiled
+ * code has been invalidated, the chain is interpreted.
+ *
+ * The counters are not synchronized - losing an update now and then
+ * just means compilation happens a bit later.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public final class CodeProfile {
+	private final MessageCompiler	compiler;
+	final IokeObject				code;
+	final CodeVersion				version	= new CodeVersion();
+
+	private volatile CompiledCode	compiled;
+	// the last code that got invalidated, if any
+	CompiledCode					previous;
+	private volatile boolean		queued;
+
+	private int						invocations;
+	private int						backEdges;
+
+	CodeProfile(MessageCompiler compiler, IokeObject code) {
+		this.compiler = compiler;
+		this.code = code;
+	}
+
+	public int getInvocations() {
+		return invocations;
+	}
+
+	public int getBackEdges() {
+		return backEdges;
+	}
+
+	public boolean isCompiled() {
+		return compiled != null;
+	}
+
+	/**
+	 * Evaluates the chain as the body of an activation.
+	 */
+	public Object activate(IokeObject ctx, Object ground, Object receiver)
+			throws ControlFlow {
+		CompiledCode cc = compiled;
+		if (cc != null && cc.isValid()) {
+			return cc.evaluate(ctx, ground, receiver);
+		}
+		if (cc != null) {
+			deoptimize(cc);
+		} else if (++invocations + backEdges >= compiler.threshold) {
+			queue();
+		}
+		return code.runtime.interpreter.evaluate(code, ctx, ground,
+				receiver);
+	}
+
+	/**
+	 * Evaluates the chain as one more iteration of a loop.
+	 */
+	public Object iterate(IokeObject ctx, Object ground, Object receiver)
+			throws ControlFlow {
+		CompiledCode cc = compiled;
+		if (cc != null && cc.isValid()) {
+			return cc.evaluate(ctx, ground, receiver);
+		}
+		if (cc != null) {
+			deoptimize(cc);
+		} else if (invocations + ++backEdges >= compiler.threshold) {
+			queue();
+		}
+		return code.runtime.interpreter.evaluate(code, ctx, ground,
+				receiver);
+	}
+
+	/**
+	 * Called from the compilation thread when new code is ready.
+	 */
+	void install(CompiledCode cc) {
+		compiled = cc;
+		queued = false;
+	}
+
+	private void queue() {
+		if (!queued) {
+			queued = true;
+			compiler.submit(this);
+		}
+	}
+
+	private void deoptimize(CompiledCode cc) {
+		previous = cc;
+		compiled = null;
+		invocations = 0;
+		backEdges = 0;
+	}
+}// CodeProfile
@@ -0,0 +1,120 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang.compiler;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ioke.lang.CodeVersion;
+import ioke.lang.Interpreter;
+import ioke.lang.IokeObject;
+import ioke.lang.Message;
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * The executable form of a message chain, as created by the
+ * MessageCompiler. Evaluating compiled code has exactly the same effect
+ * as evaluating the message chain with the Interpreter. Compiled code
+ * stays valid until one of the messages it was compiled from gets
+ * renamed or relinked, which bumps the version of the chain.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public abstract class CompiledCode {
+	private final CodeVersion	codeVersion;
+	private final int			version;
+	final int					generation;
+
+	protected CompiledCode(CodeVersion codeVersion, int version,
+			int generation) {
+		this.codeVersion = codeVersion;
+		this.version = version;
+		this.generation = generation;
+	}
+
+	private static final Map<String, MethodHandle[]>	SITES	= new ConcurrentHashMap<>();
+
+	static void registerSites(String className, MethodHandle[] sites) {
+		SITES.put(className, sites);
+	}
+
+	/**
+	 * Called from the static initializer of generated classes, to get
+	 * hold of their call sites.
+	 */
+	public static MethodHandle[] takeSites(String className) {
+		return SITES.remove(className);
+	}
+
+	public boolean isValid() {
+		return version == codeVersion.get();
+	}
+
+	public abstract Object evaluate(IokeObject ctx, Object ground,
+			Object receiver) throws ControlFlow;
+
+	/**
+	 * Evaluates a message whose name starts with a colon, which is a
+	 * symbol literal when it has no arguments.
+	 */
+	protected static Object symbol(IokeObject m, IokeObject ctx,
+			Object current) throws ControlFlow {
+		Message msg = (Message) m.data;
+		Object tmp = msg.cached;
+		if (tmp != null) {
+			return tmp;
+		}
+
+		if (msg.arguments.size() == 0) {
+			return msg.cached = ctx.runtime.getSymbol(msg.name.substring(1));
+		}
+		return Interpreter.send(m, ctx, current);
+	}
+
+	/**
+	 * Continues evaluation with the interpreter after the message m, in
+	 * the same way Interpreter.evaluate would. Compiled code calls this
+	 * when it finds that it has become invalid in the middle of running,
+	 * for example because a syntax rewrote the rest of the chain.
+	 */
+	protected static Object resume(IokeObject m, IokeObject ctx,
+			Object ground, Object current) throws ControlFlow {
+		for (IokeObject n = Message.next(m); n != null; n = Message
+				.next(n)) {
+			if (!".".equals(Message.name(n))) {
+				return ctx.runtime.interpreter.evaluate(Message.next(m), ctx,
+						ground, current);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Used for message chains that can't be compiled. It will always
+	 * evaluate the chain with the interpreter of the runtime, and never
+	 * becomes invalid.
+	 */
+	static final class Interpreted extends CompiledCode {
+		private final IokeObject code;
+
+		Interpreted(IokeObject code, int generation) {
+			super(null, 0, generation);
+			this.code = code;
+		}
+
+		@Override
+		public boolean isValid() {
+			return true;
+		}
+
+		@Override
+		public Object evaluate(IokeObject ctx, Object ground,
+				Object receiver) throws ControlFlow {
+			return code.runtime.interpreter.evaluate(code, ctx, ground,
+					receiver);
+		}
+	}
+}// CompiledCode
@@ -0,0 +1,404 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang.compiler;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.PUTSTATIC;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_5;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import ioke.lang.CodeVersion;
+import ioke.lang.Interpreter;
+import ioke.lang.IokeObject;
+import ioke.lang.Message;
+import ioke.lang.Runtime;
+import ioke.lang.SendSite;
+import ioke.lang.java.ClassRegistry;
+
+/**
+ * Compiles the message chain of a method or block body into a JVM
+ * class. The generated evaluate method does the same thing as
+ * Interpreter.evaluate does for the chain, but with the loop unrolled:
+ * each message becomes an invocation of its own SendSite, held in a
+ * static final field, so that HotSpot can inline the dispatch path
+ * into the body.
+ *
+ * Arguments are still handed to the activated code as unevaluated
+ * messages, since macros and native methods need to see them.
+ *
+ * Chains are compiled on a background thread once their CodeProfile
+ * says they are hot enough.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class MessageCompiler {
+	/**
+	 * Longer chains than this are left to the interpreter, since HotSpot
+	 * won't compile huge methods anyway.
+	 */
+	public static final int				MAX_CHAIN_LENGTH	= 256;
+
+	/**
+	 * A chain whose compiled code has been invalidated this many times,
+	 * by rewriting the chain itself, will be interpreted from then on.
+	 */
+	public static final int				MAX_GENERATIONS		= 3;
+
+	/**
+	 * The number of invocations and loop iterations a message chain can
+	 * go through before it gets compiled, if nothing else is specified.
+	 */
+	public static final int				DEFAULT_THRESHOLD	= 1000;
+
+	private static final String			COMPILED_CODE		= "ioke/lang/compiler/CompiledCode";
+	private static final String			IOKE_OBJECT			= "ioke/lang/IokeObject";
+	private static final String			IOKE_OBJECT_D		= "Lioke/lang/IokeObject;";
+	private static final String			OBJECT_D			= "Ljava/lang/Object;";
+	private static final String			CODE_VERSION_D		= "Lioke/lang/CodeVersion;";
+	private static final String			EVALUATE_D			= "("
+			+ IOKE_OBJECT_D + OBJECT_D + OBJECT_D + ")" + OBJECT_D;
+	private static final String			SEND_D				= "("
+			+ IOKE_OBJECT_D + IOKE_OBJECT_D + OBJECT_D + ")" + OBJECT_D;
+	private static final String			METHOD_HANDLE		= "java/lang/invoke/MethodHandle";
+	private static final String			METHOD_HANDLE_D		= "L"
+			+ METHOD_HANDLE + ";";
+	private static final String			SITE_D				= "("
+			+ IOKE_OBJECT_D + OBJECT_D + ")" + OBJECT_D;
+
+	private static final AtomicInteger	COUNTER				= new AtomicInteger();
+
+	private final ClassRegistry			registry;
+	private final ExecutorService		executor;
+
+	final int							threshold;
+
+	public MessageCompiler(Runtime runtime) {
+		this(runtime, DEFAULT_THRESHOLD);
+	}
+
+	public MessageCompiler(Runtime runtime, int threshold) {
+		this.registry = runtime.classRegistry;
+		this.threshold = threshold;
+		this.executor = Executors
+				.newSingleThreadExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "Ioke compiler");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Sets up a compiler with the given threshold for the runtime,
+	 * unless the runtime uses an interpreter that has to see every
+	 * message being evaluated, such as the one collecting coverage.
+	 */
+	public static void install(Runtime runtime, int threshold) {
+		if (runtime.interpreter.getClass() == Interpreter.class) {
+			runtime.compiler = new MessageCompiler(runtime, threshold);
+		}
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Returns the profile for the message chain starting with the given
+	 * message, creating it if needed.
+	 */
+	public CodeProfile profileFor(IokeObject code) {
+		Message msg = (Message) code.data;
+		CodeProfile profile = msg.profile;
+		if (profile == null || profile.code != code) {
+			msg.profile = profile = new CodeProfile(this, code);
+		}
+		return profile;
+	}
+
+	/**
+	 * Queues the chain of the profile for compilation on the compiler
+	 * thread. After the compiler has been shut down, the chain just
+	 * stays interpreted.
+	 */
+	void submit(final CodeProfile profile) {
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					profile.install(compile(profile.code, profile.version,
+							profile.previous));
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// shut down
+		}
+	}
+
+	/**
+	 * Stops the compiler thread. Chains that are already queued will
+	 * still be compiled, but nothing new gets queued.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Compiles the given message chain. Will never return null - if the
+	 * chain can't be compiled, code that interprets it is returned
+	 * instead.
+	 *
+	 * @param version
+	 *            the version of the chain, which the messages get marked
+	 *            with
+	 * @param previous
+	 *            the code previously compiled from this chain, that has
+	 *            now become invalid, or null.
+	 */
+	public CompiledCode compile(IokeObject code, CodeVersion version,
+			CompiledCode previous) {
+		int generation = previous == null ? 0 : previous.generation + 1;
+		if (generation >= MAX_GENERATIONS) {
+			return new CompiledCode.Interpreted(code, generation);
+		}
+
+		// The messages have to be marked before reading the version, so
+		// that any change made while compiling invalidates the result
+		if (chainOf(code, version) == null) {
+			return new CompiledCode.Interpreted(code, generation);
+		}
+		int stamp = version.get();
+		List<IokeObject> chain = chainOf(code, version);
+		if (chain == null) {
+			return new CompiledCode.Interpreted(code, generation);
+		}
+
+		try {
+			String className = "ioke/lang/compiler/Compiled$"
+					+ COUNTER.incrementAndGet();
+			CompiledCode.registerSites(className.replace('/', '.'),
+					sitesFor(chain));
+			registry.defineClass(className.replace('/', '.'), className,
+					generate(className, chain));
+			return (CompiledCode) registry.getClassLoader()
+					.loadClass(className.replace('/', '.'))
+					.getConstructor(CodeVersion.class, int.class,
+							int.class, IokeObject[].class)
+					.newInstance(version, stamp, generation,
+							chain.toArray(new IokeObject[chain.size()]));
+		} catch (Exception e) {
+			return new CompiledCode.Interpreted(code, generation);
+		}
+	}
+
+	/**
+	 * Collects and marks the messages of the chain, or returns null if
+	 * it can't be compiled.
+	 */
+	private static List<IokeObject> chainOf(IokeObject code,
+			CodeVersion version) {
+		List<IokeObject> chain = new ArrayList<>();
+		for (IokeObject m = code; m != null; m = Message.next(m)) {
+			if (!(m.data instanceof Message) || Message.name(m) == null
+					|| chain.size() == MAX_CHAIN_LENGTH) {
+				return null;
+			}
+			Message.markCompiled(m, version);
+			chain.add(m);
+		}
+		return chain;
+	}
+
+	private static boolean isSend(String name) {
+		return !name.equals(".")
+				&& !(name.length() > 0 && name.charAt(0) == ':');
+	}
+
+	private static MethodHandle[] sitesFor(List<IokeObject> chain) {
+		MethodHandle[] sites = new MethodHandle[chain.size()];
+		for (int i = 0; i < sites.length; i++) {
+			if (isSend(Message.name(chain.get(i)))) {
+				sites[i] = new SendSite(chain.get(i)).dynamicInvoker();
+			}
+		}
+		return sites;
+	}
+
+	private static byte[] generate(String className,
+			List<IokeObject> chain) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL, className, null,
+				COMPILED_CODE, null);
+
+		for (int i = 0; i < chain.size(); i++) {
+			cw.visitField(ACC_PRIVATE | ACC_FINAL, "m" + i, IOKE_OBJECT_D,
+					null, null);
+			if (isSend(Message.name(chain.get(i)))) {
+				cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "s" + i,
+						METHOD_HANDLE_D, null, null);
+			}
+		}
+
+		generateStaticInitializer(cw, className, chain);
+		generateConstructor(cw, className, chain.size());
+		generateEvaluate(cw, className, chain);
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/*
+	 * The call sites are kept in static final fields, since HotSpot
+	 * treats those as constants and can inline through them.
+	 */
+	private static void generateStaticInitializer(ClassWriter cw,
+			String className, List<IokeObject> chain) {
+		MethodVisitor mv = cw.visitMethod(ACC_STATIC, "<clinit>", "()V",
+				null, null);
+		mv.visitCode();
+		mv.visitLdcInsn(className.replace('/', '.'));
+		mv.visitMethodInsn(INVOKESTATIC, COMPILED_CODE, "takeSites",
+				"(Ljava/lang/String;)[" + METHOD_HANDLE_D);
+		mv.visitVarInsn(ASTORE, 0);
+		for (int i = 0; i < chain.size(); i++) {
+			if (isSend(Message.name(chain.get(i)))) {
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitLdcInsn(i);
+				mv.visitInsn(AALOAD);
+				mv.visitFieldInsn(PUTSTATIC, className, "s" + i,
+						METHOD_HANDLE_D);
+			}
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateConstructor(ClassWriter cw,
+			String className, int size) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>",
+				"(" + CODE_VERSION_D + "II[" + IOKE_OBJECT_D + ")V", null,
+				null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ILOAD, 2);
+		mv.visitVarInsn(ILOAD, 3);
+		mv.visitMethodInsn(INVOKESPECIAL, COMPILED_CODE, "<init>",
+				"(" + CODE_VERSION_D + "II)V");
+		for (int i = 0; i < size; i++) {
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitVarInsn(ALOAD, 4);
+			mv.visitLdcInsn(i);
+			mv.visitInsn(AALOAD);
+			mv.visitFieldInsn(PUTFIELD, className, "m" + i, IOKE_OBJECT_D);
+		}
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	/*
+	 * Locals: 0 this, 1 ctx, 2 ground, 3 receiver (used as current), 4
+	 * lastReal
+	 */
+	private static void generateEvaluate(ClassWriter cw, String className,
+			List<IokeObject> chain) {
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "evaluate",
+				EVALUATE_D, null, new String[] {
+						"ioke/lang/exceptions/ControlFlow" });
+		mv.visitCode();
+
+		// lastReal = ctx.runtime.getNil()
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(GETFIELD, IOKE_OBJECT, "runtime",
+				"Lioke/lang/Runtime;");
+		mv.visitMethodInsn(INVOKEVIRTUAL, "ioke/lang/Runtime", "getNil",
+				"()" + IOKE_OBJECT_D);
+		mv.visitVarInsn(ASTORE, 4);
+
+		for (int i = 0; i < chain.size(); i++) {
+			String name = Message.name(chain.get(i));
+			if (name.equals(".")) {
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitVarInsn(ASTORE, 3);
+				continue;
+			}
+
+			if (isSend(name)) {
+				mv.visitFieldInsn(GETSTATIC, className, "s" + i,
+						METHOD_HANDLE_D);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitMethodInsn(INVOKEVIRTUAL, METHOD_HANDLE,
+						"invokeExact", SITE_D);
+			} else {
+				mv.visitVarInsn(ALOAD, 0);
+				mv.visitFieldInsn(GETFIELD, className, "m" + i,
+						IOKE_OBJECT_D);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitMethodInsn(INVOKESTATIC, COMPILED_CODE, "symbol",
+						SEND_D);
+			}
+			mv.visitInsn(DUP);
+			mv.visitVarInsn(ASTORE, 3);
+			mv.visitVarInsn(ASTORE, 4);
+
+			// if the chain was rewritten while running, let the
+			// interpreter take the rest
+			Label valid = new Label();
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitMethodInsn(INVOKEVIRTUAL, COMPILED_CODE, "isValid", "()Z");
+			mv.visitJumpInsn(IFNE, valid);
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitFieldInsn(GETFIELD, className, "m" + i, IOKE_OBJECT_D);
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitVarInsn(ALOAD, 2);
+			mv.visitVarInsn(ALOAD, 3);
+			mv.visitMethodInsn(INVOKESTATIC, COMPILED_CODE, "resume", "("
+					+ IOKE_OBJECT_D + IOKE_OBJECT_D + OBJECT_D + OBJECT_D + ")"
+					+ OBJECT_D);
+			mv.visitInsn(ARETURN);
+			mv.visitLabel(valid);
+		}
+
+		mv.visitVarInsn(ALOAD, 4);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+}// MessageCompiler
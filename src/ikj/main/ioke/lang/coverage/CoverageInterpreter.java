@@ -68,8 +68,8 @@ public class CoverageInterpreter extends Interpreter {
 	}
 
 	@Override
-	public Object evaluate(IokeObject self, IokeObject ctx, Object ground,
-			Object receiver) throws ControlFlow {
+	public Object evaluate(IokeObject self, IokeObject stop, IokeObject ctx,
+			Object ground, Object receiver) throws ControlFlow {
 		ioke.lang.Runtime runtime = self.runtime;
 		Object current = receiver;
 		Object tmp = null;
@@ -77,13 +77,13 @@ public class CoverageInterpreter extends Interpreter {
 		Object lastReal = runtime.getNil();
 		IokeObject m = self;
 		Message msg;
-		while (m != null) {
+		while (m != stop) {
 			msg = (Message) m.data;
 			tmp = msg.cached;
 			cover(m);
 			if (tmp != null) {
 				lastReal = current = tmp;
-			} else if ((name = msg.name.intern()) == ".") {
+			} else if ((name = msg.name) == ".") {
 				current = ctx;
 			} else if (name.length() > 0 && msg.arguments.size() == 0
 					&& name.charAt(0) == ':') {
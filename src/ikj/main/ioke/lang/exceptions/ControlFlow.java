@@ -43,24 +43,111 @@ public class ControlFlow extends Throwable {
 	}
 
 	public static class Break extends ControlFlow {
+		private static final ThreadLocal<Break>	SPARE	= new ThreadLocal<Break>() {
+															@Override
+															protected Break initialValue() {
+																Break b = new Break(null);
+																b.spare = true;
+																return b;
+															}
+														};
+
+		private boolean							spare;
+		private boolean							thrown;
+
 		public Break(Object value) {
 			super(value);
 		}
+
+		/**
+		 * Returns a Break with the value, reusing the one the current
+		 * thread keeps around. While that one is on its way up - as when
+		 * code run by ensure breaks during unwinding - a new one is
+		 * created, so that each keeps its own value.
+		 */
+		public static Break of(Object value) {
+			Break b = SPARE.get();
+			if (b.thrown) {
+				return new Break(value);
+			}
+			b.thrown = true;
+			b.setValue(value);
+			return b;
+		}
+
+		/**
+		 * Returns the value, for the loop that catches the break. After
+		 * this, the Break can be handed out again.
+		 */
+		public Object take() {
+			Object value = getValue();
+			if (spare) {
+				setValue(null);
+				thrown = false;
+			}
+			return value;
+		}
 	}
 
 	public static class Continue extends ControlFlow {
+		/**
+		 * Continue carries no state, so the same one can always be
+		 * thrown.
+		 */
+		public static final Continue INSTANCE = new Continue();
+
 		public Continue() {
 			super(null);
 		}
 	}
 
 	public static class Return extends ControlFlow {
-		public final Object context;
+		private static final ThreadLocal<Return>	SPARE	= new ThreadLocal<Return>() {
+																@Override
+																protected Return initialValue() {
+																	Return r = new Return(null, null);
+																	r.spare = true;
+																	return r;
+																}
+															};
+
+		public Object								context;
+		private boolean								spare;
+		private boolean								thrown;
 
 		public Return(Object value, Object context) {
 			super(value);
 			this.context = context;
 		}
+
+		/**
+		 * Returns a Return with the value and context, reusing the one
+		 * the current thread keeps around in the same way as Break.of.
+		 */
+		public static Return of(Object value, Object context) {
+			Return r = SPARE.get();
+			if (r.thrown) {
+				return new Return(value, context);
+			}
+			r.thrown = true;
+			r.setValue(value);
+			r.context = context;
+			return r;
+		}
+
+		/**
+		 * Returns the value, for the activation that the return belongs
+		 * to. After this, the Return can be handed out again.
+		 */
+		public Object take() {
+			Object value = getValue();
+			if (spare) {
+				setValue(null);
+				context = null;
+				thrown = false;
+			}
+			return value;
+		}
 	}
 
 	public static class Restart extends ControlFlow {
@@ -117,6 +204,10 @@ public class ControlFlow extends Throwable {
 		return value;
 	}
 
+	protected void setValue(Object value) {
+		this.value = value;
+	}
+
 	@Override
 	public Throwable fillInStackTrace() {
 		// we don't need any stack trace
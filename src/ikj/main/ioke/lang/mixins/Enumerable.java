@@ -4,16 +4,696 @@
  */
 package ioke.lang.mixins;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ioke.lang.Base;
+import ioke.lang.DefaultArgumentsDefinition;
+import ioke.lang.Dict;
+import ioke.lang.IokeData;
+import ioke.lang.IokeList;
 import ioke.lang.IokeObject;
+import ioke.lang.IokeSet;
+import ioke.lang.Interpreter;
+import ioke.lang.LexicalBlock;
+import ioke.lang.Message;
+import ioke.lang.NativeMethod;
+import ioke.lang.Number;
+import ioke.lang.NumberList;
+import ioke.lang.Range;
 import ioke.lang.Runtime;
+import ioke.lang.Sequence;
+import ioke.lang.Sequence.Source;
+import ioke.lang.SpaceshipComparator;
+import ioke.lang.Symbol;
+import ioke.lang.compiler.MessageCompiler;
+import ioke.lang.exceptions.ControlFlow;
 
 /**
+ * The most used Enumerable methods are implemented here. When the
+ * receiver is a List, Range, Dict or Set with the builtin each, they go
+ * through the elements directly and evaluate the code argument without
+ * building a lexical block per call or sending each. For everything else,
+ * and for argument names that destructure, they hand over to the Ioke
+ * implementations in F30_enumerable, which are kept in cells prefixed
+ * with internal:.
  *
  * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
  */
 public class Enumerable {
-	public static void init(IokeObject enumerable) {
+	public static void init(IokeObject enumerable) throws ControlFlow {
 		Runtime runtime = enumerable.runtime;
 		enumerable.setKind("Mixins Enumerable");
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes one or two arguments. if one argument is given, it will be evaluated as a message chain on each element in the enumerable, and then the result will be collected in a new List. if two arguments are given, the first one should be an unevaluated argument name, which will be bound inside the scope of executing the second piece of code. it's important to notice that the one argument form will establish no context, while the two argument form establishes a new lexical closure.",
+				new EnumerableMethod("map") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements)
+							throws ControlFlow {
+						Code code = Code.from(context, message, on, 0);
+						if (code == null
+								|| message.getArgumentCount() == 0) {
+							return NOT_HANDLED;
+						}
+
+						List<Object> result = new NumberList(
+								context.runtime);
+						while (elements.hasNext()) {
+							Object n = elements.next();
+							result.add(code.call(n));
+						}
+						return context.runtime.newList(result);
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments. if zero arguments, will return a list with all the values that are true in the original collection. if one argument is given, it will be applied as a message chain, that should be a predicate. those elements that match the predicate will be returned. if two arguments are given, they will be turned into a lexical block and used as a predicate to choose elements.",
+				new EnumerableMethod("select") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements)
+							throws ControlFlow {
+						Code code = Code.from(context, message, on, 0);
+						if (code == null) {
+							return NOT_HANDLED;
+						}
+
+						List<Object> result = new NumberList(
+								context.runtime);
+						while (elements.hasNext()) {
+							Object n = elements.next();
+							if (IokeObject.isTrue(code.call(n))) {
+								result.add(n);
+							}
+						}
+						return context.runtime.newList(result);
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments. if zero arguments, returns true if any of the elements yielded by each is true, otherwise false. if one argument, expects it to be a message chain. if that message chain, when applied to the current element returns a true value, the method returns true. finally, if two arguments are given, the first argument is an unevaluated name and the second is a code element. these will together be turned into a lexical block and tested against the values in this element. if it returns true for any element, this method returns true, otherwise false.",
+				new EnumerableMethod("any?") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements)
+							throws ControlFlow {
+						Code code = Code.from(context, message, on, 0);
+						if (code == null) {
+							return NOT_HANDLED;
+						}
+
+						while (elements.hasNext()) {
+							Object n = elements.next();
+							if (IokeObject.isTrue(code.call(n))) {
+								return context.runtime._true;
+							}
+						}
+						return context.runtime._false;
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes one optional argument. if no argument is given, first will return the first element in the collection, or nil if no such element exists. if an argument is given, it should be a number describing how many elements to get. the return value will be a list in that case",
+				new EnumerableMethod("first") {
+					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
+							.builder().withOptionalPositional("howMany", "nil")
+							.getArguments();
+
+					@Override
+					public DefaultArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements) throws ControlFlow {
+						Runtime runtime = context.runtime;
+						List<Object> args = new ArrayList<>();
+						getArguments().getEvaluatedArguments(context,
+								message, on, args,
+								new HashMap<String, Object>());
+
+						if (args.isEmpty() || !IokeObject.isTrue(args.get(0))) {
+							return elements.hasNext() ? elements.next()
+									: runtime.nil;
+						}
+
+						int howMany = Number.extractInt(args.get(0), message,
+								context);
+						List<Object> result = new NumberList(runtime);
+						for (int i = 0; i != howMany
+								&& elements.hasNext(); i++) {
+							result.add(elements.next());
+						}
+						return runtime.newList(result);
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes zero, one or two arguments. it will evaluate all the elements in the enumerable and return a dictionary where the keys will be the result of evaluating the arguments and the value will be a list of all the original values that match that key.",
+				new EnumerableMethod("groupBy") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements)
+							throws ControlFlow {
+						Code code = Code.from(context, message, on, 0);
+						if (code == null) {
+							return NOT_HANDLED;
+						}
+
+						Map<Object, Object> result = new HashMap<>();
+						while (elements.hasNext()) {
+							Object n = elements.next();
+							Object x = code.call(n);
+							Object group = result.get(x);
+							if (group == null) {
+								List<Object> l = new NumberList(
+										context.runtime);
+								l.add(n);
+								result.put(x, context.runtime.newList(l));
+							} else {
+								IokeList.add(group, n);
+							}
+						}
+						return context.runtime.newDict(result);
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes one or two arguments that are used to transform the objects into something that can be sorted, then sorts based on that. if one argument, that argument is handled as a message chain, and if two arguments it will be turned into a lexical block and used.",
+				new EnumerableMethod("sortBy") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements)
+							throws ControlFlow {
+						Code code = Code.from(context, message, on, 0);
+						if (code == null
+								|| message.getArgumentCount() == 0) {
+							return NOT_HANDLED;
+						}
+
+						List<Object> values = new ArrayList<>();
+						List<Object> keys = new ArrayList<>();
+						while (elements.hasNext()) {
+							Object n = elements.next();
+							values.add(n);
+						}
+						for (Object n : values) {
+							keys.add(code.call(n));
+						}
+						return context.runtime.newList(SpaceshipComparator
+								.sortBy(values, keys, context, message));
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes one, two, three or four arguments. all versions need an initial sum, code to execute, a place to put the current sum in the code, and a place to stick the current element of the enumerable. if one argument, it has to be a message chain. this message chain will be applied on the current sum. the element will be appended to the argument list of the last message send in the chain. the initial sum is the first element, and the code will be executed once less than the size of the enumerable due to this. if two arguments given, the first argument is the name of the variable to put the current element in, and the message will still be sent to the sum - and the initial sum works the same way as for one argument. when three arguments are given, the whole thing will be turned into a lexical closure, where the first argument is the name of the sum variable, the second argument is the name of the element variable, and the last argument is the code. when given four arguments, the only difference is that the first argument will be evaluated as the initial sum.",
+				new EnumerableMethod("inject") {
+					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
+							.builder()
+							.withOptionalPositionalUnevaluated("sumOrArgOrCode")
+							.withOptionalPositionalUnevaluated("argOrCode")
+							.withOptionalPositionalUnevaluated("elementArgOrCode")
+							.withOptionalPositionalUnevaluated("code")
+							.getArguments();
+
+					@Override
+					public DefaultArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements)
+							throws ControlFlow {
+						Runtime runtime = context.runtime;
+						List<Object> args = message.getArguments();
+						switch (args.size()) {
+							case 1:
+							case 2: {
+								IokeObject theCode;
+								Object elementName;
+								if (args.size() == 1) {
+									theCode = Message.deepCopy(args.get(0));
+									elementName = Interpreter.send(
+											runtime.newMessage("genSym"),
+											context, context);
+									IokeObject last = theCode;
+									while (Message.next(last) != null) {
+										last = Message.next(last);
+									}
+									Message.addArg(last, runtime.newMessage(
+											Symbol.getText(elementName)));
+								} else {
+									theCode = IokeObject.as(args.get(1),
+											context);
+									elementName = runtime.getSymbol(
+											IokeObject.as(args.get(0),
+													context).getName());
+								}
+
+								Object sum = runtime.nil;
+								boolean first = true;
+								while (elements.hasNext()) {
+									Object n = elements.next();
+									if (first) {
+										sum = n;
+										first = false;
+									} else {
+										Base.assignCell(context, message,
+												context, elementName, n);
+										sum = evaluate(theCode, context,
+												context, sum);
+									}
+								}
+								return sum;
+							}
+							case 3:
+							case 4: {
+								int start = args.size() - 3;
+								Fold code = Fold.from(context, message, on,
+										start);
+								if (code == null) {
+									return NOT_HANDLED;
+								}
+
+								Object sum = runtime.nil;
+								boolean first = start == 0;
+								if (!first) {
+									sum = Interpreter.getEvaluatedArgument(
+											message, 0, context);
+								}
+								while (elements.hasNext()) {
+									Object n = elements.next();
+									if (first) {
+										sum = n;
+										first = false;
+									} else {
+										sum = code.call(sum, n);
+									}
+								}
+								return sum;
+							}
+						}
+						return NOT_HANDLED;
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes zero or more arguments, where all arguments should be a list, except that the last might also be a lexical block. zip will create a list of lists, where each internal list is a combination of the current element, and the corresponding elements from all the lists. if the lists are shorter than this collection, nils will be supplied. if a lexical block is provided, it will be called with each list created, and if that's the case nil will be returned from zip",
+				new EnumerableMethod("zip") {
+					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
+							.builder().withRest("listsAndFns")
+							.getArguments();
+
+					@Override
+					public DefaultArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on, Source elements)
+							throws ControlFlow {
+						Runtime runtime = context.runtime;
+						List<Object> listsAndFns = new ArrayList<>();
+						getArguments().getEvaluatedArguments(context,
+								message, on, listsAndFns,
+								new HashMap<String, Object>());
+
+						Object theFn = null;
+						if (!listsAndFns.isEmpty()) {
+							Object last = listsAndFns
+									.get(listsAndFns.size() - 1);
+							if (IokeObject.isTrue(last) && IokeObject
+									.isMimic(last, runtime.lexicalBlock,
+											context)) {
+								theFn = last;
+								listsAndFns.remove(listsAndFns.size() - 1);
+							}
+						}
+
+						List<Object> seqs = new ArrayList<>();
+						for (Object x : listsAndFns) {
+							if (IokeObject.isMimic(x, runtime.sequence,
+									context)) {
+								seqs.add(x);
+							} else {
+								seqs.add(Interpreter.send(runtime.seqMessage,
+										context, x));
+							}
+						}
+
+						List<Object> result = new NumberList(runtime);
+						while (elements.hasNext()) {
+							Object n = elements.next();
+							List<Object> internal = new NumberList(runtime);
+							internal.add(n);
+							for (Object s : seqs) {
+								if (IokeObject.isTrue(Interpreter.send(
+										runtime.nextPMessage, context, s))) {
+									internal.add(Interpreter.send(
+											runtime.nextMessage, context, s));
+								} else {
+									internal.add(runtime.nil);
+								}
+							}
+							if (theFn != null) {
+								Interpreter.send(runtime.callMessage,
+										context, theFn,
+										runtime.newList(internal));
+							} else {
+								result.add(runtime.newList(internal));
+							}
+						}
+						return theFn != null ? runtime.nil
+								: runtime.newList(result);
+					}
+				}));
+
+		ParallelEnumerable.init(enumerable);
+	}
+
+	/**
+	 * An Enumerable method with a native implementation for the builtin
+	 * collections. If the receiver isn't one of them, or the native
+	 * implementation returns NOT_HANDLED before evaluating anything, the
+	 * Ioke version of the method is activated with the same message.
+	 */
+	private static abstract class EnumerableMethod extends NativeMethod {
+		static final Object								NOT_HANDLED	= new Object();
+
+		private static final DefaultArgumentsDefinition	ARGUMENTS	= DefaultArgumentsDefinition
+				.builder().withOptionalPositionalUnevaluated("argOrCode")
+				.withOptionalPositionalUnevaluated("code")
+				.getArguments();
+
+		private final String							fallback;
+
+		EnumerableMethod(String name) {
+			super(name);
+			this.fallback = "internal:" + name;
+		}
+
+		@Override
+		public DefaultArgumentsDefinition getArguments() {
+			return ARGUMENTS;
+		}
+
+		@Override
+		public Object activate(IokeObject method, IokeObject context,
+				IokeObject message, Object on) throws ControlFlow {
+			Source elements = elements(context, on);
+			if (elements != null) {
+				Object result = activate(context, message, on, elements);
+				if (result != NOT_HANDLED) {
+					return result;
+				}
+			}
+
+			IokeObject receiver = IokeObject.as(on, context);
+			return Interpreter.activate(
+					IokeObject.as(IokeObject.findCell(receiver, fallback),
+							context),
+					context, message, on);
+		}
+
+		abstract Object activate(IokeObject context, IokeObject message,
+				Object on, Source elements) throws ControlFlow;
+	}
+
+	private static boolean builtinEach(IokeObject on,
+			Class<? extends IokeData> data) {
+		return NativeMethod.isBuiltin(IokeObject.findCell(on, "each"), data);
+	}
+
+	/**
+	 * Returns the elements the builtin each of a List, Set, Dict,
+	 * integer Range or Sequence would yield, or null if the receiver is
+	 * something else.
+	 */
+	static Source elements(IokeObject context, Object on) {
+		if (!(on instanceof IokeObject)) {
+			return null;
+		}
+		IokeObject obj = (IokeObject) on;
+		IokeData data = IokeObject.data(obj);
+		if (data instanceof IokeList) {
+			return builtinEach(obj, IokeList.class)
+					? Source.of(IokeList.getList(obj).iterator()) : null;
+		} else if (data instanceof IokeSet) {
+			return builtinEach(obj, IokeSet.class)
+					? Source.of(((IokeSet) data).getSet().iterator()) : null;
+		} else if (data instanceof Dict) {
+			return builtinEach(obj, Dict.class) ? pairs(context, obj) : null;
+		} else if (data instanceof Range) {
+			return builtinEach(obj, Range.class) ? integers(context, obj)
+					: null;
+		}
+
+		Object each = IokeObject.findCell(obj, "each");
+		if (each != context.runtime.nul && each == IokeObject
+				.findCell(context.runtime.sequence, "each")) {
+			return Sequence.sourceFor(context, obj);
+		}
+		return null;
+	}
+
+	private static Source pairs(final IokeObject context, Object dict) {
+		final Iterator<Map.Entry<Object, Object>> entries = Dict.getMap(dict)
+				.entrySet().iterator();
+		return new Source() {
+			@Override
+			public boolean hasNext() {
+				return entries.hasNext();
+			}
+
+			@Override
+			public Object next() {
+				Map.Entry<Object, Object> e = entries.next();
+				return context.runtime.newPair(e.getKey(), e.getValue());
+			}
+		};
+	}
+
+	/**
+	 * Returns the integers in a range between two integers, when
+	 * integers still have their builtin succ, pred and ==. Ranges that
+	 * would never reach their end are left to the Ioke implementation.
+	 */
+	private static Source integers(final IokeObject context, Object range) {
+		final Runtime runtime = context.runtime;
+		IokeObject from = Range.getFrom(range);
+		IokeObject to = Range.getTo(range);
+		if (!runtime.integers.isPlain(from)
+				|| !runtime.integers.isPlain(to)) {
+			return null;
+		}
+		boolean inverted = Range.isInverted(range);
+		IokeObject integer = runtime.integer;
+		if (!NativeMethod.isBuiltin(IokeObject.findCell(integer,
+				inverted ? "pred" : "succ"), Number.class)
+				|| !NativeMethod.isBuiltin(IokeObject.findCell(integer, "=="),
+						Number.class)) {
+			return null;
+		}
+
+		final long start = ((Number) IokeObject.data(from)).getFixnum();
+		long end = ((Number) IokeObject.data(to)).getFixnum();
+		if (inverted ? start < end : start > end) {
+			return null;
+		}
+		final long step = inverted ? -1 : 1;
+		final long count = Math.abs(end - start)
+				+ (Range.isInclusive(range) ? 1 : 0);
+		if (count < 0) {
+			return null;
+		}
+		return new Source() {
+			private long index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < count;
+			}
+
+			@Override
+			public Object next() {
+				return runtime.newNumber(start + step * index++);
+			}
+		};
+	}
+
+	static Object evaluate(IokeObject code, IokeObject ctx,
+			Object ground, Object receiver) throws ControlFlow {
+		MessageCompiler compiler = ctx.runtime.compiler;
+		if (compiler == null) {
+			return ctx.runtime.interpreter.evaluate(code, ctx, ground,
+					receiver);
+		}
+		return compiler.profileFor(code).activate(ctx, ground, receiver);
+	}
+
+	/**
+	 * The code argument of an Enumerable method, or of one of the
+	 * Sequence methods that wrap a sequence, in one of its three
+	 * forms - no code, a message chain evaluated on each element, or
+	 * an argument name and code that make up a lexical block.
+	 */
+	public static abstract class Code {
+		public abstract Object call(Object n) throws ControlFlow;
+
+		/**
+		 * Returns the code made from the arguments starting at the
+		 * index, or null if they use destructuring, which the Ioke
+		 * implementations take care of.
+		 */
+		public static Code from(final IokeObject context, IokeObject message,
+				Object on, int start) throws ControlFlow {
+			final List<Object> args = message.getArguments();
+			switch (args.size() - start) {
+				case 0:
+					return new Code() {
+						@Override
+						public Object call(Object n) {
+							return n;
+						}
+					};
+				case 1: {
+					final IokeObject theCode = IokeObject
+							.as(args.get(start), context);
+					return new Code() {
+						@Override
+						public Object call(Object n) throws ControlFlow {
+							return evaluate(theCode, context, context, n);
+						}
+					};
+				}
+				case 2: {
+					final Block block = Block.from(context, message, on,
+							start, 1);
+					if (block == null) {
+						return null;
+					}
+					return new Code() {
+						@Override
+						public Object call(Object n) throws ControlFlow {
+							IokeObject c = block.activation();
+							c.setCell(block.names[0], n);
+							return block.evaluate(c);
+						}
+					};
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * The code argument of inject in its lexical block form, taking the
+	 * sum and the element.
+	 */
+	static abstract class Fold {
+		public abstract Object call(Object sum, Object n) throws ControlFlow;
+
+		/**
+		 * Returns the fold made from the two argument names and the code
+		 * starting at the index, or null if they use destructuring.
+		 */
+		static Fold from(IokeObject context, IokeObject message, Object on,
+				int start) throws ControlFlow {
+			if (message.getArgumentCount() - start != 3) {
+				return null;
+			}
+			final Block block = Block.from(context, message, on, start, 2);
+			if (block == null) {
+				return null;
+			}
+			return new Fold() {
+				@Override
+				public Object call(Object sum, Object n) throws ControlFlow {
+					IokeObject c = block.activation();
+					c.setCell(block.names[0], sum);
+					c.setCell(block.names[1], n);
+					return block.evaluate(c);
+				}
+			};
+		}
+	}
+
+	/**
+	 * A lexical block made from plain argument names followed by code.
+	 */
+	private static final class Block {
+		final String[]				names;
+		private final IokeObject	context;
+		private final IokeObject	block;
+		private final IokeObject	code;
+
+		private Block(String[] names, IokeObject context, IokeObject block,
+				IokeObject code) {
+			this.names = names;
+			this.context = context;
+			this.block = block;
+			this.code = code;
+		}
+
+		static Block from(IokeObject context, IokeObject message, Object on,
+				int start, int count) throws ControlFlow {
+			Runtime runtime = context.runtime;
+			List<Object> args = message.getArguments();
+			List<Object> blockArgs = args.subList(start, args.size());
+			String[] names = new String[count];
+			for (int i = 0; i < count; i++) {
+				names[i] = simpleName(blockArgs.get(i), context);
+				if (names[i] == null) {
+					return null;
+				}
+			}
+			IokeObject code = IokeObject.as(blockArgs.get(count), context);
+			IokeObject block = runtime.newLexicalBlock(null,
+					runtime.lexicalBlock,
+					new LexicalBlock(context,
+							DefaultArgumentsDefinition.createFrom(blockArgs,
+									0, count, message, on, context),
+							code));
+			return new Block(names, context, block, code);
+		}
+
+		IokeObject activation() {
+			return context.runtime.newLexicalContext(block,
+					"Lexical activation context", context);
+		}
+
+		Object evaluate(IokeObject c) throws ControlFlow {
+			return Enumerable.evaluate(code, c, block, c);
+		}
+
+		/**
+		 * Returns the name of an argument that is just a plain name, or
+		 * null if it's anything else.
+		 */
+		private static String simpleName(Object arg, IokeObject context)
+				throws ControlFlow {
+			if (!IokeObject.isMessage(arg)) {
+				return null;
+			}
+			IokeObject m = IokeObject.as(arg, context);
+			if (Message.next(m) != null || !m.getArguments().isEmpty()) {
+				return null;
+			}
+			String name = m.getName();
+			if (name.length() == 0 || name.equals("_") || name.endsWith(":")
+					|| !(Character.isLetter(name.charAt(0))
+							|| name.charAt(0) == '_')) {
+				return null;
+			}
+			return name;
+		}
 	}
 }// Enumerable
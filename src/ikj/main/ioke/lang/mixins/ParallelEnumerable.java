@@ -0,0 +1,424 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang.mixins;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import ioke.lang.DefaultArgumentsDefinition;
+import ioke.lang.IokeList;
+import ioke.lang.IokeObject;
+import ioke.lang.Interpreter;
+import ioke.lang.Message;
+import ioke.lang.NativeMethod;
+import ioke.lang.NumberList;
+import ioke.lang.Runtime;
+import ioke.lang.Sequence.Source;
+import ioke.lang.Symbol;
+import ioke.lang.exceptions.ControlFlow;
+
+/**
+ * The parallel versions of map, select, each and inject. They collect
+ * the elements of the receiver, split them into chunks and run the code
+ * for the chunks on the fork-join pool of the runtime, giving back the
+ * results in the same order as the sequential versions would. The
+ * workers run with a copy of the handlers, rescues and restarts of the
+ * calling thread. If the code for an element unwinds - because of a
+ * rescue, a restart or a non-local return - the chunks after it are
+ * abandoned, and the unwinding continues in the calling thread once the
+ * other chunks are done.
+ *
+ * Forms of the arguments that the parallel versions don't handle, like
+ * destructuring, are handed to the sequential versions.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class ParallelEnumerable {
+	private static final Object NOT_HANDLED = new Object();
+
+	public static void init(IokeObject enumerable) throws ControlFlow {
+		Runtime runtime = enumerable.runtime;
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes the same arguments as map, and returns the same list, but evaluates the code for the elements in parallel. the order the code is evaluated in is unspecified.",
+				new ParallelMethod("p:map", "map") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						final Enumerable.Code code = Enumerable.Code
+								.from(context, message, on, 0);
+						if (code == null
+								|| message.getArgumentCount() == 0) {
+							return NOT_HANDLED;
+						}
+
+						final List<Object> elements = elements(context, on);
+						final Object[] results = new Object[elements.size()];
+						new Job(context.runtime, elements) {
+							@Override
+							void run(int chunk, int from, int to)
+									throws ControlFlow {
+								for (int i = from; i < to
+										&& !abandoned(from); i++) {
+									results[i] = code.call(elements.get(i));
+								}
+							}
+						}.runAll();
+
+						List<Object> result = new NumberList(context.runtime);
+						Collections.addAll(result, results);
+						return context.runtime.newList(result);
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes the same arguments as select, and returns the same list, but evaluates the predicate for the elements in parallel. the order the predicate is evaluated in is unspecified.",
+				new ParallelMethod("p:select", "select") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						final Enumerable.Code code = Enumerable.Code
+								.from(context, message, on, 0);
+						if (code == null) {
+							return NOT_HANDLED;
+						}
+
+						final List<Object> elements = elements(context, on);
+						final boolean[] keep = new boolean[elements.size()];
+						new Job(context.runtime, elements) {
+							@Override
+							void run(int chunk, int from, int to)
+									throws ControlFlow {
+								for (int i = from; i < to
+										&& !abandoned(from); i++) {
+									keep[i] = IokeObject.isTrue(
+											code.call(elements.get(i)));
+								}
+							}
+						}.runAll();
+
+						List<Object> result = new NumberList(context.runtime);
+						for (int i = 0; i < keep.length; i++) {
+							if (keep[i]) {
+								result.add(elements.get(i));
+							}
+						}
+						return context.runtime.newList(result);
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes one or two arguments, like each, and evaluates the code for all the elements in parallel. the order the code is evaluated in is unspecified. returns the receiver.",
+				new ParallelMethod("p:each", "each") {
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						final Enumerable.Code code = Enumerable.Code
+								.from(context, message, on, 0);
+						if (code == null
+								|| message.getArgumentCount() == 0) {
+							return NOT_HANDLED;
+						}
+
+						final List<Object> elements = elements(context, on);
+						new Job(context.runtime, elements) {
+							@Override
+							void run(int chunk, int from, int to)
+									throws ControlFlow {
+								for (int i = from; i < to
+										&& !abandoned(from); i++) {
+									code.call(elements.get(i));
+								}
+							}
+						}.runAll();
+						return on;
+					}
+				}));
+
+		enumerable.registerMethod(runtime.newNativeMethod(
+				"takes the same arguments as inject, and returns the same result, as long as the code is associative. the elements are split into chunks that are folded in parallel, and then the results of the chunks are folded together in order. in the one and two argument forms, the element is not assigned in the calling context.",
+				new ParallelMethod("p:inject", "inject") {
+					private final DefaultArgumentsDefinition ARGUMENTS = DefaultArgumentsDefinition
+							.builder()
+							.withOptionalPositionalUnevaluated("sumOrArgOrCode")
+							.withOptionalPositionalUnevaluated("argOrCode")
+							.withOptionalPositionalUnevaluated("elementArgOrCode")
+							.withOptionalPositionalUnevaluated("code")
+							.getArguments();
+
+					@Override
+					public DefaultArgumentsDefinition getArguments() {
+						return ARGUMENTS;
+					}
+
+					@Override
+					Object activate(IokeObject context, IokeObject message,
+							Object on) throws ControlFlow {
+						Runtime runtime = context.runtime;
+						int count = message.getArgumentCount();
+						final Enumerable.Fold code;
+						if (count == 1 || count == 2) {
+							code = folding(context, message);
+						} else if (count == 3 || count == 4) {
+							code = Enumerable.Fold.from(context, message, on,
+									count - 3);
+						} else {
+							code = null;
+						}
+						if (code == null) {
+							return NOT_HANDLED;
+						}
+
+						final boolean initial = count == 4;
+						final Object initialSum = initial
+								? Interpreter.getEvaluatedArgument(message,
+										0, context)
+								: runtime.nil;
+						final List<Object> elements = elements(context, on);
+						if (elements.isEmpty()) {
+							return initialSum;
+						}
+
+						Job job = new Job(runtime, elements) {
+							@Override
+							void run(int chunk, int from, int to)
+									throws ControlFlow {
+								int i = from;
+								Object sum;
+								if (chunk == 0 && initial) {
+									sum = initialSum;
+								} else {
+									sum = elements.get(i++);
+								}
+								for (; i < to && !abandoned(from); i++) {
+									sum = code.call(sum, elements.get(i));
+								}
+								partials[chunk] = sum;
+							}
+						};
+						job.runAll();
+
+						Object sum = job.partials[0];
+						for (int k = 1; k < job.partials.length; k++) {
+							sum = code.call(sum, job.partials[k]);
+						}
+						return sum;
+					}
+				}));
+	}
+
+	/**
+	 * Returns the code for the one and two argument forms of p:inject.
+	 * Instead of assigning the element in the calling context, where the
+	 * workers would overwrite each other, every call binds it in a new
+	 * lexical context.
+	 */
+	private static Enumerable.Fold folding(final IokeObject context,
+			IokeObject message) throws ControlFlow {
+		final Runtime runtime = context.runtime;
+		List<Object> args = message.getArguments();
+		final IokeObject theCode;
+		final String elementName;
+		if (args.size() == 1) {
+			theCode = Message.deepCopy(args.get(0));
+			elementName = Symbol.getText(Interpreter
+					.send(runtime.newMessage("genSym"), context, context));
+			IokeObject last = theCode;
+			while (Message.next(last) != null) {
+				last = Message.next(last);
+			}
+			Message.addArg(last, runtime.newMessage(elementName));
+		} else {
+			theCode = IokeObject.as(args.get(1), context);
+			elementName = IokeObject.as(args.get(0), context).getName();
+		}
+
+		return new Enumerable.Fold() {
+			@Override
+			public Object call(Object sum, Object n) throws ControlFlow {
+				IokeObject c = runtime.newLexicalContext(context,
+						"Lexical activation context", context);
+				c.setCell(elementName, n);
+				return Enumerable.evaluate(theCode, c, c, sum);
+			}
+		};
+	}
+
+	/**
+	 * Returns the elements of the receiver, read directly for the
+	 * collections and sequences that Enumerable reads natively, and
+	 * otherwise from asList.
+	 */
+	private static List<Object> elements(IokeObject context, Object on)
+			throws ControlFlow {
+		Source source = Enumerable.elements(context, on);
+		if (source == null) {
+			return new ArrayList<>(IokeList.getList(Interpreter.send(
+					context.runtime.newMessage("asList"), context, on)));
+		}
+
+		List<Object> result = new ArrayList<>();
+		while (source.hasNext()) {
+			result.add(source.next());
+		}
+		return result;
+	}
+
+	/**
+	 * A parallel method. If activate returns NOT_HANDLED, before
+	 * evaluating anything, the sequential method is activated with the
+	 * same message instead.
+	 */
+	private static abstract class ParallelMethod extends NativeMethod {
+		private static final DefaultArgumentsDefinition	ARGUMENTS	= DefaultArgumentsDefinition
+				.builder().withOptionalPositionalUnevaluated("argOrCode")
+				.withOptionalPositionalUnevaluated("code")
+				.getArguments();
+
+		private final String							sequential;
+
+		ParallelMethod(String name, String sequential) {
+			super(name);
+			this.sequential = sequential;
+		}
+
+		@Override
+		public DefaultArgumentsDefinition getArguments() {
+			return ARGUMENTS;
+		}
+
+		@Override
+		public Object activate(IokeObject method, IokeObject context,
+				IokeObject message, Object on) throws ControlFlow {
+			Object result = activate(context, message, on);
+			if (result != NOT_HANDLED) {
+				return result;
+			}
+
+			return Interpreter.activate(
+					IokeObject.as(IokeObject.findCell(
+							IokeObject.as(on, context), sequential), context),
+					context, message, on);
+		}
+
+		abstract Object activate(IokeObject context, IokeObject message,
+				Object on) throws ControlFlow;
+	}
+
+	/**
+	 * Work on a list of elements, split into a few chunks per worker of
+	 * the pool. Each chunk runs with the condition stacks of the thread
+	 * that created the job. The first chunk that unwinds makes all the
+	 * chunks after it stop, and its ControlFlow is thrown again from
+	 * runAll.
+	 */
+	private static abstract class Job {
+		private final Runtime					runtime;
+		private final Runtime.ConditionStacks	stacks;
+		private final int						size;
+		final Object[]							partials;
+
+		private volatile int					failedAt	= Integer.MAX_VALUE;
+		private ControlFlow						failure;
+
+		Job(Runtime runtime, List<Object> elements) {
+			this.runtime = runtime;
+			this.stacks = runtime.getConditionStacks();
+			this.size = elements.size();
+			this.partials = new Object[Math.min(size,
+					runtime.getForkJoinPool().getParallelism() * 4)];
+		}
+
+		abstract void run(int chunk, int from, int to) throws ControlFlow;
+
+		/**
+		 * Returns true if a chunk before the one starting at the index
+		 * has unwound.
+		 */
+		boolean abandoned(int from) {
+			return failedAt < from;
+		}
+
+		private synchronized void fail(int from, ControlFlow cf) {
+			if (from < failedAt) {
+				failedAt = from;
+				failure = cf;
+			}
+		}
+
+		void runAll() throws ControlFlow {
+			int chunks = partials.length;
+			List<Chunk> tasks = new ArrayList<>(chunks);
+			for (int k = 0; k < chunks; k++) {
+				tasks.add(new Chunk(this, k, (int) ((long) size * k / chunks),
+						(int) ((long) size * (k + 1) / chunks)));
+			}
+
+			runtime.getForkJoinPool().invoke(new AllChunks(tasks));
+
+			synchronized (this) {
+				if (failure != null) {
+					throw failure;
+				}
+			}
+		}
+
+		void runChunk(int chunk, int from, int to) {
+			Runtime.ConditionStacks previous = runtime
+					.installConditionStacks(stacks);
+			try {
+				run(chunk, from, to);
+			} catch (ControlFlow cf) {
+				fail(from, cf);
+			} finally {
+				runtime.restoreConditionStacks(previous);
+			}
+		}
+	}
+
+	/**
+	 * Runs one chunk of a job on the pool.
+	 */
+	private static final class Chunk extends RecursiveAction {
+		private static final long	serialVersionUID	= 1L;
+
+		private final Job			job;
+		private final int			chunk;
+		private final int			from;
+		private final int			to;
+
+		Chunk(Job job, int chunk, int from, int to) {
+			this.job = job;
+			this.chunk = chunk;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			job.runChunk(chunk, from, to);
+		}
+	}
+
+	/**
+	 * Runs all the chunks of a job, and waits for them to finish.
+	 */
+	private static final class AllChunks extends RecursiveAction {
+		private static final long	serialVersionUID	= 1L;
+
+		private final List<Chunk>	tasks;
+
+		AllChunks(List<Chunk> tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected void compute() {
+			invokeAll(tasks);
+		}
+	}
+}// ParallelEnumerable
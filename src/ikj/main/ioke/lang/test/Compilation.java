@@ -0,0 +1,74 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang.test;
+
+import ioke.lang.AssociatedCode;
+import ioke.lang.Interpreter;
+import ioke.lang.IokeObject;
+import ioke.lang.Runtime;
+import ioke.lang.compiler.MessageCompiler;
+import ioke.lang.coverage.CoverageInterpreter;
+
+/**
+ * Lets the compiler specs find out whether code runs compiled.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public class Compilation {
+	/**
+	 * Returns true if the runtime of the object compiles hot code.
+	 */
+	public static boolean isEnabled(IokeObject obj) {
+		return obj.runtime.compiler != null;
+	}
+
+	/**
+	 * Waits for the code of the method or block to be compiled,
+	 * returning false if the runtime doesn't compile, or if it didn't
+	 * happen within the given number of milliseconds.
+	 */
+	public static boolean awaitCompiled(IokeObject code, long millis)
+			throws InterruptedException {
+		MessageCompiler compiler = code.runtime.compiler;
+		if (compiler == null) {
+			return false;
+		}
+		IokeObject body = ((AssociatedCode) code.data).getCode();
+		long end = System.currentTimeMillis() + millis;
+		while (!compiler.profileFor(body).isCompiled()) {
+			if (System.currentTimeMillis() > end) {
+				return false;
+			}
+			Thread.sleep(5);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if a new runtime asked to compile gets a compiler
+	 * when it collects coverage.
+	 */
+	public static boolean compilesWithCoverage() throws Throwable {
+		return compiles(new CoverageInterpreter());
+	}
+
+	/**
+	 * Returns true if a new runtime asked to compile gets a compiler
+	 * when it runs with the plain interpreter.
+	 */
+	public static boolean compilesWithInterpreter() throws Throwable {
+		return compiles(new Interpreter());
+	}
+
+	private static boolean compiles(Interpreter interpreter)
+			throws Throwable {
+		Runtime runtime = new Runtime(interpreter);
+		runtime.init();
+		MessageCompiler.install(runtime, 1);
+		boolean result = runtime.compiler != null;
+		runtime.tearDown();
+		return result;
+	}
+}// Compilation
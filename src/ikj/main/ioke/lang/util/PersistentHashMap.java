@@ -0,0 +1,395 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hash map, kept as a hash array mapped trie. Every node
+ * uses five bits of the hash of the key and a bitmap of which of its 32
+ * slots are taken, so lookups, additions and removals are O(log32 n) and
+ * a new version of the map shares all nodes but the ones on the path to
+ * the changed key. Keys with the exact same hash end up in a collision
+ * node that is searched linearly.
+ *
+ * Keys are compared with equals and hashCode, and can't be null.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public final class PersistentHashMap<K, V>
+		implements Iterable<Map.Entry<K, V>> {
+	private static final Object						NOT_FOUND	= new Object();
+
+	private static final PersistentHashMap<?, ?>	EMPTY		= new PersistentHashMap<>(
+			0, null);
+
+	private final int								size;
+	private final Node								root;
+
+	private PersistentHashMap(int size, Node root) {
+		this.size = size;
+		this.root = root;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashMap<K, V> empty() {
+		return (PersistentHashMap<K, V>) EMPTY;
+	}
+
+	public static <K, V> PersistentHashMap<K, V> from(
+			Map<? extends K, ? extends V> map) {
+		PersistentHashMap<K, V> result = empty();
+		for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+			result = result.put(e.getKey(), e.getValue());
+		}
+		return result;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(K key) {
+		return root != null
+				&& root.find(0, key.hashCode(), key) != NOT_FOUND;
+	}
+
+	/**
+	 * Returns the value for the key, or null if there isn't one.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(K key) {
+		if (root == null) {
+			return null;
+		}
+		Object value = root.find(0, key.hashCode(), key);
+		return value == NOT_FOUND ? null : (V) value;
+	}
+
+	/**
+	 * Returns a map where the key has the given value. Returns this map if
+	 * the key already has exactly that value.
+	 */
+	public PersistentHashMap<K, V> put(K key, V value) {
+		boolean[] added = new boolean[1];
+		Node start = root == null ? BitmapNode.EMPTY : root;
+		Node newRoot = start.put(0, key.hashCode(), key, value, added);
+		if (newRoot == root) {
+			return this;
+		}
+		return new PersistentHashMap<>(added[0] ? size + 1 : size, newRoot);
+	}
+
+	/**
+	 * Returns a map without the key, or this map if it didn't have it.
+	 */
+	public PersistentHashMap<K, V> remove(K key) {
+		if (root == null) {
+			return this;
+		}
+		Node newRoot = root.remove(0, key.hashCode(), key);
+		if (newRoot == root) {
+			return this;
+		}
+		return new PersistentHashMap<>(size - 1, newRoot);
+	}
+
+	/**
+	 * Returns a new mutable map with the same keys and values.
+	 */
+	public Map<K, V> toMap() {
+		Map<K, V> result = new HashMap<>();
+		for (Map.Entry<K, V> e : this) {
+			result.put(e.getKey(), e.getValue());
+		}
+		return result;
+	}
+
+	@Override
+	public Iterator<Map.Entry<K, V>> iterator() {
+		return new Iterator<Map.Entry<K, V>>() {
+			private final Deque<Object[]>	arrays	= new ArrayDeque<>();
+			private final Deque<Integer>	indices	= new ArrayDeque<>();
+			private Map.Entry<K, V>			next;
+
+			{
+				if (root != null) {
+					push(root);
+				}
+				advance();
+			}
+
+			private void push(Node node) {
+				arrays.push(node.array());
+				indices.push(0);
+			}
+
+			@SuppressWarnings("unchecked")
+			private void advance() {
+				next = null;
+				while (!arrays.isEmpty()) {
+					Object[] array = arrays.peek();
+					int i = indices.pop();
+					if (i >= array.length) {
+						arrays.pop();
+						continue;
+					}
+					indices.push(i + 2);
+					Object key = array[i];
+					Object value = array[i + 1];
+					if (key == null) {
+						push((Node) value);
+					} else {
+						next = new AbstractMap.SimpleImmutableEntry<>(
+								(K) key, (V) value);
+						return;
+					}
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Map.Entry<K, V> next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Map.Entry<K, V> result = next;
+				advance();
+				return result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private static boolean same(Object one, Object two) {
+		return one == two || one.equals(two);
+	}
+
+	private static int bit(int hash, int shift) {
+		return 1 << ((hash >>> shift) & 31);
+	}
+
+	private static abstract class Node {
+		abstract Object find(int shift, int hash, Object key);
+
+		abstract Node put(int shift, int hash, Object key, Object value,
+				boolean[] added);
+
+		abstract Node remove(int shift, int hash, Object key);
+
+		// pairs of key and value, where a null key means that the value
+		// is a node further down
+		abstract Object[] array();
+	}
+
+	private static final class BitmapNode extends Node {
+		static final BitmapNode	EMPTY	= new BitmapNode(0, new Object[0]);
+
+		final int				bitmap;
+		final Object[]			array;
+
+		BitmapNode(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		Object[] array() {
+			return array;
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return NOT_FOUND;
+			}
+			int idx = index(bit);
+			Object k = array[2 * idx];
+			Object v = array[2 * idx + 1];
+			if (k == null) {
+				return ((Node) v).find(shift + 5, hash, key);
+			}
+			return same(key, k) ? v : NOT_FOUND;
+		}
+
+		@Override
+		Node put(int shift, int hash, Object key, Object value,
+				boolean[] added) {
+			int bit = bit(hash, shift);
+			int idx = index(bit);
+			if ((bitmap & bit) == 0) {
+				added[0] = true;
+				int n = Integer.bitCount(bitmap);
+				Object[] newArray = new Object[2 * (n + 1)];
+				System.arraycopy(array, 0, newArray, 0, 2 * idx);
+				newArray[2 * idx] = key;
+				newArray[2 * idx + 1] = value;
+				System.arraycopy(array, 2 * idx, newArray, 2 * (idx + 1),
+						2 * (n - idx));
+				return new BitmapNode(bitmap | bit, newArray);
+			}
+
+			Object k = array[2 * idx];
+			Object v = array[2 * idx + 1];
+			if (k == null) {
+				Node n = ((Node) v).put(shift + 5, hash, key, value, added);
+				return n == v ? this : with(2 * idx + 1, n);
+			}
+			if (same(key, k)) {
+				return v == value ? this : with(2 * idx + 1, value);
+			}
+
+			added[0] = true;
+			Object[] newArray = array.clone();
+			newArray[2 * idx] = null;
+			newArray[2 * idx + 1] = split(shift + 5, k, v, hash, key, value);
+			return new BitmapNode(bitmap, newArray);
+		}
+
+		private BitmapNode with(int i, Object value) {
+			Object[] newArray = array.clone();
+			newArray[i] = value;
+			return new BitmapNode(bitmap, newArray);
+		}
+
+		private static Node split(int shift, Object key1, Object value1,
+				int hash2, Object key2, Object value2) {
+			int hash1 = key1.hashCode();
+			if (hash1 == hash2) {
+				return new CollisionNode(hash1,
+						new Object[] { key1, value1, key2, value2 });
+			}
+			boolean[] added = new boolean[1];
+			return EMPTY.put(shift, hash1, key1, value1, added).put(shift,
+					hash2, key2, value2, added);
+		}
+
+		@Override
+		Node remove(int shift, int hash, Object key) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+			int idx = index(bit);
+			Object k = array[2 * idx];
+			Object v = array[2 * idx + 1];
+			if (k == null) {
+				Node n = ((Node) v).remove(shift + 5, hash, key);
+				if (n == v) {
+					return this;
+				}
+				if (n != null) {
+					return with(2 * idx + 1, n);
+				}
+			} else if (!same(key, k)) {
+				return this;
+			}
+
+			if (bitmap == bit) {
+				return null;
+			}
+			int n = Integer.bitCount(bitmap);
+			Object[] newArray = new Object[2 * (n - 1)];
+			System.arraycopy(array, 0, newArray, 0, 2 * idx);
+			System.arraycopy(array, 2 * (idx + 1), newArray, 2 * idx,
+					2 * (n - idx - 1));
+			return new BitmapNode(bitmap ^ bit, newArray);
+		}
+	}
+
+	private static final class CollisionNode extends Node {
+		final int		hash;
+		final Object[]	array;
+
+		CollisionNode(int hash, Object[] array) {
+			this.hash = hash;
+			this.array = array;
+		}
+
+		@Override
+		Object[] array() {
+			return array;
+		}
+
+		private int indexOf(Object key) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (same(key, array[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			int i = indexOf(key);
+			return i == -1 ? NOT_FOUND : array[i + 1];
+		}
+
+		@Override
+		Node put(int shift, int hash, Object key, Object value,
+				boolean[] added) {
+			if (hash != this.hash) {
+				return new BitmapNode(bit(this.hash, shift),
+						new Object[] { null, this }).put(shift, hash, key,
+								value, added);
+			}
+			int i = indexOf(key);
+			if (i != -1) {
+				if (array[i + 1] == value) {
+					return this;
+				}
+				Object[] newArray = array.clone();
+				newArray[i + 1] = value;
+				return new CollisionNode(hash, newArray);
+			}
+			added[0] = true;
+			Object[] newArray = new Object[array.length + 2];
+			System.arraycopy(array, 0, newArray, 0, array.length);
+			newArray[array.length] = key;
+			newArray[array.length + 1] = value;
+			return new CollisionNode(hash, newArray);
+		}
+
+		@Override
+		Node remove(int shift, int hash, Object key) {
+			int i = indexOf(key);
+			if (i == -1) {
+				return this;
+			}
+			if (array.length == 2) {
+				return null;
+			}
+			Object[] newArray = new Object[array.length - 2];
+			System.arraycopy(array, 0, newArray, 0, i);
+			System.arraycopy(array, i + 2, newArray, i,
+					array.length - i - 2);
+			return new CollisionNode(hash, newArray);
+		}
+	}
+}// PersistentHashMap
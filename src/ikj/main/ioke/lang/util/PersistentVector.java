@@ -0,0 +1,293 @@
+/*
+ * See LICENSE file in distribution for copyright and licensing
+ * information.
+ */
+package ioke.lang.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable vector, kept as a trie with 32 way branching and a tail
+ * of up to 32 elements that hasn't been pushed into the trie yet.
+ * Getting and replacing elements is O(log32 n), appending is amortized
+ * constant time, and every new version shares everything but the path
+ * that changed with the version it was made from.
+ *
+ * @author <a href="mailto:ola.bini@gmail.com">Ola Bini</a>
+ */
+public final class PersistentVector<T> implements Iterable<T> {
+	private static final int					BITS		= 5;
+	private static final int					WIDTH		= 1 << BITS;
+	private static final int					MASK		= WIDTH - 1;
+
+	private static final Object[]				EMPTY_NODE	= new Object[WIDTH];
+
+	private static final PersistentVector<?>	EMPTY		= new PersistentVector<>(
+			0, BITS, EMPTY_NODE, new Object[0]);
+
+	private final int							size;
+	private final int							shift;
+	private final Object[]						root;
+	private final Object[]						tail;
+
+	private PersistentVector(int size, int shift, Object[] root,
+			Object[] tail) {
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T> PersistentVector<T> empty() {
+		return (PersistentVector<T>) EMPTY;
+	}
+
+	/**
+	 * Creates a vector with the given elements, building the trie
+	 * directly instead of appending them one at a time.
+	 */
+	public static <T> PersistentVector<T> from(Collection<? extends T> c) {
+		int size = c.size();
+		if (size == 0) {
+			return empty();
+		}
+
+		Object[] all = c.toArray();
+		int tailoff = ((size - 1) >>> BITS) << BITS;
+		Object[] tail = Arrays.copyOfRange(all, tailoff, size);
+
+		List<Object[]> nodes = new ArrayList<>();
+		for (int i = 0; i < tailoff; i += WIDTH) {
+			nodes.add(Arrays.copyOfRange(all, i, i + WIDTH));
+		}
+
+		int shift = BITS;
+		while (nodes.size() > WIDTH) {
+			List<Object[]> parents = new ArrayList<>();
+			for (int i = 0; i < nodes.size(); i += WIDTH) {
+				Object[] parent = new Object[WIDTH];
+				for (int j = 0; j < WIDTH && i + j < nodes.size(); j++) {
+					parent[j] = nodes.get(i + j);
+				}
+				parents.add(parent);
+			}
+			nodes = parents;
+			shift += BITS;
+		}
+
+		Object[] root = new Object[WIDTH];
+		for (int i = 0; i < nodes.size(); i++) {
+			root[i] = nodes.get(i);
+		}
+		return new PersistentVector<>(size, shift, root, tail);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	private int tailoff() {
+		if (size < WIDTH) {
+			return 0;
+		}
+		return ((size - 1) >>> BITS) << BITS;
+	}
+
+	private Object[] arrayFor(int index) {
+		if (index >= tailoff()) {
+			return tail;
+		}
+		Object[] node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Object[]) node[(index >>> level) & MASK];
+		}
+		return node;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(
+					"Index: " + index + ", Size: " + size);
+		}
+		return (T) arrayFor(index)[index & MASK];
+	}
+
+	/**
+	 * Returns a new vector with the value added at the end.
+	 */
+	public PersistentVector<T> append(T value) {
+		if (size - tailoff() < WIDTH) {
+			Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+			newTail[tail.length] = value;
+			return new PersistentVector<>(size + 1, shift, root, newTail);
+		}
+
+		Object[] newRoot;
+		int newShift = shift;
+		if ((size >>> BITS) > (1 << shift)) {
+			newRoot = new Object[WIDTH];
+			newRoot[0] = root;
+			newRoot[1] = newPath(shift, tail);
+			newShift += BITS;
+		} else {
+			newRoot = pushTail(shift, root, tail);
+		}
+		return new PersistentVector<>(size + 1, newShift, newRoot,
+				new Object[] { value });
+	}
+
+	private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+		int subidx = ((size - 1) >>> level) & MASK;
+		Object[] result = parent.clone();
+		Object[] toInsert;
+		if (level == BITS) {
+			toInsert = tailNode;
+		} else {
+			Object[] child = (Object[]) parent[subidx];
+			toInsert = child != null
+					? pushTail(level - BITS, child, tailNode)
+					: newPath(level - BITS, tailNode);
+		}
+		result[subidx] = toInsert;
+		return result;
+	}
+
+	private static Object[] newPath(int level, Object[] node) {
+		if (level == 0) {
+			return node;
+		}
+		Object[] result = new Object[WIDTH];
+		result[0] = newPath(level - BITS, node);
+		return result;
+	}
+
+	/**
+	 * Returns a new vector with the element at the index replaced. The
+	 * index can be the size of the vector, which appends the value.
+	 */
+	public PersistentVector<T> set(int index, T value) {
+		if (index == size) {
+			return append(value);
+		}
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException(
+					"Index: " + index + ", Size: " + size);
+		}
+		if (index >= tailoff()) {
+			Object[] newTail = tail.clone();
+			newTail[index & MASK] = value;
+			return new PersistentVector<>(size, shift, root, newTail);
+		}
+		return new PersistentVector<>(size, shift,
+				doSet(shift, root, index, value), tail);
+	}
+
+	private static Object[] doSet(int level, Object[] node, int index,
+			Object value) {
+		Object[] result = node.clone();
+		if (level == 0) {
+			result[index & MASK] = value;
+		} else {
+			int subidx = (index >>> level) & MASK;
+			result[subidx] = doSet(level - BITS, (Object[]) node[subidx],
+					index, value);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new vector without the last element.
+	 */
+	public PersistentVector<T> removeLast() {
+		if (size == 0) {
+			throw new IllegalStateException("Can't remove from empty vector");
+		}
+		if (size == 1) {
+			return empty();
+		}
+		if (size - tailoff() > 1) {
+			return new PersistentVector<>(size - 1, shift, root,
+					Arrays.copyOf(tail, tail.length - 1));
+		}
+
+		Object[] newTail = arrayFor(size - 2);
+		Object[] newRoot = popTail(shift, root);
+		int newShift = shift;
+		if (newRoot == null) {
+			newRoot = EMPTY_NODE;
+		}
+		if (shift > BITS && newRoot[1] == null) {
+			newRoot = (Object[]) newRoot[0];
+			newShift -= BITS;
+		}
+		return new PersistentVector<>(size - 1, newShift, newRoot, newTail);
+	}
+
+	private Object[] popTail(int level, Object[] node) {
+		int subidx = ((size - 2) >>> level) & MASK;
+		if (level > BITS) {
+			Object[] newChild = popTail(level - BITS,
+					(Object[]) node[subidx]);
+			if (newChild == null && subidx == 0) {
+				return null;
+			}
+			Object[] result = node.clone();
+			result[subidx] = newChild;
+			return result;
+		} else if (subidx == 0) {
+			return null;
+		}
+		Object[] result = node.clone();
+		result[subidx] = null;
+		return result;
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private int			index	= 0;
+			private Object[]	array	= size > 0 ? arrayFor(0) : null;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				if (index > 0 && (index & MASK) == 0) {
+					array = arrayFor(index);
+				}
+				return (T) array[index++ & MASK];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	public List<T> toList() {
+		List<T> result = new ArrayList<>(size);
+		for (T t : this) {
+			result.add(t);
+		}
+		return result;
+	}
+}// PersistentVector